@@ -0,0 +1,35 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行基准,接受JMH的命令行参数,并总是启用GC profiler.
+ *
+ * <pre>
+ * mvn -pl engine_classloader/classloader_benchmark -am package -DskipTests
+ * java -jar engine_classloader/classloader_benchmark/target/benchmarks.jar LoadClassBenchmark
+ * </pre>
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder().parent( new CommandLineOptions( args ) ).addProfiler( GCProfiler.class );
+
+        // cglib代理需要通过反射调用ClassLoader.defineClass
+        if (!System.getProperty( "java.specification.version" ).startsWith( "1." ))
+            options.jvmArgsAppend( "--add-opens", "java.base/java.lang=ALL-UNNAMED" );
+
+        new Runner( options.build() ).run();
+    }
+}
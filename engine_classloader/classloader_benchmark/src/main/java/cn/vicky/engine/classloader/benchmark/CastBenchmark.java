@@ -0,0 +1,68 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.Greeter;
+import cn.vicky.engine.classloader.benchmark.sample.Sample;
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.JclObjectFactory;
+import cn.vicky.engine.classloader.core.JclUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JclUtils.cast创建代理以及通过代理调用的开销.
+ * Greeter也被打包进jar,因此JarClassLoader创建的对象必须经过代理才能转换为应用的Greeter
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CastBenchmark {
+
+    private Object object;
+    private Greeter proxy;
+    private Greeter local;
+
+    @Setup
+    public void setUp() {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( SampleJar.of( Sample.class, Greeter.class ).getAbsolutePath() );
+        object = JclObjectFactory.getInstance( false ).create( jcl, Sample.class.getName() );
+        proxy = JclUtils.cast( object, Greeter.class );
+        local = new Sample();
+    }
+
+    @Benchmark
+    public Greeter cast() {
+        return JclUtils.cast( object, Greeter.class );
+    }
+
+    @Benchmark
+    public String dispatch() {
+        return proxy.greet( "jcl" );
+    }
+
+    /**
+     * 不经过代理的调用,作为dispatch的基准
+     */
+    @Benchmark
+    public String direct() {
+        return local.greet( "jcl" );
+    }
+}
@@ -0,0 +1,129 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.GraphNode;
+import cn.vicky.engine.classloader.core.utils.ObjectCloner;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ObjectCloner的克隆计划与之前逐字段反射复制的对比,包括2000个节点的对象图与1MB的byte[]
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClonePlanBenchmark {
+
+    private static final int NODES = 2000;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final ObjectCloner cloner = new ObjectCloner();
+    private final ReflectiveCloner reflective = new ReflectiveCloner();
+    private GraphNode root;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        root = GraphNode.ring( NODES );
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    @Benchmark
+    public Object reflectiveFieldWalk() throws IllegalAccessException {
+        return reflective.deepClone( root );
+    }
+
+    @Benchmark
+    public GraphNode clonePlans() {
+        return cloner.deepClone( root );
+    }
+
+    @Benchmark
+    public Object bufferElementByElement() throws IllegalAccessException {
+        return reflective.deepClone( buffer );
+    }
+
+    @Benchmark
+    public byte[] bufferBulkCopy() {
+        return cloner.deepClone( buffer );
+    }
+
+    /**
+     * 之前的逐字段复制: 每个类一个字段的LinkedList,每个字段都setAccessible并装箱读写
+     */
+    static class ReflectiveCloner {
+        private final Map<Class<?>, List<Field>> fieldsMap = new IdentityHashMap<>();
+        private final Objenesis objenesis = new ObjenesisStd();
+
+        Object deepClone(Object original) throws IllegalAccessException {
+            return clone( original, new IdentityHashMap<>() );
+        }
+
+        private Object clone(Object original, Map<Object, Object> clones) throws IllegalAccessException {
+            if (original == null || original instanceof Number || original instanceof Boolean)
+                return original;
+
+            Object c = clones.get( original );
+            if (c != null)
+                return c;
+
+            Class<?> clz = original.getClass();
+            if (clz.isArray()) {
+                int length = Array.getLength( original );
+                Object newInstance = Array.newInstance( clz.getComponentType(), length );
+                clones.put( original, newInstance );
+                for (int i = 0; i < length; i++)
+                    Array.set( newInstance, i, clone( Array.get( original, i ), clones ) );
+                return newInstance;
+            }
+
+            Object newInstance = objenesis.newInstance( clz );
+            clones.put( original, newInstance );
+            for (Field field : allFields( clz )) {
+                if (!Modifier.isStatic( field.getModifiers() )) {
+                    field.setAccessible( true );
+                    field.set( newInstance, clone( field.get( original ), clones ) );
+                }
+            }
+            return newInstance;
+        }
+
+        private List<Field> allFields(Class<?> c) {
+            List<Field> l = fieldsMap.get( c );
+            if (l == null) {
+                l = new LinkedList<>();
+                for (Class<?> sc = c; sc != Object.class && sc != null; sc = sc.getSuperclass())
+                    for (Field f : sc.getDeclaredFields())
+                        l.add( f );
+                fieldsMap.put( c, l );
+            }
+            return l;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.GraphNode;
+import cn.vicky.engine.classloader.core.utils.ObjectCloner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 通过FastCloner按公开API重建HashMap与ArrayList,与逐字段复制其内部的表与节点对比
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastClonerBenchmark {
+
+    private static final int NODES = 2000;
+
+    private final ObjectCloner cloner = new ObjectCloner();
+    private final ObjectCloner generic = new ObjectCloner();
+    private Object[] collections;
+
+    @Setup
+    public void setUp() {
+        generic.unregisterFastCloner( HashMap.class, ArrayList.class );
+
+        Map<Integer, GraphNode> map = new HashMap<>();
+        List<GraphNode> list = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            GraphNode node = new GraphNode( i );
+            map.put( i, node );
+            list.add( node );
+        }
+        collections = new Object[] { map, list };
+    }
+
+    @Benchmark
+    public Object[] fieldCopy() {
+        return generic.deepClone( collections );
+    }
+
+    @Benchmark
+    public Object[] rebuilt() {
+        return cloner.deepClone( collections );
+    }
+}
@@ -0,0 +1,85 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.context.JclContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 多线程并发按名称查找JarClassLoader: JclContext.get(name)与之前的静态Collections.synchronizedMap对比.
+ * 线程数可以通过JMH的-t参数修改
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JclContextBenchmark {
+
+    private static final int LOADERS = 64;
+
+    private final Map<String, JarClassLoader> synchronizedMap = Collections.synchronizedMap( new HashMap<String, JarClassLoader>() );
+    private final String[] names = new String[LOADERS];
+
+    @Setup
+    public void setUp() {
+        JclContext.destroy();
+        JclContext context = JclContext.getDefault();
+        for (int i = 0; i < LOADERS; i++) {
+            names[i] = "tenant" + i;
+            JarClassLoader jcl = new JarClassLoader();
+            synchronizedMap.put( names[i], jcl );
+            context.addJcl( names[i], jcl );
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        JclContext.destroy();
+    }
+
+    /**
+     * 每个线程依次查找不同的名称
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = ( next + 1 ) % LOADERS;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public JarClassLoader synchronizedMap(Cursor cursor) {
+        return synchronizedMap.get( names[cursor.next()] );
+    }
+
+    @Benchmark
+    public JarClassLoader jclContext(Cursor cursor) {
+        return JclContext.get( names[cursor.next()] );
+    }
+}
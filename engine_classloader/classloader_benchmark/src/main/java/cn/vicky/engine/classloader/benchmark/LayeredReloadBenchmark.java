@@ -0,0 +1,119 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.ReloadableJarClassLoader;
+import cn.vicky.engine.classloader.core.fixture.SourceCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 生成的插件中一个类变化后,完整重新加载与分层重新加载的对比: 创建新的一代并通过它加载所有类.
+ * 变化的是第一条继承链的根类,影响该链上的DEPTH个类
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayeredReloadBenchmark {
+
+    private static final int CHAINS = 500;
+    private static final int DEPTH = 10;
+
+    @Param({ "false", "true" })
+    public boolean layered;
+
+    private File classes;
+    private ReloadableJarClassLoader loader;
+    private int round;
+
+    @Setup
+    public void setUp() throws IOException, ClassNotFoundException {
+        classes = Files.createTempDirectory( "jcl-layered" ).toFile();
+
+        List<String> sources = new ArrayList<>();
+        for (int c = 0; c < CHAINS; c++) {
+            for (int d = 0; d < DEPTH; d++) {
+                sources.add( name( c, d ) );
+                sources.add( d == 0 ? body( 0 ) : "public int value() { return new " + simpleName( c, d - 1 ) + "().value() + 1; }" );
+            }
+        }
+        SourceCompiler.compile( classes, sources.toArray( new String[sources.size()] ) );
+
+        final File path = classes;
+        loader = new ReloadableJarClassLoader( () -> {
+            JarClassLoader jcl = new JarClassLoader();
+            jcl.add( path.getPath() );
+            return jcl;
+        } );
+        loader.setLayered( layered );
+        loadAll();
+    }
+
+    @Setup(Level.Iteration)
+    public void change() throws IOException {
+        SourceCompiler.compile( classes, name( 0, 0 ), body( ++round ) );
+    }
+
+    @TearDown
+    public void tearDown() {
+        SampleJar.delete( classes );
+        SampleJar.delete( new File( classes.getParentFile(), classes.getName() + "-src" ) );
+    }
+
+    /**
+     * @return 由新的一代自己定义的类的数量
+     */
+    @Benchmark
+    public int reload() throws ClassNotFoundException {
+        loader.reload();
+        return loadAll();
+    }
+
+    private int loadAll() throws ClassNotFoundException {
+        int defined = 0;
+        for (int c = 0; c < CHAINS; c++) {
+            for (int d = 0; d < DEPTH; d++) {
+                if (loader.loadClass( name( c, d ) ).getClassLoader() == loader.current())
+                    defined++;
+            }
+        }
+        return defined;
+    }
+
+    private static String name(int chain, int depth) {
+        return "bench." + simpleName( chain, depth );
+    }
+
+    private static String simpleName(int chain, int depth) {
+        return "C" + chain + "_" + depth;
+    }
+
+    private static String body(int value) {
+        return "public int value() { return " + value + "; }";
+    }
+}
@@ -0,0 +1,82 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.utils.ObjectCloner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 克隆一个以接口访问的HashMap后只读取其中一个值: 深克隆整个Map与ObjectCloner.lazyClone的写时复制视图对比
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyCloneBenchmark {
+
+    private static final int SETTINGS = 2000;
+
+    private final ObjectCloner cloner = new ObjectCloner();
+    private Map<Integer, Weighted> config;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        config = new HashMap<>();
+        for (int i = 0; i < SETTINGS; i++)
+            config.put( i, new Setting( i ) );
+    }
+
+    @Benchmark
+    public double deepCloneThenRead() {
+        return cloner.deepClone( config ).get( key() ).weight();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public double lazyCloneThenRead() {
+        return ( (Map<Integer, Weighted>) cloner.lazyClone( config, Map.class ) ).get( key() ).weight();
+    }
+
+    private int key() {
+        next = ( next + 1 ) % SETTINGS;
+        return next;
+    }
+
+    public interface Weighted {
+        double weight();
+    }
+
+    static class Setting implements Weighted {
+        private final int[] history;
+        private double weight;
+
+        Setting(int id) {
+            this.history = new int[] { id };
+            this.weight = id / 7d;
+        }
+
+        @Override
+        public double weight() {
+            return weight;
+        }
+    }
+}
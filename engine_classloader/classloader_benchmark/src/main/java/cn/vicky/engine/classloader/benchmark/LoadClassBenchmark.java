@@ -0,0 +1,71 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.Greeter;
+import cn.vicky.engine.classloader.benchmark.sample.Sample;
+import cn.vicky.engine.classloader.core.JarClassLoader;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * loadClass的命中与未命中路径.
+ * Sample同时存在于jar与应用classpath中,order决定由哪个ProxyClassLoader返回:
+ * local为默认顺序,system与parent把对应的代理排在LocalLoader之前
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadClassBenchmark {
+
+    private static final String HIT = Sample.class.getName();
+    private static final String MISS = "cn.vicky.engine.classloader.benchmark.sample.Missing";
+
+    @Param({ "local", "system", "parent" })
+    public String order;
+
+    private JarClassLoader jcl;
+
+    @Setup
+    public void setUp() throws ClassNotFoundException {
+        jcl = new JarClassLoader();
+        if ("system".equals( order ))
+            jcl.getSystemLoader().setOrder( 1 );
+        else if ("parent".equals( order ))
+            jcl.getParentLoader().setOrder( 1 );
+        jcl.add( SampleJar.of( Sample.class, Greeter.class ).getAbsolutePath() );
+
+        jcl.loadClass( HIT );
+    }
+
+    @Benchmark
+    public Class<?> hit() throws ClassNotFoundException {
+        return jcl.loadClass( HIT );
+    }
+
+    @Benchmark
+    public Object miss() {
+        try {
+            return jcl.loadClass( MISS );
+        } catch (ClassNotFoundException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.JarResources;
+import cn.vicky.engine.classloader.core.fixture.ClasspathGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JarResources.loadJar读取小jar与大jar,每20个类带一个资源文件
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadJarBenchmark {
+
+    @Param({ "100", "20000" })
+    public int classes;
+
+    @Param({ "deflated", "stored" })
+    public String compression;
+
+    private File jar;
+
+    @Setup
+    public void setUp() throws IOException {
+        ClasspathGenerator generator = new ClasspathGenerator();
+        generator.setPackages( Math.max( 1, classes / 500 ) );
+        generator.setClassesPerPackage( classes / generator.getPackages() );
+        generator.setResources( classes / 20 );
+        generator.setMethod( "stored".equals( compression ) ? ZipEntry.STORED : ZipEntry.DEFLATED );
+        jar = generator.writeJar( SampleJar.tempFile( ".jar" ) );
+    }
+
+    @Benchmark
+    public JarResources loadJar() {
+        JarResources resources = new JarResources();
+        resources.loadJar( jar.getAbsolutePath() );
+        return resources;
+    }
+}
@@ -0,0 +1,55 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.Node;
+import cn.vicky.engine.classloader.core.utils.ObjectCloner;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ObjectCloner深克隆与浅克隆一棵size个节点的树
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectClonerBenchmark {
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private final ObjectCloner cloner = new ObjectCloner();
+    private Node root;
+
+    @Setup
+    public void setUp() {
+        root = Node.tree( size, 4 );
+    }
+
+    @Benchmark
+    public Node deepClone() {
+        return cloner.deepClone( root );
+    }
+
+    @Benchmark
+    public Node shallowClone() {
+        return cloner.shallowClone( root );
+    }
+}
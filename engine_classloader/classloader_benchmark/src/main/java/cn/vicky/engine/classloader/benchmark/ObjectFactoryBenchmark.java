@@ -0,0 +1,71 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.Greeter;
+import cn.vicky.engine.classloader.benchmark.sample.Sample;
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.JclObjectFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JclObjectFactory.create的几种形式,autoProxy为true时每个对象都被代理
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectFactoryBenchmark {
+
+    private static final String SAMPLE = Sample.class.getName();
+
+    @Param({ "false", "true" })
+    public boolean autoProxy;
+
+    private JarClassLoader jcl;
+    private JclObjectFactory factory;
+
+    @Setup
+    public void setUp() {
+        jcl = new JarClassLoader();
+        jcl.add( SampleJar.of( Sample.class, Greeter.class ).getAbsolutePath() );
+        factory = JclObjectFactory.getInstance( autoProxy );
+    }
+
+    @Benchmark
+    public Object defaultConstructor() {
+        return factory.create( jcl, SAMPLE );
+    }
+
+    @Benchmark
+    public Object constructorWithArgs() {
+        return factory.create( jcl, SAMPLE, "Hi" );
+    }
+
+    @Benchmark
+    public Object constructorWithTypes() {
+        return factory.create( jcl, SAMPLE, new Object[] { "Hi" }, new Class[] { String.class } );
+    }
+
+    @Benchmark
+    public Object factoryMethod() {
+        return factory.create( jcl, SAMPLE, "newInstance" );
+    }
+}
@@ -0,0 +1,55 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.GraphNode;
+import cn.vicky.engine.classloader.core.utils.ObjectCloner;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 顺序深克隆与在ForkJoinPool.commonPool()中并行深克隆100万个节点的对比,节点每1000个连成一条链
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelCloneBenchmark {
+
+    private static final int NODES = 1000000;
+    private static final int CHAIN = 1000;
+
+    private final ObjectCloner cloner = new ObjectCloner();
+    private GraphNode[] nodes;
+
+    @Setup
+    public void setUp() {
+        nodes = GraphNode.chains( NODES, CHAIN );
+    }
+
+    @Benchmark
+    public GraphNode[] sequential() {
+        return cloner.deepClone( nodes );
+    }
+
+    @Benchmark
+    public GraphNode[] forkJoin() {
+        return cloner.deepClone( nodes, ForkJoinPool.commonPool() );
+    }
+}
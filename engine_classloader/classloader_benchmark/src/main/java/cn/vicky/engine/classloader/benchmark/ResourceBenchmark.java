@@ -0,0 +1,57 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.benchmark.sample.Sample;
+import cn.vicky.engine.classloader.core.JarClassLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 从jar中读取非class资源
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceBenchmark {
+
+    private JarClassLoader jcl;
+
+    @Setup
+    public void setUp() {
+        jcl = new JarClassLoader();
+        jcl.add( SampleJar.of( Sample.class ).getAbsolutePath() );
+    }
+
+    @Benchmark
+    public URL getResource() {
+        return jcl.getResource( SampleJar.RESOURCE );
+    }
+
+    @Benchmark
+    public void getResourceAsStream(Blackhole bh) throws IOException {
+        try (InputStream in = jcl.getResourceAsStream( SampleJar.RESOURCE )) {
+            bh.consume( in.read() );
+        }
+    }
+}
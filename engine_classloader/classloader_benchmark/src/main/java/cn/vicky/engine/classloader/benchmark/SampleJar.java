@@ -0,0 +1,106 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * 在临时目录中生成基准使用的jar,JVM退出时删除;以及删除基准生成的目录
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class SampleJar {
+
+    public static final String RESOURCE = "cn/vicky/engine/classloader/benchmark/sample/sample.properties";
+
+    private SampleJar() {
+    }
+
+    /**
+     * 包含指定类的字节码以及RESOURCE的jar
+     *
+     * @param classes
+     * @return File
+     */
+    public static File of(Class<?>... classes) {
+        File jar = tempFile( ".jar" );
+        try (JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) )) {
+            for (Class<?> c : classes) {
+                String entry = c.getName().replace( '.', '/' ) + ".class";
+                out.putNextEntry( new JarEntry( entry ) );
+                try (InputStream in = c.getClassLoader().getResourceAsStream( entry )) {
+                    copy( in, out );
+                }
+                out.closeEntry();
+            }
+
+            out.putNextEntry( new JarEntry( RESOURCE ) );
+            out.write( "greeting=Hello\n".getBytes( StandardCharsets.UTF_8 ) );
+            out.closeEntry();
+        } catch (IOException e) {
+            throw new JclException( e );
+        }
+        return jar;
+    }
+
+    /**
+     * @param suffix
+     * @return JVM退出时删除的临时文件
+     */
+    static File tempFile(String suffix) {
+        try {
+            File file = File.createTempFile( "jcl-benchmark", suffix );
+            file.deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new JclException( e );
+        }
+    }
+
+    /**
+     * 删除基准生成的目录及其中的所有文件
+     *
+     * @param dir
+     */
+    static void delete(File dir) {
+        try {
+            Files.walkFileTree( dir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete( file );
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.delete( dir );
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        } catch (IOException e) {
+            throw new JclException( e );
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] b = new byte[2048];
+        int len;
+        while (( len = in.read( b ) ) > 0) {
+            out.write( b, 0, len );
+        }
+    }
+}
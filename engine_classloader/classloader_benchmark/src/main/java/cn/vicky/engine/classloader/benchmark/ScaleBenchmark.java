@@ -0,0 +1,80 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.fixture.ClasspathGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 用新的JarClassLoader读取生成的jar或class目录,并加载其中的所有类.
+ * 类的数量增加十倍时耗时也应只增加约十倍,否则说明存在随已加载条目数增长的开销
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScaleBenchmark {
+
+    @Param({ "2000", "20000" })
+    public int classes;
+
+    @Param({ "jar", "directory" })
+    public String source;
+
+    private File path;
+    private List<String> names;
+
+    @Setup
+    public void setUp() throws IOException {
+        ClasspathGenerator generator = new ClasspathGenerator();
+        generator.setPackages( Math.max( 1, classes / 500 ) );
+        generator.setClassesPerPackage( classes / generator.getPackages() );
+        generator.setChainDepth( 5 );
+        generator.setReferences( 3 );
+        names = generator.getClassNames();
+
+        if ("jar".equals( source ))
+            path = generator.writeJar( SampleJar.tempFile( ".jar" ) );
+        else
+            path = generator.writeDirectory( Files.createTempDirectory( "jcl-benchmark" ).toFile() );
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (path.isDirectory())
+            SampleJar.delete( path );
+    }
+
+    @Benchmark
+    public JarClassLoader loadAll() throws ClassNotFoundException {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( path.getAbsolutePath() );
+        for (String name : names) {
+            jcl.loadClass( name );
+        }
+        return jcl;
+    }
+}
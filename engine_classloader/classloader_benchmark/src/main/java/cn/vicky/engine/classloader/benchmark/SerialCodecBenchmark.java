@@ -0,0 +1,91 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+import cn.vicky.engine.classloader.core.utils.SerialCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 通过ObjectOutputStream/ObjectInputStream克隆Serializable的HashMap,与SerialCodec的二进制编码对比
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerialCodecBenchmark {
+
+    private static final int ENTRIES = 2000;
+
+    private Map<Integer, Entry> entries;
+
+    @Setup
+    public void setUp() {
+        entries = new HashMap<>();
+        for (int i = 0; i < ENTRIES; i++)
+            entries.put( i, new Entry( i ) );
+        for (int i = 0; i < ENTRIES; i++)
+            entries.get( i ).links.add( entries.get( ( i * 7 ) % ENTRIES ) );
+    }
+
+    @Benchmark
+    public Object objectStreams() {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream( bos )) {
+                out.writeObject( entries );
+            }
+            try (ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bos.toByteArray() ) )) {
+                return in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new JclException( e );
+        }
+    }
+
+    @Benchmark
+    public Object binaryCodec() {
+        return SerialCodec.clone( entries );
+    }
+
+    static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final String name;
+        private final long[] stamps;
+        private final List<Entry> links = new ArrayList<>();
+
+        Entry(int id) {
+            this.id = id;
+            this.name = "entry-" + id;
+            this.stamps = new long[] { id, id * 31L };
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cn.vicky.engine.classloader.benchmark;
+
+import cn.vicky.engine.classloader.core.context.JclContext;
+import cn.vicky.engine.classloader.core.context.XmlContextLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * 读取生成的jcl-context.xml: XmlContextLoader的StAX解析与之前每次编译schema并构建DOM的解析对比.
+ * 所有jcl元素都是lazy的,加载时不创建JarClassLoader
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XmlContextLoaderBenchmark {
+
+    private static final String SCHEMA = "cn/vicky/engine/classloader/core/context/jcl-context.xsd";
+
+    @Param({ "10", "5000" })
+    public int loaders;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = SampleJar.tempFile( ".xml" );
+        try (PrintWriter out = new PrintWriter( file, "UTF-8" )) {
+            out.println( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" );
+            out.println( "<jcl-context>" );
+            for (int i = 0; i < loaders; i++) {
+                out.println( "  <jcl name=\"tenant" + i + "\" lazy=\"true\">" );
+                out.println( "    <loaders>" );
+                out.println( "      <loader name=\"jcl.parent\"><order>3</order><enabled>false</enabled></loader>" );
+                out.println( "      <loader name=\"jcl.local\"><order>1</order></loader>" );
+                out.println( "    </loaders>" );
+                out.println( "    <proxyProviders default=\"jdk\"/>" );
+                out.println( "    <sources>" );
+                out.println( "      <source>plugins/tenant" + i + "/api.jar</source>" );
+                out.println( "      <source>plugins/tenant" + i + "/impl.jar</source>" );
+                out.println( "    </sources>" );
+                out.println( "  </jcl>" );
+            }
+            out.println( "</jcl-context>" );
+        }
+    }
+
+    /**
+     * 之前的解析: 每次加载都创建SchemaFactory并编译schema,然后构建完整的DOM
+     */
+    @Benchmark
+    public Document domWithSchemaPerLoad() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware( true );
+        factory.setSchema( SchemaFactory.newInstance( XMLConstants.W3C_XML_SCHEMA_NS_URI ).newSchema(
+                new StreamSource( XmlContextLoader.class.getClassLoader().getResourceAsStream( SCHEMA ) ) ) );
+        return factory.newDocumentBuilder().parse( file );
+    }
+
+    @Benchmark
+    public JclContext stax() {
+        return load( true );
+    }
+
+    @Benchmark
+    public JclContext staxWithoutValidation() {
+        return load( false );
+    }
+
+    private JclContext load(boolean validating) {
+        JclContext context = JclContext.newContext();
+        XmlContextLoader loader = new XmlContextLoader( file.getPath(), context );
+        loader.setValidating( validating );
+        loader.loadContext();
+        return context;
+    }
+}
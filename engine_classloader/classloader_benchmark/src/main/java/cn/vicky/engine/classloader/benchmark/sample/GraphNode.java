@@ -0,0 +1,66 @@
+package cn.vicky.engine.classloader.benchmark.sample;
+
+/**
+ * 克隆基准使用的图节点,包含基本类型字段、引用字段与引用数组
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class GraphNode {
+
+    private final int id;
+    private final long stamp;
+    private final double weight;
+    private final boolean flag;
+    private GraphNode next;
+    private GraphNode[] children;
+
+    public GraphNode(int id) {
+        this.id = id;
+        this.stamp = id * 31L;
+        this.weight = id / 3d;
+        this.flag = ( id & 1 ) == 0;
+    }
+
+    /**
+     * size个节点组成的环,每个节点另有两个指向环中其他节点的子节点
+     *
+     * @param size
+     * @return 环的第一个节点
+     */
+    public static GraphNode ring(int size) {
+        GraphNode[] nodes = new GraphNode[size];
+        for (int i = 0; i < size; i++)
+            nodes[i] = new GraphNode( i );
+        for (int i = 0; i < size; i++) {
+            nodes[i].next = nodes[( i + 1 ) % size];
+            nodes[i].children = new GraphNode[] { nodes[( i * 7 ) % size], nodes[( i * 13 ) % size] };
+        }
+        return nodes[0];
+    }
+
+    /**
+     * size个节点,每chain个节点通过next连成一条链,每个节点的子节点指向下标减半的节点
+     *
+     * @param size
+     * @param chain
+     * @return GraphNode[]
+     */
+    public static GraphNode[] chains(int size, int chain) {
+        GraphNode[] nodes = new GraphNode[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new GraphNode( i );
+            nodes[i].children = new GraphNode[] { nodes[i / 2] };
+        }
+        for (int i = 0; i < size - 1; i++) {
+            if (( i + 1 ) % chain != 0)
+                nodes[i].next = nodes[i + 1];
+        }
+        return nodes;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,13 @@
+package cn.vicky.engine.classloader.benchmark.sample;
+
+/**
+ * JclUtils.cast的目标接口
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public interface Greeter {
+
+    String greet(String name);
+}
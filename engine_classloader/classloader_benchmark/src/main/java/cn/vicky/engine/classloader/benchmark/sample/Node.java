@@ -0,0 +1,50 @@
+package cn.vicky.engine.classloader.benchmark.sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ObjectCloner基准使用的对象图
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class Node {
+
+    private final int id;
+    private final String name;
+    private final long[] stamps;
+    private final List<Node> children = new ArrayList<>();
+
+    public Node(int id) {
+        this.id = id;
+        this.name = "node-" + id;
+        this.stamps = new long[] { id, id * 31L };
+    }
+
+    /**
+     * @param size 节点数量
+     * @param fanOut 每个节点的子节点数量
+     * @return 树的根节点
+     */
+    public static Node tree(int size, int fanOut) {
+        List<Node> nodes = new ArrayList<>( size );
+        Node root = new Node( 0 );
+        nodes.add( root );
+        for (int i = 1; i < size; i++) {
+            Node node = new Node( i );
+            nodes.get( ( i - 1 ) / fanOut ).children.add( node );
+            nodes.add( node );
+        }
+        return root;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<Node> getChildren() {
+        return children;
+    }
+}
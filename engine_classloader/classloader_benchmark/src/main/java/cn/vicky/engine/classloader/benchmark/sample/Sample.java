@@ -0,0 +1,30 @@
+package cn.vicky.engine.classloader.benchmark.sample;
+
+/**
+ * 被打包进SampleJar,由JarClassLoader加载的类
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class Sample implements Greeter {
+
+    private final String greeting;
+
+    public Sample() {
+        this( "Hello" );
+    }
+
+    public Sample(String greeting) {
+        this.greeting = greeting;
+    }
+
+    public static Sample newInstance() {
+        return new Sample();
+    }
+
+    @Override
+    public String greet(String name) {
+        return greeting + ", " + name;
+    }
+}
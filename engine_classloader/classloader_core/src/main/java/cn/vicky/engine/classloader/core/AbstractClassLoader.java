@@ -2,12 +2,16 @@ package cn.vicky.engine.classloader.core;
 
 import cn.vicky.engine.classloader.core.exception.JclException;
 import cn.vicky.engine.classloader.core.exception.ResourceNotFoundException;
+import cn.vicky.engine.classloader.core.monitor.JclEvents;
+import cn.vicky.engine.classloader.core.monitor.LoaderStatistics;
+import cn.vicky.engine.classloader.core.trace.TraceEvent;
+import cn.vicky.engine.classloader.core.trace.TraceRecorder;
 import cn.vicky.engine.classloader.core.utils.Utils;
 
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,7 +27,13 @@ import java.util.regex.Pattern;
 @SuppressWarnings("unchecked")
 public abstract class AbstractClassLoader extends ClassLoader {
 
-    protected final List<ProxyClassLoader> loaders = new ArrayList<>();
+    protected final List<ProxyClassLoader> loaders = new LoaderList();
+
+    // 按order排序的loaders快照,查找时只遍历快照.loaders或任一代理的order变更后重建.
+    // 注意: 修改次数取自ArrayList.modCount,它不是volatile,并在锁外读取,没有任何顺序保证.
+    // 不经addLoader直接修改loaders时,其他线程可能在一段时间内仍使用旧快照;
+    // addLoader在锁内清空快照(volatile写),保证之后的查找一定看到新加入的代理
+    private volatile SortedLoaders sortedLoaders;
 
     private final ProxyClassLoader systemLoader = new SystemLoader();
     private final ProxyClassLoader parentLoader = new ParentLoader();
@@ -31,6 +41,10 @@ public abstract class AbstractClassLoader extends ClassLoader {
     private final ProxyClassLoader threadLoader = new ThreadContextLoader();
     private final ProxyClassLoader osgiBootLoader = new OsgiBootLoader();
 
+    protected final LoaderStatistics statistics = new LoaderStatistics();
+
+    private volatile TraceRecorder traceRecorder;
+
     /**
      * 构建一个新的AbstractClassLoader实例
      *
@@ -57,7 +71,29 @@ public abstract class AbstractClassLoader extends ClassLoader {
     }
 
     public void addLoader(ProxyClassLoader loader) {
-        loaders.add(loader);
+        synchronized (loaders) {
+            loaders.add(loader);
+            sortedLoaders = null;
+        }
+    }
+
+    /**
+     * 返回按order排序的代理,只在loaders或order变更后重新排序
+     */
+    private ProxyClassLoader[] sortedLoaders() {
+        SortedLoaders s = sortedLoaders;
+        int orderChanges = ProxyClassLoader.getOrderChanges();
+        if (s == null || s.orderChanges != orderChanges || s.modifications != ((LoaderList) loaders).modifications()) {
+            synchronized (loaders) {
+                int modifications = ((LoaderList) loaders).modifications();
+                ProxyClassLoader[] sorted = loaders.toArray(new ProxyClassLoader[loaders.size()]);
+                // 稳定排序,order相同时保持加入的顺序
+                Arrays.sort(sorted);
+                s = new SortedLoaders(sorted, orderChanges, modifications);
+                sortedLoaders = s;
+            }
+        }
+        return s.loaders;
     }
 
     /*
@@ -81,24 +117,43 @@ public abstract class AbstractClassLoader extends ClassLoader {
      */
     @Override
     public Class loadClass(String className, boolean resolveIt) throws ClassNotFoundException {
+        TraceRecorder recorder = traceRecorder;
+        if (recorder == null) {
+            return doLoadClass(className, resolveIt);
+        }
+
+        long start = recorder.enter();
+        Class clazz = null;
+        try {
+            clazz = doLoadClass(className, resolveIt);
+            return clazz;
+        } finally {
+            recorder.exit(TraceEvent.Type.LOAD_CLASS, className, start, clazz != null);
+        }
+    }
+
+    private Class doLoadClass(String className, boolean resolveIt) throws ClassNotFoundException {
         if (className == null || className.trim().equals("")) {
             return null;
         }
 
-        Collections.sort(loaders);
+        Object event = JclEvents.beginLoadClass();
 
         Class clazz = null;
+        ProxyClassLoader delegate = null;
 
         // Check osgi boot delegation
         if (osgiBootLoader.isEnabled()) {
-            clazz = osgiBootLoader.loadClass(className, resolveIt);
+            clazz = loadClass(osgiBootLoader, className, resolveIt);
+            delegate = osgiBootLoader;
         }
 
         if (clazz == null) {
-            for (ProxyClassLoader l : loaders) {
+            for (ProxyClassLoader l : sortedLoaders()) {
                 if (l.isEnabled()) {
-                    clazz = l.loadClass(className, resolveIt);
+                    clazz = loadClass(l, className, resolveIt);
                     if (clazz != null) {
+                        delegate = l;
                         break;
                     }
                 }
@@ -106,9 +161,28 @@ public abstract class AbstractClassLoader extends ClassLoader {
         }
 
         if (clazz == null) {
+            if (LoaderStatistics.ENABLED) {
+                statistics.negativeLookup();
+            }
+            JclEvents.commitLoadClass(event, this, className, null);
             throw new ClassNotFoundException(className);
         }
 
+        JclEvents.commitLoadClass(event, this, className, delegate);
+        return clazz;
+    }
+
+    /**
+     * 通过一个代理加载类,并记录查找统计
+     */
+    private Class loadClass(ProxyClassLoader l, String className, boolean resolveIt) {
+        if (!LoaderStatistics.ENABLED) {
+            return l.loadClass(className, resolveIt);
+        }
+
+        long start = System.nanoTime();
+        Class clazz = l.loadClass(className, resolveIt);
+        l.getStatistics().record(clazz != null, System.nanoTime() - start);
         return clazz;
     }
 
@@ -121,12 +195,26 @@ public abstract class AbstractClassLoader extends ClassLoader {
      */
     @Override
     public URL getResource(String name) {
+        TraceRecorder recorder = traceRecorder;
+        if (recorder == null) {
+            return doGetResource(name);
+        }
+
+        long start = recorder.enter();
+        URL url = null;
+        try {
+            url = doGetResource(name);
+            return url;
+        } finally {
+            recorder.exit(TraceEvent.Type.GET_RESOURCE, name, start, url != null);
+        }
+    }
+
+    private URL doGetResource(String name) {
         if (name == null || name.trim().equals("")) {
             return null;
         }
 
-        Collections.sort(loaders);
-
         URL url = null;
 
         // Check osgi boot delegation
@@ -135,7 +223,7 @@ public abstract class AbstractClassLoader extends ClassLoader {
         }
 
         if (url == null) {
-            for (ProxyClassLoader l : loaders) {
+            for (ProxyClassLoader l : sortedLoaders()) {
                 if (l.isEnabled()) {
                     url = l.findResource(name);
                     if (url != null) {
@@ -158,12 +246,26 @@ public abstract class AbstractClassLoader extends ClassLoader {
      */
     @Override
     public InputStream getResourceAsStream(String name) {
+        TraceRecorder recorder = traceRecorder;
+        if (recorder == null) {
+            return doGetResourceAsStream(name);
+        }
+
+        long start = recorder.enter();
+        InputStream is = null;
+        try {
+            is = doGetResourceAsStream(name);
+            return is;
+        } finally {
+            recorder.exit(TraceEvent.Type.GET_RESOURCE_AS_STREAM, name, start, is != null);
+        }
+    }
+
+    private InputStream doGetResourceAsStream(String name) {
         if (name == null || name.trim().equals("")) {
             return null;
         }
 
-        Collections.sort(loaders);
-
         InputStream is = null;
 
         // Check osgi boot delegation
@@ -172,7 +274,7 @@ public abstract class AbstractClassLoader extends ClassLoader {
         }
 
         if (is == null) {
-            for (ProxyClassLoader l : loaders) {
+            for (ProxyClassLoader l : sortedLoaders()) {
                 if (l.isEnabled()) {
                     is = l.loadResource(name);
                     if (is != null) {
@@ -547,6 +649,33 @@ public abstract class AbstractClassLoader extends ClassLoader {
         }
     }
 
+    /**
+     * @param traceRecorder 记录本加载器调用的TraceRecorder,null时停止记录
+     */
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    /**
+     * @return 本加载器的统计
+     */
+    public LoaderStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return 所有代理,包括OSGi boot delegation
+     */
+    public List<ProxyClassLoader> getLoaders() {
+        List<ProxyClassLoader> all = new ArrayList<>(Arrays.asList(sortedLoaders()));
+        all.add(0, osgiBootLoader);
+        return all;
+    }
+
     public ProxyClassLoader getSystemLoader() {
         return systemLoader;
     }
@@ -566,4 +695,33 @@ public abstract class AbstractClassLoader extends ClassLoader {
     public ProxyClassLoader getOsgiBootLoader() {
         return osgiBootLoader;
     }
+
+    /**
+     * 记录修改次数的代理列表,修改后重新排序.modifications()在锁外读取,结果可能过期
+     */
+    private static final class LoaderList extends ArrayList<ProxyClassLoader> {
+        private static final long serialVersionUID = 1L;
+
+        int modifications() {
+            return modCount;
+        }
+
+        @Override
+        public ProxyClassLoader set(int index, ProxyClassLoader element) {
+            modCount++;
+            return super.set(index, element);
+        }
+    }
+
+    private static final class SortedLoaders {
+        private final ProxyClassLoader[] loaders;
+        private final int orderChanges;
+        private final int modifications;
+
+        private SortedLoaders(ProxyClassLoader[] loaders, int orderChanges, int modifications) {
+            this.loaders = loaders;
+            this.orderChanges = orderChanges;
+            this.modifications = modifications;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package cn.vicky.engine.classloader.core;
+
+import cn.vicky.engine.classloader.core.proxy.JdkProxyProvider;
+import cn.vicky.engine.classloader.core.proxy.ProxyFactory;
+import cn.vicky.engine.classloader.core.proxy.ProxyProvider;
+import cn.vicky.engine.classloader.core.proxy.ProxyProviderFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 某个(对象类型, 目标类型)的转换计划,由JclUtils缓存在对象类型上.
+ * 计划不引用目标类型,由调用者传入,目标类型所在的ClassLoader不会因为缓存而无法回收.
+ * 代理由ProxyProviderFactory为对象所在的ClassLoader与目标类型选择的ProxyProvider创建,
+ * 选择结果与准备好的代理工厂按定义代理类的ClassLoader缓存,代理配置变更后重新准备
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class CastPlan {
+
+    private final CastStrategy strategy;
+    private final ClassLoader scope;
+    // 目标接口方法签名 -> 对象类型上的同名方法,仅DIRECT_PROXY使用
+    private final Map<String, Method> methods;
+    // cl为null时的代理工厂.目标类型此时对JclUtils的ClassLoader可见,引用它不会延长其生命周期
+    private volatile Prepared prepared;
+    // 指定cl时的代理工厂,只缓存对象类型自身及其父ClassLoader: 计划挂在对象类型上,本来就使它们可达,
+    // 强引用不会延长它们的生命周期.其他cl每次重新准备,代理类仍由ProxyProvider缓存
+    private final ConcurrentMap<ClassLoader, Prepared> preparedByLoader;
+
+    private CastPlan(CastStrategy strategy, Class type, Map<String, Method> methods) {
+        this.strategy = strategy;
+        this.scope = type.getClassLoader();
+        this.methods = methods;
+        this.preparedByLoader = strategy == CastStrategy.IDENTITY ? null : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 分析对象类型与目标类型,决定转换方式
+     *
+     * @param type
+     * @param target
+     * @return CastPlan
+     */
+    static CastPlan analyze(Class type, Class target) {
+        if (target.isAssignableFrom( type )) {
+            return new CastPlan( CastStrategy.IDENTITY, type, null );
+        }
+
+        if (!target.isInterface()) {
+            return new CastPlan( CastStrategy.REFLECTIVE_PROXY, type, null );
+        }
+
+        Map<String, Method> methods = new HashMap<>();
+        for (Method m : target.getMethods()) {
+            try {
+                Method dm = type.getMethod( m.getName(), m.getParameterTypes() );
+                try {
+                    dm.setAccessible( true );
+                } catch (RuntimeException e) {
+                    // Not accessible, invoke as a public method
+                }
+                methods.put( signature( m ), dm );
+            } catch (NoSuchMethodException e) {
+                return new CastPlan( CastStrategy.REFLECTIVE_PROXY, type, null );
+            }
+        }
+
+        return new CastPlan( CastStrategy.DIRECT_PROXY, type, methods );
+    }
+
+    CastStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * 按转换计划转换对象
+     *
+     * @param object
+     * @param target 分析计划时的目标类型
+     * @param cl
+     * @return castable
+     */
+    Object cast(Object object, Class target, ClassLoader cl) {
+        if (strategy == CastStrategy.IDENTITY) {
+            return object;
+        }
+
+        return proxyFactory( target, cl ).newProxy( object );
+    }
+
+    private ProxyFactory proxyFactory(Class target, ClassLoader cl) {
+        int generation = ProxyProviderFactory.getGeneration();
+
+        if (cl == null) {
+            Prepared p = prepared;
+            if (p == null || p.generation != generation) {
+                p = prepare( target, null, generation );
+                prepared = p;
+            }
+            return p.factory;
+        }
+
+        Prepared p = preparedByLoader.get( cl );
+        if (p == null || p.generation != generation) {
+            p = prepare( target, cl, generation );
+            if (isScopeOrParent( cl ))
+                preparedByLoader.put( cl, p );
+        }
+        return p.factory;
+    }
+
+    private boolean isScopeOrParent(ClassLoader cl) {
+        for (ClassLoader l = scope; l != null; l = l.getParent()) {
+            if (l == cl)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 准备代理工厂.选中默认的JDK代理且方法可以直接匹配时使用预先解析的方法表
+     */
+    private Prepared prepare(Class target, ClassLoader cl, int generation) {
+        final Class[] interfaces = new Class[] { target };
+        ProxyProvider provider = ProxyProviderFactory.create( scope, interfaces );
+
+        if (strategy == CastStrategy.DIRECT_PROXY && provider.getClass() == JdkProxyProvider.class) {
+            final Map<Method, Method> handlerMethods = new HashMap<>();
+            for (Method m : target.getMethods()) {
+                handlerMethods.put( m, methods.get( signature( m ) ) );
+            }
+
+            // Proxy在ClassLoader内部缓存代理类
+            final ClassLoader loader = cl == null ? JclUtils.class.getClassLoader() : cl;
+            return new Prepared( generation, (object) -> Proxy.newProxyInstance( loader, interfaces,
+                    new DirectProxyHandler( object, handlerMethods ) ) );
+        }
+
+        return new Prepared( generation, provider.prepare( target, interfaces, cl ) );
+    }
+
+    /**
+     * 方法名与参数类型名,匹配的方法参数类型相同,因此对象类型与目标类型上的方法签名一致
+     */
+    private static String signature(Method m) {
+        StringBuilder sb = new StringBuilder( m.getName() ).append( '(' );
+        for (Class p : m.getParameterTypes()) {
+            sb.append( p.getName() ).append( ';' );
+        }
+        return sb.append( ')' ).toString();
+    }
+
+    private static final class Prepared {
+        private final int generation;
+        private final ProxyFactory factory;
+
+        private Prepared(int generation, ProxyFactory factory) {
+            this.generation = generation;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * 使用预先解析的方法表转发调用
+     */
+    private static final class DirectProxyHandler implements InvocationHandler {
+
+        private final Object delegate;
+        private final Map<Method, Method> methods;
+
+        private DirectProxyHandler(Object delegate, Map<Method, Method> methods) {
+            this.delegate = delegate;
+            this.methods = methods;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Method dm = methods.get( method );
+            try {
+                // hashCode/equals/toString are declared on Object and apply to the delegate as-is
+                return ( dm != null ? dm : method ).invoke( delegate, args );
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cn.vicky.engine.classloader.core;
+
+/**
+ * JclUtils.cast 对某个(对象类型, 目标类型)采用的转换方式
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public enum CastStrategy {
+    /**
+     * 对象本身已经实现了调用方可见的目标类型,直接返回对象
+     */
+    IDENTITY,
+    /**
+     * 目标接口的所有方法都能在对象类型上找到,预先解析方法表后生成代理
+     */
+    DIRECT_PROXY,
+    /**
+     * 交给ProxyProvider创建代理,每次调用时按名称反射查找方法
+     */
+    REFLECTIVE_PROXY;
+}
@@ -0,0 +1,120 @@
+package cn.vicky.engine.classloader.core;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 从class文件的常量池中读取被引用的类名(内部名称,如java/lang/String).
+ * 包括Class常量以及字段,方法描述符和签名中的类,结果可能多于实际引用,用于保守地计算依赖
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class ClassReferences {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private ClassReferences() {
+    }
+
+    /**
+     * @param classBytes
+     * @return 被引用的类的内部名称
+     */
+    static Set<String> of(byte[] classBytes) {
+        try {
+            return read( new DataInputStream( new ByteArrayInputStream( classBytes ) ) );
+        } catch (IOException e) {
+            throw new JclException( e );
+        }
+    }
+
+    private static Set<String> read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new JclException( "Not a class file" );
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNames = new int[count];
+        int classes = 0;
+
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNames[classes++] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes( 2 );
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes( 3 );
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes( 4 );
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes( 8 );
+                    i++;
+                    break;
+                default:
+                    throw new JclException( "Unknown constant pool tag " + tag );
+            }
+        }
+
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < classes; i++) {
+            String name = utf8[classNames[i]];
+            if (name.charAt( 0 ) == '[')
+                addDescriptor( name, names );
+            else
+                names.add( name );
+        }
+
+        // 描述符与签名,字符串常量中的误匹配不会影响正确性
+        for (String s : utf8) {
+            if (s != null && s.indexOf( ';' ) > 0)
+                addDescriptor( s, names );
+        }
+
+        return names;
+    }
+
+    private static void addDescriptor(String s, Set<String> names) {
+        int i = s.indexOf( 'L' );
+        while (i >= 0) {
+            int end = i + 1;
+            while (end < s.length() && s.charAt( end ) != ';' && s.charAt( end ) != '<')
+                end++;
+
+            if (end == s.length())
+                return;
+            if (end > i + 1)
+                names.add( s.substring( i + 1, end ) );
+
+            i = s.indexOf( 'L', end );
+        }
+    }
+}
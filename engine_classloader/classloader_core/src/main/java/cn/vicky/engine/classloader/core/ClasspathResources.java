@@ -10,6 +10,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +27,11 @@ public class ClasspathResources extends JarResources {
     private static final Logger logger = Logger.getLogger(ClasspathResources.class.getName());
     private boolean ignoreMissingResources;
 
+    // 从本地加载的文件与目录,按加载顺序
+    private final List<File> localSources = new CopyOnWriteArrayList<>();
+    private final List<ResourceChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private ResourceWatcher watcher;
+
     public ClasspathResources() {
         super();
         ignoreMissingResources = Configuration.suppressMissingResourceException();
@@ -201,7 +209,9 @@ public class ClasspathResources extends JarResources {
     public void loadResource(URL url) {
         try {
             // Is Local
-            loadResource(new File(url.toURI()), "");
+            File file = new File(url.toURI());
+            loadResource(file, "");
+            localSources.add(file.getAbsoluteFile());
         } catch (IllegalArgumentException iae) {
             // Is Remote
             loadRemoteResource(url);
@@ -227,6 +237,10 @@ public class ClasspathResources extends JarResources {
         }
 
         loadResource(fp, "");
+
+        if (fp.exists()) {
+            localSources.add(fp.getAbsoluteFile());
+        }
     }
 
     /**
@@ -286,6 +300,83 @@ public class ClasspathResources extends JarResources {
         }
     }
 
+    @Override
+    void addResources(JarResources other) {
+        super.addResources(other);
+
+        if (other instanceof ClasspathResources) {
+            localSources.addAll(((ClasspathResources) other).localSources);
+        }
+    }
+
+    /**
+     * 在后台线程中监视从本地加载的目录与jar文件,有变化时只重新读取变化的条目,并通知ResourceChangeListener.
+     * 已经定义的类不会改变,需要重新加载才能使用新的class
+     */
+    public synchronized void watch() {
+        if (watcher != null) {
+            throw new JclException("Resources are already watched");
+        }
+
+        try {
+            watcher = new ResourceWatcher(this, localSources);
+        } catch (IOException e) {
+            throw new JclException(e);
+        }
+        watcher.start();
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    public synchronized boolean isWatching() {
+        return watcher != null;
+    }
+
+    /**
+     * 立即检查被监视的目录与jar文件,不等待文件系统的通知
+     */
+    public void refresh() {
+        ResourceWatcher w;
+        synchronized (this) {
+            w = watcher;
+        }
+
+        if (w == null) {
+            throw new JclException("Resources are not watched");
+        }
+        w.refreshAll();
+    }
+
+    public void addChangeListener(ResourceChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ResourceChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void fireResourcesChanged(ResourceChangeEvent event) {
+        for (ResourceChangeListener l : listeners) {
+            try {
+                l.resourcesChanged(event);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "ResourceChangeListener failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return 从本地加载的文件与目录
+     */
+    public List<File> getLocalSources() {
+        return Collections.unmodifiableList(localSources);
+    }
+
     public boolean isCollisionAllowed() {
         return collisionAllowed;
     }
@@ -12,6 +12,11 @@ public class Configuration {
     private static final String JCL_SUPPRESS_COLLISION_EXCEPTION = "jcl.suppressCollisionException";
     private static final String JCL_SUPPRESS_MISSING_RESOURCE_EXCEPTION = "jcl.suppressMissingResourceException";
     private static final String AUTO_PROXY = "jcl.autoProxy";
+    private static final String LEAK_DETECTION = "jcl.leakDetection";
+    private static final String LEAK_DETECTION_GC_COUNT = "jcl.leakDetection.gcCount";
+    private static final String STATISTICS = "jcl.statistics";
+    private static final String JMX = "jcl.jmx";
+    private static final String JFR = "jcl.jfr";
 
     /**
      * OSGi boot delegation
@@ -44,6 +49,55 @@ public class Configuration {
         return Boolean.parseBoolean(System.getProperty(AUTO_PROXY));
     }
 
+    public static boolean isStatisticsEnabled() {
+        if (System.getProperty(STATISTICS) == null) {
+            return true;
+        }
+
+        return Boolean.parseBoolean(System.getProperty(STATISTICS));
+    }
+
+    /**
+     * @return 是否为JclContext中的JarClassLoader注册MBean
+     */
+    public static boolean isJmxEnabled() {
+        if (System.getProperty(JMX) == null) {
+            return true;
+        }
+
+        return Boolean.parseBoolean(System.getProperty(JMX));
+    }
+
+    /**
+     * @return 是否发出JFR事件,JFR不可用时忽略
+     */
+    public static boolean isJfrEnabled() {
+        if (System.getProperty(JFR) == null) {
+            return true;
+        }
+
+        return Boolean.parseBoolean(System.getProperty(JFR));
+    }
+
+    public static boolean isLeakDetectionEnabled() {
+        if (System.getProperty(LEAK_DETECTION) == null) {
+            return true;
+        }
+
+        return Boolean.parseBoolean(System.getProperty(LEAK_DETECTION));
+    }
+
+    /**
+     * @return 释放后经过多少次GC仍未被回收的JarClassLoader被视为泄漏
+     */
+    public static int getLeakDetectionGcCount() {
+        if (System.getProperty(LEAK_DETECTION_GC_COUNT) == null) {
+            return 3;
+        }
+
+        return Integer.parseInt(System.getProperty(LEAK_DETECTION_GC_COUNT));
+    }
+
     @SuppressWarnings("unchecked")
     public static boolean isLoaderEnabled(Class cls) {
         if (System.getProperty(cls.getName()) == null) {
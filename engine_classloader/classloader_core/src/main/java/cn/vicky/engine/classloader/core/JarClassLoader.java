@@ -2,14 +2,27 @@ package cn.vicky.engine.classloader.core;
 
 import cn.vicky.engine.classloader.core.exception.JclException;
 import cn.vicky.engine.classloader.core.exception.ResourceNotFoundException;
+import cn.vicky.engine.classloader.core.monitor.JclEvents;
+import cn.vicky.engine.classloader.core.monitor.LoaderStatistics;
+import cn.vicky.engine.classloader.core.proxy.ProxyProvider;
+import cn.vicky.engine.classloader.core.proxy.ProxyProviderFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,6 +44,20 @@ public class JarClassLoader extends AbstractClassLoader {
     private char classNameReplacementChar;
     private final ProxyClassLoader localLoader = new LocalLoader();
 
+    /**
+     * 本加载器中对象使用的代理供应器,为null时使用ProxyProviderFactory的默认值
+     */
+    private volatile ProxyProvider proxyProvider;
+    private final Map<String, ProxyProvider> interfaceProxyProviders = new ConcurrentHashMap<>();
+
+    /**
+     * 分层模式下长期保留的稳定层,以及由它加载的class资源名称
+     */
+    private volatile JarClassLoader stableLayer;
+    private volatile Set<String> stableClasses = Collections.emptySet();
+    // class资源 -> 它引用的class资源,下一次分层时内容没有变化的class不需要再次解析
+    private Map<String, Set<String>> classReferences;
+
     private static final Logger logger = Logger.getLogger( JarClassLoader.class.getName() );
 
     public JarClassLoader() {
@@ -88,6 +115,54 @@ public class JarClassLoader extends AbstractClassLoader {
         });
     }
 
+    /**
+     * 在pool中并行读取jar或/class资源,再按sources的顺序加入本加载器,
+     * 因此资源冲突时的结果与依次调用add相同
+     * 
+     * @param sources
+     * @param pool
+     */
+    public final void addAll(List sources, ForkJoinPool pool) {
+        List<ForkJoinTask<ClasspathResources>> tasks = new ArrayList<>( sources.size() );
+        for (Object source : sources) {
+            tasks.add( ForkJoinTask.adapt( () -> {
+                long start = System.nanoTime();
+                ClasspathResources resources = readResources( source );
+                ingested( start );
+                return resources;
+            } ) );
+        }
+
+        if (ForkJoinTask.inForkJoinPool())
+            ForkJoinTask.invokeAll( tasks );
+        else
+            pool.invoke( ForkJoinTask.adapt( () -> ForkJoinTask.invokeAll( tasks ) ) );
+
+        for (ForkJoinTask<ClasspathResources> task : tasks) {
+            classpathResources.addResources( task.join() );
+        }
+    }
+
+    /**
+     * 把source读取到一个独立的ClasspathResources中
+     */
+    private ClasspathResources readResources(Object source) {
+        ClasspathResources resources = new ClasspathResources();
+        resources.setCollisionAllowed( classpathResources.isCollisionAllowed() );
+        resources.setIgnoreMissingResources( classpathResources.isIgnoreMissingResources() );
+
+        if (source instanceof InputStream)
+            resources.loadJar( (InputStream) source );
+        else if (source instanceof URL)
+            resources.loadResource( (URL) source );
+        else if (source instanceof String)
+            resources.loadResource( (String) source );
+        else
+            throw new JclException( "Unknown Resource type" );
+
+        return resources;
+    }
+
     /**
      * 加载本地或远程资源
      * 
@@ -111,7 +186,9 @@ public class JarClassLoader extends AbstractClassLoader {
      * @param resourceName
      */
     public void add(String resourceName) {
+        long start = System.nanoTime();
         classpathResources.loadResource( resourceName );
+        ingested( start );
     }
 
     /**
@@ -120,7 +197,9 @@ public class JarClassLoader extends AbstractClassLoader {
      * @param jarStream
      */
     public void add(InputStream jarStream) {
+        long start = System.nanoTime();
         classpathResources.loadJar( jarStream );
+        ingested( start );
     }
 
     /**
@@ -129,7 +208,14 @@ public class JarClassLoader extends AbstractClassLoader {
      * @param url
      */
     public void add(URL url) {
+        long start = System.nanoTime();
         classpathResources.loadResource( url );
+        ingested( start );
+    }
+
+    private void ingested(long start) {
+        if (LoaderStatistics.ENABLED)
+            statistics.getIngest().record( System.nanoTime() - start );
     }
 
     /**
@@ -173,6 +259,128 @@ public class JarClassLoader extends AbstractClassLoader {
         }
     }
 
+    /**
+     * 分层模式: 与previous相比内容没有变化,并且不直接或间接引用变化的类的class,
+     * 继续由长期保留的稳定层加载,已经编译的代码因此不会失效;只有变化的class及其依赖者由本加载器重新定义.
+     * 必须在本加载器加载任何类之前,加入所有资源之后调用.
+     * 通过字符串(如Class.forName)引用的类不计入依赖,稳定层中的类通过这种方式看到的是稳定层的版本
+     *
+     * @param previous 上一代加载器
+     */
+    public void layerOver(JarClassLoader previous) {
+        if (!classes.isEmpty())
+            throw new JclException( "Classes are already loaded by this JarClassLoader" );
+
+        JarClassLoader stable = previous.stableLayer;
+        Set<String> candidates = previous.stableClasses;
+        if (stable == null) {
+            stable = previous;
+            candidates = classNames( previous.classpathResources.getResources().keySet() );
+        }
+
+        Map<String, byte[]> oldEntries = previous.classpathResources.getResources();
+        Map<String, byte[]> newEntries = classpathResources.getResources();
+
+        // 内容有变化,新增或删除的class
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, byte[]> e : newEntries.entrySet()) {
+            if (isClass( e.getKey() ) && !Arrays.equals( e.getValue(), oldEntries.get( e.getKey() ) ))
+                changed.add( e.getKey() );
+        }
+        for (String name : oldEntries.keySet()) {
+            if (isClass( name ) && !newEntries.containsKey( name ))
+                changed.add( name );
+        }
+
+        Map<String, Set<String>> references = references( newEntries, changed, previous.classReferences );
+        Set<String> affected = dependents( changed, references );
+
+        Set<String> kept = new HashSet<>();
+        for (String name : candidates) {
+            if (newEntries.containsKey( name ) && !affected.contains( name ))
+                kept.add( name );
+        }
+
+        stableLayer = stable;
+        stableClasses = kept;
+        classReferences = references;
+
+        if (logger.isLoggable( Level.FINE ))
+            logger.log( Level.FINE, "Layered reload: {0} classes changed, {1} affected, {2} kept in the stable layer",
+                    new Object[]{changed.size(), affected.size(), kept.size()} );
+    }
+
+    /**
+     * newEntries中每个class引用的class,没有变化的class沿用上一代的解析结果
+     */
+    private static Map<String, Set<String>> references(Map<String, byte[]> newEntries, Set<String> changed,
+            Map<String, Set<String>> previous) {
+        Map<String, Set<String>> references = new HashMap<>();
+        for (Map.Entry<String, byte[]> e : newEntries.entrySet()) {
+            if (!isClass( e.getKey() ))
+                continue;
+
+            Set<String> refs = previous == null || changed.contains( e.getKey() ) ? null : previous.get( e.getKey() );
+            if (refs == null) {
+                refs = new HashSet<>();
+                for (String ref : ClassReferences.of( e.getValue() ))
+                    refs.add( ref + ".class" );
+            }
+            references.put( e.getKey(), refs );
+        }
+        return references;
+    }
+
+    /**
+     * changed以及直接或间接引用它们的class
+     */
+    private static Set<String> dependents(Set<String> changed, Map<String, Set<String>> references) {
+        if (changed.isEmpty())
+            return changed;
+
+        // 被引用的class -> 引用它的class
+        Map<String, List<String>> referrers = new HashMap<>();
+        for (Map.Entry<String, Set<String>> e : references.entrySet()) {
+            for (String ref : e.getValue()) {
+                if (!ref.equals( e.getKey() ) && ( references.containsKey( ref ) || changed.contains( ref ) ))
+                    referrers.computeIfAbsent( ref, k -> new ArrayList<>() ).add( e.getKey() );
+            }
+        }
+
+        Set<String> affected = new HashSet<>( changed );
+        Deque<String> pending = new ArrayDeque<>( changed );
+        while (!pending.isEmpty()) {
+            List<String> r = referrers.get( pending.poll() );
+            if (r != null) {
+                for (String name : r) {
+                    if (affected.add( name ))
+                        pending.add( name );
+                }
+            }
+        }
+        return affected;
+    }
+
+    private static Set<String> classNames(Set<String> entries) {
+        Set<String> names = new HashSet<>();
+        for (String name : entries) {
+            if (isClass( name ))
+                names.add( name );
+        }
+        return names;
+    }
+
+    private static boolean isClass(String entry) {
+        return entry.endsWith( ".class" );
+    }
+
+    /**
+     * @return 分层模式下的稳定层,非分层模式时为null
+     */
+    public JarClassLoader getStableLayer() {
+        return stableLayer;
+    }
+
     /**
      * 格式化类的名称
      * 
@@ -219,12 +427,26 @@ public class JarClassLoader extends AbstractClassLoader {
                 return result;
             }
 
+            JarClassLoader stable = stableLayer;
+            if (stable != null && stableClasses.contains( formatClassName( className ) )) {
+                result = stable.localLoader.loadClass( className, resolveIt );
+                if (result != null) {
+                    classes.put( className, result );
+                    return result;
+                }
+            }
+
             classBytes = loadClassBytes( className );
             if (classBytes == null) {
                 return null;
             }
 
+            Object event = JclEvents.beginDefineClass();
+            long start = LoaderStatistics.ENABLED ? System.nanoTime() : 0;
             result = defineClass( className, classBytes, 0, classBytes.length );
+            if (LoaderStatistics.ENABLED)
+                statistics.getDefine().record( System.nanoTime() - start );
+            JclEvents.commitDefineClass( event, JarClassLoader.this, className, classBytes.length );
 
             if (result == null) {
                 return null;
@@ -283,6 +505,55 @@ public class JarClassLoader extends AbstractClassLoader {
         this.classNameReplacementChar = classNameReplacementChar;
     }
 
+    /**
+     * 设置本加载器中对象默认使用的代理供应器
+     * 
+     * @param proxyProvider
+     */
+    public void setProxyProvider(ProxyProvider proxyProvider) {
+        this.proxyProvider = proxyProvider;
+        ProxyProviderFactory.invalidate();
+    }
+
+    /**
+     * 设置代理指定接口时使用的代理供应器,优先于本加载器的默认值
+     * 
+     * @param interfaceName
+     * @param proxyProvider
+     */
+    public void setProxyProvider(String interfaceName, ProxyProvider proxyProvider) {
+        if (proxyProvider == null)
+            interfaceProxyProviders.remove( interfaceName );
+        else
+            interfaceProxyProviders.put( interfaceName, proxyProvider );
+        ProxyProviderFactory.invalidate();
+    }
+
+    /**
+     * 返回代理指定接口时配置的代理供应器,第一个有配置的接口优先,未配置时返回null
+     * 
+     * @param interfaces
+     * @return ProxyProvider
+     */
+    public ProxyProvider getProxyProvider(Class[] interfaces) {
+        if (interfaces != null && !interfaceProxyProviders.isEmpty()) {
+            for (Class i : interfaces) {
+                ProxyProvider p = interfaceProxyProviders.get( i.getName() );
+                if (p != null)
+                    return p;
+            }
+        }
+
+        return proxyProvider;
+    }
+
+    /**
+     * @return 本加载器的资源,可以用来监视本地资源的变化
+     */
+    public ClasspathResources getClasspathResources() {
+        return classpathResources;
+    }
+
     /**
      * 返回所有已经加载的类和资源
      * 
@@ -1,6 +1,7 @@
 package cn.vicky.engine.classloader.core;
 
 import cn.vicky.engine.classloader.core.exception.JclException;
+import cn.vicky.engine.classloader.core.monitor.JclEvents;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
@@ -12,8 +13,8 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.logging.Level;
@@ -29,7 +30,7 @@ public class JarResources {
 
     // 地址
     protected String baseUrl;
-    // jar实体保存
+    // jar实体保存,被监视时在后台线程中刷新
     protected Map<String, byte[]> jarEntryContents;
     protected boolean collisionAllowed;
 
@@ -39,7 +40,7 @@ public class JarResources {
      * 默认构造函数
      */
     public JarResources() {
-        jarEntryContents = new HashMap<>();
+        jarEntryContents = new ConcurrentHashMap<>();
         collisionAllowed = Configuration.suppressCollisionException();
     }
 
@@ -83,6 +84,29 @@ public class JarResources {
         return Collections.unmodifiableMap( jarEntryContents );
     }
 
+    /**
+     * 按顺序加入另一个JarResources读取的资源,资源冲突的处理与直接加载相同
+     * 
+     * @param other
+     */
+    void addResources(JarResources other) {
+        for (Map.Entry<String, byte[]> e : other.jarEntryContents.entrySet()) {
+            if (jarEntryContents.containsKey( e.getKey() )) {
+                if (!collisionAllowed)
+                    throw new JclException( "Class/Resource " + e.getKey() + " already loaded" );
+
+                if (logger.isLoggable( Level.FINEST ))
+                    logger.log( Level.FINEST, "Class/Resource {0} already loaded; ignoring entry...", e.getKey());
+                continue;
+            }
+
+            jarEntryContents.put( e.getKey(), e.getValue() );
+        }
+
+        if (other.baseUrl != null)
+            baseUrl = other.baseUrl;
+    }
+
     /**
      * 加载完整路径的jar文件
      * 
@@ -144,6 +168,9 @@ public class JarResources {
      * @param jarStream
      */
     public void loadJar(InputStream jarStream) {
+        Object event = JclEvents.beginLoadJar();
+        int entries = 0;
+        long bytes = 0;
 
         BufferedInputStream bis = null;
         JarInputStream jis = null;
@@ -183,6 +210,8 @@ public class JarResources {
                     
                     // add to internal resource HashMap
                     jarEntryContents.put( jarEntry.getName(), out.toByteArray() );
+                    entries++;
+                    bytes += out.size();
                     
                     if (logger.isLoggable( Level.FINEST ))
                         logger.log( Level.FINEST, "{0}: size={1} ,csize={2}", new Object[]{jarEntry.getName(), out.size(), jarEntry.getCompressedSize()});
@@ -194,6 +223,8 @@ public class JarResources {
             if (logger.isLoggable( Level.FINEST ))
                 logger.finest( "Done loading." );
         } finally {
+            JclEvents.commitLoadJar( event, baseUrl, entries, bytes );
+
             if (jis != null)
                 try {
                     jis.close();
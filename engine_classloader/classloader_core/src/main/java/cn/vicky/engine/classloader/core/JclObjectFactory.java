@@ -1,6 +1,8 @@
 package cn.vicky.engine.classloader.core;
 
 import cn.vicky.engine.classloader.core.exception.JclException;
+import cn.vicky.engine.classloader.core.monitor.JclEvents;
+import cn.vicky.engine.classloader.core.proxy.CachedProxyFactory;
 import java.lang.reflect.InvocationTargetException;
 
 import java.util.ArrayList;
@@ -23,6 +25,16 @@ public class JclObjectFactory {
     
     private static boolean autoProxy;
 
+    /**
+     * 自动代理的可见性分析结果,每个被创建的类只分析一次
+     */
+    private static final ClassValue<AutoProxyPlan> autoProxyPlans = new ClassValue<AutoProxyPlan>() {
+        @Override
+        protected AutoProxyPlan computeValue(Class<?> type) {
+            return new AutoProxyPlan( type );
+        }
+    };
+
     /**
      * 单例模式
      */
@@ -71,10 +83,15 @@ public class JclObjectFactory {
      */
     public Object create(JarClassLoader jcl, String className, Object... args) {
         if (args == null || args.length == 0) {
+            Object event = JclEvents.beginCreateObject();
+            Object obj = null;
             try {
-                return newInstance( jcl.loadClass( className ).newInstance() );
+                obj = newInstance( jcl.loadClass( className ).newInstance() );
+                return obj;
             } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
                 throw new JclException( e );
+            } finally {
+                JclEvents.commitCreateObject( event, jcl, className, null, obj != null );
             }
         }
 
@@ -86,6 +103,20 @@ public class JclObjectFactory {
         return create( jcl, className, args, types );
     }
 
+    /**
+     * 在可重新加载的类加载器的当前一代中创建指定类型的对象,创建期间持有该代的租约
+     *
+     * @param loader
+     * @param className
+     * @param args
+     * @return Object
+     */
+    public Object create(ReloadableJarClassLoader loader, String className, Object... args) {
+        try (ReloadableJarClassLoader.Lease lease = loader.acquire()) {
+            return create( lease.getClassLoader(), className, args );
+        }
+    }
+
     /**
      * 通过自定的类加载器,使用带参数以及参数类型.创建指定类型的对象
      * 
@@ -96,23 +127,28 @@ public class JclObjectFactory {
      * @return Object
      */
     public Object create(JarClassLoader jcl, String className, Object[] args, Class[] types) {
+        Object event = JclEvents.beginCreateObject();
         Object obj = null;
 
-        if (args == null || args.length == 0) {
-            try {
-                obj = jcl.loadClass( className ).newInstance();
-            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
-                throw new JclException( e );
-            }
-        } else {
-            try {
-                obj = jcl.loadClass( className ).getConstructor( types ).newInstance( args );
-            } catch (ClassNotFoundException | NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                throw new JclException( e );
+        try {
+            if (args == null || args.length == 0) {
+                try {
+                    obj = jcl.loadClass( className ).newInstance();
+                } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+                    throw new JclException( e );
+                }
+            } else {
+                try {
+                    obj = jcl.loadClass( className ).getConstructor( types ).newInstance( args );
+                } catch (ClassNotFoundException | NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+                    throw new JclException( e );
+                }
             }
-        }
 
-        return newInstance( obj );
+            return newInstance( obj );
+        } finally {
+            JclEvents.commitCreateObject( event, jcl, className, null, obj != null );
+        }
     }
 
     /**
@@ -126,10 +162,15 @@ public class JclObjectFactory {
      */
     public Object create(JarClassLoader jcl, String className, String methodName, Object... args) {
         if (args == null || args.length == 0) {
+            Object event = JclEvents.beginCreateObject();
+            Object obj = null;
             try {
-                return newInstance( jcl.loadClass( className ).getMethod( methodName ).invoke( null ) );
+                obj = newInstance( jcl.loadClass( className ).getMethod( methodName ).invoke( null ) );
+                return obj;
             } catch (ClassNotFoundException | NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
                 throw new JclException( e );
+            } finally {
+                JclEvents.commitCreateObject( event, jcl, className, methodName, obj != null );
             }
         }
         Class[] types = new Class[args.length];
@@ -151,22 +192,28 @@ public class JclObjectFactory {
      * @return Object
      */
     public Object create(JarClassLoader jcl, String className, String methodName, Object[] args, Class[] types) {
+        Object event = JclEvents.beginCreateObject();
         Object obj = null;
-        if (args == null || args.length == 0) {
-            try {
-                obj = jcl.loadClass( className ).getMethod( methodName ).invoke( null );
-            } catch (Exception e) {
-                throw new JclException( e );
-            }
-        } else {
-            try {
-                obj = jcl.loadClass( className ).getMethod( methodName, types ).invoke( null, args );
-            } catch (Exception e) {
-                throw new JclException( e );
+
+        try {
+            if (args == null || args.length == 0) {
+                try {
+                    obj = jcl.loadClass( className ).getMethod( methodName ).invoke( null );
+                } catch (Exception e) {
+                    throw new JclException( e );
+                }
+            } else {
+                try {
+                    obj = jcl.loadClass( className ).getMethod( methodName, types ).invoke( null, args );
+                } catch (Exception e) {
+                    throw new JclException( e );
+                }
             }
-        }
 
-        return newInstance( obj );
+            return newInstance( obj );
+        } finally {
+            JclEvents.commitCreateObject( event, jcl, className, methodName, obj != null );
+        }
     }
 
     /**
@@ -177,42 +224,76 @@ public class JclObjectFactory {
      */
     private Object newInstance(Object object) {
         if (autoProxy) {
+            return autoProxyPlans.get( object.getClass() ).newProxy( object );
+        }
 
-            Class superClass = null;
+        return object;
+    }
 
-            // Check class
-            try {
-                Class.forName( object.getClass().getSuperclass().getName() );
-                superClass = object.getClass().getSuperclass();
-            } catch (ClassNotFoundException e) {
-            }
+    /**
+     * 某个类的自动代理计划: 当前classloader中可见的父类与接口,以及据此准备好的代理工厂.
+     * 代理供应器按该类所在的ClassLoader选择
+     */
+    private static final class AutoProxyPlan {
+        private final Class superClass;
+        private final Class[] interfaces;
+        private final String error;
+        private final CachedProxyFactory factory;
 
-            Class[] interfaces = object.getClass().getInterfaces();
+        private AutoProxyPlan(Class type) {
+            ClassLoader cl = JclObjectFactory.class.getClassLoader();
+
+            // Check class
+            superClass = visibleClass( type.getSuperclass(), cl );
 
             List<Class> il = new ArrayList<>();
 
             // Check available interfaces
-            for (Class i : interfaces) {
-                try {
-                    Class.forName( i.getClass().getName() );
-                    il.add( i );
-                } catch (ClassNotFoundException e) {
+            for (Class i : type.getInterfaces()) {
+                Class vi = visibleClass( i, cl );
+                if (vi != null) {
+                    il.add( vi );
                 }
             }
 
+            interfaces = il.toArray( new Class[il.size()] );
+
             if (logger.isLoggable( Level.FINER )) {
                 logger.log( Level.FINER, "Class: {0}", superClass);
                 logger.log( Level.FINER, "Class Interfaces: {0}", il);
             }
 
             if (superClass == null && il.isEmpty()) {
-                throw new JclException( "Neither the class [" + object.getClass().getSuperclass().getName()
-                        + "] nor all the implemented interfaces found in the current classloader" );
+                error = "Neither the class [" + type.getSuperclass().getName()
+                        + "] nor all the implemented interfaces found in the current classloader";
+            } else {
+                error = null;
             }
 
-            return JclUtils.createProxy( object, superClass, il.toArray( new Class[il.size()] ), null );
+            factory = new CachedProxyFactory( type.getClassLoader(), superClass, interfaces, null );
         }
 
-        return object;
+        /**
+         * 返回当前classloader中与指定类同名的类,不可见时返回null
+         */
+        private static Class visibleClass(Class c, ClassLoader cl) {
+            if (c == null) {
+                return null;
+            }
+
+            try {
+                return Class.forName( c.getName(), false, cl );
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+
+        private Object newProxy(Object object) {
+            if (error != null) {
+                throw new JclException( error );
+            }
+
+            return factory.newProxy( object );
+        }
     }
 }
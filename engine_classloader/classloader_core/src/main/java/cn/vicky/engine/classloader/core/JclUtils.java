@@ -3,11 +3,7 @@ package cn.vicky.engine.classloader.core;
 import cn.vicky.engine.classloader.core.exception.JclException;
 import cn.vicky.engine.classloader.core.proxy.ProxyProviderFactory;
 import cn.vicky.engine.classloader.core.utils.ObjectCloner;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import cn.vicky.engine.classloader.core.utils.SerialCodec;
 
 /**
  * This class has some important utility methods commonly required when using
@@ -19,8 +15,29 @@ import java.io.ObjectOutputStream;
 @SuppressWarnings("unchecked")
 public class JclUtils {
 
+    /**
+     * 目标类型 -> (对象类型 -> 转换计划).外层挂在目标类型上,计划挂在对象类型上且不引用目标类型,
+     * 任一类型所在的ClassLoader不再使用时计划随之回收,不会互相延长生命周期
+     */
+    private static final ClassValue<ClassValue<CastPlan>> castPlans = new ClassValue<ClassValue<CastPlan>>() {
+        @Override
+        protected ClassValue<CastPlan> computeValue(final Class<?> target) {
+            return new ClassValue<CastPlan>() {
+                @Override
+                protected CastPlan computeValue(Class<?> type) {
+                    return CastPlan.analyze( type, target );
+                }
+            };
+        }
+    };
+
     public static Object createProxy(Object object, Class superClass, Class[] interfaces, ClassLoader cl) {
-        return ProxyProviderFactory.create().createProxy( object, superClass, interfaces, cl );
+        if (object == null) {
+            return null;
+        }
+
+        return ProxyProviderFactory.create( object.getClass().getClassLoader(), interfaces ).createProxy( object,
+                superClass, interfaces, cl );
     }
 
     /**
@@ -74,7 +91,9 @@ public class JclUtils {
     }
 
     /**
-     * Casts the object ref to the passed interface class ref and returns it
+     * Casts the object ref to the passed interface class ref and returns it.
+     * If the object already implements the class ref (e.g. the API is shared
+     * via the parent classloader) the object itself is returned
      * 
      * @param <T>
      * @param object
@@ -82,11 +101,13 @@ public class JclUtils {
      * @return T reference
      */
     public static <T> T cast(Object object, Class<T> clazz) {
-        return (T) toCastable( object, clazz, null );
+        return cast( object, clazz, null );
     }
 
     /**
-     * Casts the object ref to the passed interface class ref and returns it
+     * Casts the object ref to the passed interface class ref and returns it.
+     * If the object already implements the class ref (e.g. the API is shared
+     * via the parent classloader) the object itself is returned
      * 
      * @param <T>
      * @param object
@@ -95,16 +116,37 @@ public class JclUtils {
      * @return T reference
      */
     public static <T> T cast(Object object, Class<T> clazz, ClassLoader cl) {
-        return (T) toCastable( object, clazz, cl );
+        if (object == null) {
+            return null;
+        }
+
+        return (T) castPlan( object.getClass(), clazz ).cast( object, clazz, cl );
+    }
+
+    /**
+     * Returns the strategy used by cast for objects of the passed type
+     * 
+     * @param type
+     * @param clazz
+     * @return CastStrategy
+     */
+    public static CastStrategy getCastStrategy(Class type, Class clazz) {
+        return castPlan( type, clazz ).getStrategy();
+    }
+
+    private static CastPlan castPlan(Class type, Class clazz) {
+        return castPlans.get( clazz ).get( type );
     }
 
     /**
-     * Deep clones the Serializable objects in the current classloader. This
-     * method is slow and uses Object streams to clone Serializable objects.
+     * Deep clones the Serializable objects in the current classloader with
+     * Java serialization semantics: transient fields are skipped and
+     * writeReplace/readResolve are honoured. Uses a binary codec and falls
+     * back to Object streams for classes with custom serialization.
      * 
-     * This method is now deprecated because of its inefficiency and the
-     * limitation to clone Serializable objects only. The use of deepClone or
-     * shallowClone is now recommended
+     * This method is now deprecated because of the limitation to clone
+     * Serializable objects only. The use of deepClone or shallowClone is now
+     * recommended
      * 
      * @param original
      * @return clone
@@ -113,23 +155,19 @@ public class JclUtils {
      */
     @Deprecated
     public static Object clone(Object original) {
-        Object clone = null;
-
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream( 5120 )) { // Increased buffer size
-            ObjectOutputStream out = new ObjectOutputStream( bos );
-            out.writeObject( original );
-            out.flush();
-            out.close();
-
-            ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bos.toByteArray() ) );
-            clone = in.readObject();
-
-            in.close();
-        }catch (Exception e) {
-            throw new JclException( e );
-        }
+        return SerialCodec.clone( original );
+    }
 
-        return clone;
+    /**
+     * Deep clones the Serializable objects like {@link #clone(Object)}, resolving
+     * the classes of the clone in the given classloader
+     * 
+     * @param original
+     * @param cl
+     * @return clone
+     */
+    public static Object clone(Object original, ClassLoader cl) {
+        return SerialCodec.clone( original, cl );
     }
 
     /**
@@ -155,4 +193,33 @@ public class JclUtils {
 
         return cloner.shallowClone( original );
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a copy-on-write view of an interface-typed object graph. The
+     * view shares the original until a mutating method is called on one of
+     * its nodes
+     * 
+     * @param original
+     * @param type
+     * @return view
+     */
+    public static <T> T lazyClone(T original, Class<T> type) {
+        ObjectCloner cloner = new ObjectCloner();
+
+        return cloner.lazyClone( original, type );
+    }
+
+    /**
+     * Deep copies an object graph into the target classloader, replacing each
+     * class with the same-named class of the target
+     * 
+     * @param original
+     * @param target
+     * @return copy
+     */
+    public static Object migrate(Object original, ClassLoader target) {
+        ObjectCloner cloner = new ObjectCloner();
+
+        return cloner.migrate( original, target );
+    }
+}
@@ -1,7 +1,10 @@
 package cn.vicky.engine.classloader.core;
 
+import cn.vicky.engine.classloader.core.monitor.LookupStatistics;
+
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 类加载器基础(支持排序)
@@ -16,6 +19,12 @@ public abstract class ProxyClassLoader implements Comparable<ProxyClassLoader> {
     // Enabled by default
     protected boolean enabled = true;
 
+    // 任一代理的order每次变更时递增,AbstractClassLoader据此重新排序
+    private static final AtomicInteger orderChanges = new AtomicInteger();
+
+    // XmlContextLoader通过objenesis创建的实例不会执行字段初始化,因此在getStatistics中补建
+    private volatile LookupStatistics statistics = new LookupStatistics();
+
     public int getOrder() {
         return order;
     }
@@ -27,6 +36,11 @@ public abstract class ProxyClassLoader implements Comparable<ProxyClassLoader> {
      */
     public void setOrder(int order) {
         this.order = order;
+        orderChanges.incrementAndGet();
+    }
+
+    static int getOrderChanges() {
+        return orderChanges.get();
     }
 
     /**
@@ -62,6 +76,21 @@ public abstract class ProxyClassLoader implements Comparable<ProxyClassLoader> {
         this.enabled = enabled;
     }
 
+    /**
+     * @return 通过本加载器查找类的统计
+     */
+    public LookupStatistics getStatistics() {
+        LookupStatistics s = statistics;
+        if (s == null) {
+            synchronized (this) {
+                if (statistics == null)
+                    statistics = new LookupStatistics();
+                s = statistics;
+            }
+        }
+        return s;
+    }
+
     @Override
     public int compareTo(ProxyClassLoader o) {
         return order - o.getOrder();
@@ -0,0 +1,240 @@
+package cn.vicky.engine.classloader.core;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+import cn.vicky.engine.classloader.core.monitor.LeakDetector;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 可重新加载的JarClassLoader句柄.
+ * 同一个JarClassLoader中已定义的类不能再次定义,因此每次reload都用factory创建新一代的JarClassLoader,
+ * 原子地把新的查找与创建切换到新一代;旧一代在所有租约(Lease)归还后释放
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class ReloadableJarClassLoader {
+
+    private final Supplier<JarClassLoader> factory;
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+    // 已被替换但还有租约的旧一代
+    private final Set<Generation> retired = ConcurrentHashMap.newKeySet();
+    private volatile boolean layered;
+
+    private static final Logger logger = Logger.getLogger( ReloadableJarClassLoader.class.getName() );
+
+    /**
+     * 使用factory创建第一代JarClassLoader
+     *
+     * @param factory
+     */
+    public ReloadableJarClassLoader(Supplier<JarClassLoader> factory) {
+        this.factory = factory;
+        current.set( new Generation( 1, factory.get() ) );
+    }
+
+    /**
+     * 使用factory创建新一代JarClassLoader并替换当前一代
+     *
+     * @return 新一代的编号
+     */
+    public synchronized long reload() {
+        return reload( factory.get() );
+    }
+
+    /**
+     * 使用jcl作为新一代替换当前一代.已经取得的租约继续使用旧一代,之后的查找使用新一代
+     *
+     * @param jcl
+     * @return 新一代的编号
+     */
+    public synchronized long reload(JarClassLoader jcl) {
+        Generation old = current.get();
+        if (layered)
+            jcl.layerOver( old.jcl );
+
+        Generation next = new Generation( old.number + 1, jcl );
+
+        retired.add( old );
+        current.set( next );
+        old.retire();
+
+        if (logger.isLoggable( Level.FINE ))
+            logger.log( Level.FINE, "Switched to JarClassLoader generation {0}", next.number );
+
+        return next.number;
+    }
+
+    /**
+     * 设置是否使用分层模式重新加载,分层模式下没有变化的类继续使用稳定层中已定义的版本
+     *
+     * @param layered
+     * @see JarClassLoader#layerOver(JarClassLoader)
+     */
+    public void setLayered(boolean layered) {
+        this.layered = layered;
+    }
+
+    public boolean isLayered() {
+        return layered;
+    }
+
+    /**
+     * 取得当前一代的租约,使用结束后必须close,否则旧一代不会被释放
+     *
+     * @return Lease
+     */
+    public Lease acquire() {
+        while (true) {
+            Generation g = current.get();
+            if (g.tryAcquire())
+                return new Lease( g );
+            // g在读取后被替换,重新读取
+        }
+    }
+
+    /**
+     * @return 当前一代的JarClassLoader,新的查找都使用它
+     */
+    public JarClassLoader current() {
+        return current.get().jcl;
+    }
+
+    /**
+     * @return 当前一代的编号,从1开始
+     */
+    public long getGeneration() {
+        return current.get().number;
+    }
+
+    /**
+     * 从当前一代加载类
+     *
+     * @param className
+     * @return Class
+     * @throws ClassNotFoundException
+     */
+    public Class loadClass(String className) throws ClassNotFoundException {
+        return current().loadClass( className );
+    }
+
+    /**
+     * @return 已被替换但还没有释放的代数
+     */
+    public int getRetiredCount() {
+        return retired.size();
+    }
+
+    /**
+     * 等待当前所有已被替换的代释放
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否全部释放
+     * @throws InterruptedException
+     */
+    public boolean awaitRetired(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+        for (Generation g : retired) {
+            if (!g.drained.await( deadline - System.nanoTime(), TimeUnit.NANOSECONDS ))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 一代JarClassLoader及其租约计数.state的低位为租约数,RETIRED位表示已被替换,
+     * 设置RETIRED后不再发放租约,因此state恰好等于RETIRED时该代已经释放
+     */
+    private final class Generation {
+        private static final int RETIRED = 1 << 30;
+
+        private final long number;
+        private final JarClassLoader jcl;
+        private final AtomicInteger state = new AtomicInteger();
+        private final CountDownLatch drained = new CountDownLatch( 1 );
+
+        private Generation(long number, JarClassLoader jcl) {
+            if (jcl == null)
+                throw new JclException( "JarClassLoader factory returned null" );
+
+            this.number = number;
+            this.jcl = jcl;
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int s = state.get();
+                if (( s & RETIRED ) != 0)
+                    return false;
+                if (state.compareAndSet( s, s + 1 ))
+                    return true;
+            }
+        }
+
+        private void release() {
+            if (state.decrementAndGet() == RETIRED)
+                drain();
+        }
+
+        private void retire() {
+            if (state.updateAndGet( s -> s | RETIRED ) == RETIRED)
+                drain();
+        }
+
+        private void drain() {
+            retired.remove( this );
+            drained.countDown();
+
+            // 分层模式下第一代是稳定层,仍被后续各代使用
+            if (current.get().jcl.getStableLayer() != jcl)
+                LeakDetector.getInstance().released( "generation " + number, jcl );
+
+            if (logger.isLoggable( Level.FINE ))
+                logger.log( Level.FINE, "Released JarClassLoader generation {0}", number );
+        }
+    }
+
+    /**
+     * 某一代JarClassLoader的租约,租约期间该代不会被释放
+     */
+    public final class Lease implements AutoCloseable {
+        private final Generation generation;
+        private boolean closed;
+
+        private Lease(Generation generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * @return 租约所属一代的JarClassLoader
+         */
+        public JarClassLoader getClassLoader() {
+            return generation.jcl;
+        }
+
+        /**
+         * @return 租约所属一代的编号
+         */
+        public long getGeneration() {
+            return generation.number;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                generation.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cn.vicky.engine.classloader.core;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.Set;
+
+/**
+ * 一个本地source中新增,修改与删除的资源名称
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class ResourceChangeEvent extends EventObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private final File file;
+    private final Set<String> added;
+    private final Set<String> modified;
+    private final Set<String> removed;
+
+    public ResourceChangeEvent(ClasspathResources resources, File file, Set<String> added, Set<String> modified,
+            Set<String> removed) {
+        super( resources );
+        this.file = file;
+        this.added = Collections.unmodifiableSet( added );
+        this.modified = Collections.unmodifiableSet( modified );
+        this.removed = Collections.unmodifiableSet( removed );
+    }
+
+    /**
+     * @return 发生变化的ClasspathResources
+     */
+    public ClasspathResources getResources() {
+        return (ClasspathResources) getSource();
+    }
+
+    /**
+     * @return 发生变化的本地source,即加载时使用的目录或jar文件
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public Set<String> getAdded() {
+        return added;
+    }
+
+    public Set<String> getModified() {
+        return modified;
+    }
+
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return 是否有class发生变化,此时需要重新加载才能使用新的class
+     */
+    public boolean hasClassChanges() {
+        return hasClass( added ) || hasClass( modified ) || hasClass( removed );
+    }
+
+    private static boolean hasClass(Set<String> names) {
+        for (String name : names) {
+            if (name.endsWith( ".class" ))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceChangeEvent[" + file + ": added=" + added + ", modified=" + modified + ", removed=" + removed + "]";
+    }
+}
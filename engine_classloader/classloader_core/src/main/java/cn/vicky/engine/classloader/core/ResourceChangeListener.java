@@ -0,0 +1,20 @@
+package cn.vicky.engine.classloader.core;
+
+import java.util.EventListener;
+
+/**
+ * 被监视的ClasspathResources中的资源刷新后收到通知
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public interface ResourceChangeListener extends EventListener {
+
+    /**
+     * 在刷新资源的线程中调用,此时新的内容已经在ClasspathResources中
+     *
+     * @param event
+     */
+    void resourcesChanged(ResourceChangeEvent event);
+}
@@ -0,0 +1,351 @@
+package cn.vicky.engine.classloader.core;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 监视ClasspathResources从本地加载的目录与jar文件的后台线程.
+ * 一批修改结束(QUIET_PERIOD内没有新的修改)后,重新检查发生变化的source:
+ * 目录中的文件比较大小与修改时间,jar中的条目比较大小与CRC,只重新读取有变化的条目
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class ResourceWatcher implements Runnable {
+
+    private static final long QUIET_PERIOD = 200;
+
+    private final ClasspathResources resources;
+    private final List<Source> sources = new ArrayList<>();
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Thread thread;
+
+    private static final Logger logger = Logger.getLogger( ResourceWatcher.class.getName() );
+
+    ResourceWatcher(ClasspathResources resources, List<File> files) throws IOException {
+        this.resources = resources;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        for (File file : files) {
+            Source source = new Source( file.getAbsoluteFile() );
+            source.entries = scan( source );
+            sources.add( source );
+            register( source );
+        }
+
+        thread = new Thread( this, "jcl-resource-watcher" );
+        thread.setDaemon( true );
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            if (logger.isLoggable( Level.FINE ))
+                logger.log( Level.FINE, "Failed to close the resource watch service", e );
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+
+                Set<Path> changed = new HashSet<>();
+                do {
+                    collect( key, changed );
+                } while (( key = watchService.poll( QUIET_PERIOD, TimeUnit.MILLISECONDS ) ) != null);
+
+                for (Source source : sources) {
+                    if (source.isAffectedBy( changed )) {
+                        try {
+                            refresh( source );
+                            register( source );
+                        } catch (RuntimeException | IOException e) {
+                            logger.log( Level.WARNING, "Failed to refresh " + source.file, e );
+                        }
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            if (logger.isLoggable( Level.FINER ))
+                logger.finer( "Stopped watching resources" );
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = directories.get( key );
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null)
+                continue;
+
+            // 溢出时无法知道具体的文件,整个目录视为有变化
+            changed.add( event.kind() == StandardWatchEventKinds.OVERFLOW ? dir : dir.resolve( (Path) event.context() ) );
+        }
+        key.reset();
+    }
+
+    /**
+     * 重新检查所有source
+     */
+    void refreshAll() {
+        for (Source source : sources) {
+            try {
+                refresh( source );
+            } catch (IOException e) {
+                throw new JclException( e );
+            }
+        }
+    }
+
+    /**
+     * 比较source的当前状态与上一次的状态,更新有变化的条目
+     */
+    private synchronized void refresh(Source source) throws IOException {
+        Map<String, Entry> current = scan( source );
+        Map<String, byte[]> store = resources.jarEntryContents;
+
+        Set<String> added = new HashSet<>();
+        Set<String> modified = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+
+        Map<File, ZipFile> jars = new HashMap<>();
+        try {
+            for (Map.Entry<String, Entry> e : current.entrySet()) {
+                Entry previous = source.entries.get( e.getKey() );
+                if (previous != null && !e.getValue().differsFrom( previous ))
+                    continue;
+
+                byte[] content = e.getValue().read( jars );
+                byte[] stored = store.put( e.getKey(), content );
+                if (stored == null)
+                    added.add( e.getKey() );
+                else if (!Arrays.equals( stored, content ))
+                    modified.add( e.getKey() );
+            }
+        } finally {
+            for (ZipFile zip : jars.values()) {
+                zip.close();
+            }
+        }
+
+        for (String name : source.entries.keySet()) {
+            if (!current.containsKey( name ) && store.remove( name ) != null)
+                removed.add( name );
+        }
+
+        source.entries = current;
+
+        if (!added.isEmpty() || !modified.isEmpty() || !removed.isEmpty()) {
+            ResourceChangeEvent event = new ResourceChangeEvent( resources, source.file, added, modified, removed );
+            if (logger.isLoggable( Level.FINE ))
+                logger.fine( event.toString() );
+
+            resources.fireResourcesChanged( event );
+        }
+    }
+
+    /**
+     * 读取source中所有条目的状态,条目名称与ClasspathResources加载时相同.
+     * 较早的source中已经存在的条目不属于本source,与加载时的冲突处理一致
+     */
+    private Map<String, Entry> scan(Source source) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (source.file.exists())
+            scan( source, source.file, "", entries );
+        return entries;
+    }
+
+    private void scan(Source source, File file, String pack, Map<String, Entry> entries) throws IOException {
+        if (file.isDirectory()) {
+            String[] names = file.list();
+            if (names != null) {
+                for (String name : names) {
+                    File f = new File( file, name );
+                    scan( source, f, f.isDirectory() ? ( pack.isEmpty() ? name : pack + "/" + name ) : pack, entries );
+                }
+            }
+            return;
+        }
+
+        String name = file.getName().toLowerCase();
+        if (name.endsWith( ".jar" )) {
+            scanJar( source, file, entries );
+            return;
+        }
+
+        String entry;
+        if (name.endsWith( ".class" ))
+            entry = pack + "/" + file.getName();
+        else
+            entry = pack.isEmpty() ? file.getName() : pack + "/" + file.getName();
+
+        if (!isOwnedElsewhere( source, entry ))
+            entries.putIfAbsent( entry, new Entry( file, null, file.length(), file.lastModified() ) );
+    }
+
+    private void scanJar(Source source, File jar, Map<String, Entry> entries) throws IOException {
+        long[] stamp = { jar.length(), jar.lastModified() };
+
+        // jar文件没有变化时沿用上一次的状态
+        if (source.entries != null && Arrays.equals( stamp, source.jars.get( jar ) )) {
+            for (Map.Entry<String, Entry> e : source.entries.entrySet()) {
+                if (jar.equals( e.getValue().file ))
+                    entries.put( e.getKey(), e.getValue() );
+            }
+            return;
+        }
+
+        try (ZipFile zip = new ZipFile( jar )) {
+            for (ZipEntry ze : Collections.list( zip.entries() )) {
+                // 与JarResources一致: JarInputStream不返回清单文件
+                if (ze.isDirectory() || JarFile.MANIFEST_NAME.equalsIgnoreCase( ze.getName() ))
+                    continue;
+                if (!isOwnedElsewhere( source, ze.getName() ))
+                    entries.putIfAbsent( ze.getName(), new Entry( jar, ze.getName(), ze.getSize(), ze.getCrc() ) );
+            }
+        }
+        source.jars.put( jar, stamp );
+    }
+
+    /**
+     * 较早的source中已经存在的条目属于较早的source
+     */
+    private boolean isOwnedElsewhere(Source source, String entry) {
+        for (Source s : sources) {
+            if (s == source)
+                return false;
+            if (s.entries.containsKey( entry ))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 监视jar文件所在的目录,以及目录与其所有子目录
+     */
+    private void register(Source source) throws IOException {
+        if (!source.file.exists() && !source.file.getName().toLowerCase().endsWith( ".jar" ))
+            return;
+
+        if (!source.file.isDirectory()) {
+            register( source.file.getParentFile().toPath() );
+            return;
+        }
+
+        List<Path> dirs = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk( source.file.toPath() )) {
+            walk.filter( Files::isDirectory ).forEach( dirs::add );
+        }
+        for (Path dir : dirs) {
+            register( dir );
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register( watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+        directories.put( key, dir );
+    }
+
+    /**
+     * 加载时使用的一个目录或jar文件
+     */
+    private static final class Source {
+        private final File file;
+        private final Path path;
+        // 条目名称 -> 状态,只包含属于本source的条目
+        private Map<String, Entry> entries;
+        // jar文件 -> 上一次读取时的大小与修改时间
+        private final Map<File, long[]> jars = new HashMap<>();
+
+        private Source(File file) {
+            this.file = file;
+            this.path = file.toPath();
+        }
+
+        private boolean isAffectedBy(Set<Path> changed) {
+            for (Path p : changed) {
+                if (p.startsWith( path ))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 目录中的文件(name为null)或jar中的条目.文件的stamp为修改时间,jar条目的stamp为CRC
+     */
+    private static final class Entry {
+        private final File file;
+        private final String name;
+        private final long size;
+        private final long stamp;
+
+        private Entry(File file, String name, long size, long stamp) {
+            this.file = file;
+            this.name = name;
+            this.size = size;
+            this.stamp = stamp;
+        }
+
+        private boolean differsFrom(Entry previous) {
+            return size != previous.size || stamp != previous.stamp || !file.equals( previous.file );
+        }
+
+        /**
+         * @param jars 本次刷新中已经打开的jar文件
+         */
+        private byte[] read(Map<File, ZipFile> jars) throws IOException {
+            if (name == null)
+                return Files.readAllBytes( file.toPath() );
+
+            ZipFile zip = jars.get( file );
+            if (zip == null) {
+                zip = new ZipFile( file );
+                jars.put( file, zip );
+            }
+
+            try (InputStream in = zip.getInputStream( zip.getEntry( name ) )) {
+                byte[] content = new byte[(int) size];
+                new DataInputStream( in ).readFully( content );
+                return content;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package cn.vicky.engine.classloader.core.context;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 通过WatchService监视XmlContextLoader的XML文件以及本地sources的后台线程.
+ * 一批修改结束(QUIET_PERIOD内没有新的修改)后,XML文件的修改触发reload,sources的修改触发对应JarClassLoader的rebuild
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class ContextWatcher implements Runnable {
+
+    private static final long QUIET_PERIOD = 200;
+
+    private final XmlContextLoader loader;
+    private final Path config;
+    private final boolean watchSources;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final WatchKey configKey;
+    private final Thread thread;
+
+    // 本地sources的路径 -> 使用它的jcl元素名称
+    private Map<Path, Set<String>> sources = Collections.emptyMap();
+
+    private static final Logger logger = Logger.getLogger(ContextWatcher.class.getName());
+
+    ContextWatcher(XmlContextLoader loader, Path config, boolean watchSources) throws IOException {
+        this.loader = loader;
+        this.config = config.toAbsolutePath().normalize();
+        this.watchSources = watchSources;
+        this.watchService = this.config.getFileSystem().newWatchService();
+
+        configKey = register(this.config.getParent());
+        if (watchSources) {
+            registerSources();
+        }
+
+        thread = new Thread(this, "jcl-context-watcher");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Failed to close the watch service of " + config, e);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+
+                Set<Path> changed = new HashSet<>();
+                do {
+                    collect(key, changed);
+                } while ((key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null);
+
+                handle(changed);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            if (logger.isLoggable(Level.FINER)) {
+                logger.log(Level.FINER, "Stopped watching {0}", config);
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.add(config);
+                changed.add(dir);
+            } else if (dir != null) {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            // 目录已被删除或不可访问
+            directories.remove(key);
+        }
+    }
+
+    private void handle(Set<Path> changed) {
+        try {
+            if (changed.contains(config)) {
+                loader.reload();
+            }
+
+            if (watchSources) {
+                Set<String> names = new LinkedHashSet<>();
+                for (Path path : changed) {
+                    names.addAll(owners(path));
+                }
+
+                if (!names.isEmpty()) {
+                    loader.rebuild(names);
+                }
+
+                registerSources();
+            }
+        } catch (RuntimeException | IOException e) {
+            logger.log(Level.WARNING, "Failed to reload " + config, e);
+        }
+    }
+
+    /**
+     * 使用path或其所在类目录的jcl元素
+     */
+    private Set<String> owners(Path path) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Path p = path; p != null; p = p.getParent()) {
+            Set<String> n = sources.get(p);
+            if (n != null) {
+                names.addAll(n);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 监视jar文件所在的目录,以及类目录与其所有子目录.
+     * 不再属于localSources()的目录(sources被移除或目录被删除)的WatchKey会被取消
+     */
+    void registerSources() throws IOException {
+        sources = loader.localSources();
+
+        Set<WatchKey> live = new HashSet<>();
+        live.add(configKey);
+        for (Path source : sources.keySet()) {
+            if (!Files.isDirectory(source)) {
+                live.add(register(source.getParent()));
+                continue;
+            }
+
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    live.add(register(dir));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        for (Iterator<WatchKey> it = directories.keySet().iterator(); it.hasNext();) {
+            WatchKey key = it.next();
+            if (!live.contains(key)) {
+                key.cancel();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 当前监视的目录
+     */
+    Set<Path> watchedDirectories() {
+        return new HashSet<>(directories.values());
+    }
+
+    private WatchKey register(Path dir) throws IOException {
+        // 已注册的目录返回同一个WatchKey
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, dir);
+        return key;
+    }
+}
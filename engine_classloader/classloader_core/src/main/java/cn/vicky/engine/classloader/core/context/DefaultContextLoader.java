@@ -20,7 +20,11 @@ public class DefaultContextLoader implements JclContextLoader {
     private static final Logger logger = Logger.getLogger(DefaultContextLoader.class.getName());
 
     public DefaultContextLoader(JarClassLoader jcl) {
-        jclContext = new JclContext();
+        this(jcl, JclContext.unloadedDefault());
+    }
+
+    public DefaultContextLoader(JarClassLoader jcl, JclContext jclContext) {
+        this.jclContext = jclContext;
         this.jcl = jcl;
     }
 
@@ -41,6 +45,6 @@ public class DefaultContextLoader implements JclContextLoader {
 
     @Override
     public void unloadContext() {
-        JclContext.destroy();
+        jclContext.clear();
     }
 }
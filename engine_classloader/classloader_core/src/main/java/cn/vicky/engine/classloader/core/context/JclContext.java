@@ -2,68 +2,264 @@ package cn.vicky.engine.classloader.core.context;
 
 import cn.vicky.engine.classloader.core.JarClassLoader;
 import cn.vicky.engine.classloader.core.exception.JclContextException;
+import cn.vicky.engine.classloader.core.monitor.JarClassLoaderMonitor;
+import cn.vicky.engine.classloader.core.monitor.LeakDetector;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
- * JclContext持有所有的JarClassLoader实例,那么他可以处理任何应用
- * 
+ * JclContext持有一组按名称注册的JarClassLoader实例,那么他可以处理任何应用.
+ * 读取不加锁,每个实例是独立的注册表;静态方法访问默认的上下文
+ *
  * @author Vicky.H
  * @email  ecliser@163.com
- * 
+ *
  */
 public class JclContext {
-    private static final Map<String, JarClassLoader> loaders = Collections
-            .synchronizedMap( new HashMap<String, JarClassLoader>() );
     public static final String DEFAULT_NAME = "jcl";
+    public static final String DEFAULT_CONTEXT_ID = "default";
 
+    private static final AtomicReference<JclContext> defaultContext = new AtomicReference<>( new JclContext( DEFAULT_CONTEXT_ID ) );
+    private static final AtomicInteger contextIds = new AtomicInteger();
+
+    // MBean名称中的context
+    private final String id;
+
+    private final Map<String, JarClassLoader> loaders = new ConcurrentHashMap<>();
+    // 第一次访问时才创建的JarClassLoader
+    private final Map<String, LazyJcl> lazyLoaders = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the default context, which the static accessors use. Fails if
+     * the current default context is loaded
+     */
     public JclContext() {
-        validate();
+        this.id = DEFAULT_CONTEXT_ID;
+        JclContext current;
+        do {
+            current = defaultContext.get();
+            if( !current.isEmpty() ) {
+                throw new JclContextException( "Context already loaded. Destroy the existing context to create a new one." );
+            }
+        } while( !defaultContext.compareAndSet( current, this ) );
+    }
+
+    private JclContext(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Creates an independent context that is not reachable through the static
+     * accessors
+     *
+     * @return JclContext
+     */
+    public static JclContext newContext() {
+        return new JclContext( "context-" + contextIds.incrementAndGet() );
     }
 
-    private void validate() {
-        if( isLoaded() ) {
+    /**
+     * 返回尚未加载的默认上下文,供未指定上下文的ContextLoader使用
+     */
+    static JclContext unloadedDefault() {
+        JclContext current = getDefault();
+        if( !current.isEmpty() ) {
             throw new JclContextException( "Context already loaded. Destroy the existing context to create a new one." );
         }
+        return current;
+    }
+
+    /**
+     * @return the context used by the static accessors
+     */
+    public static JclContext getDefault() {
+        return defaultContext.get();
     }
 
     public static boolean isLoaded() {
-        return !loaders.isEmpty();
+        return !getDefault().isEmpty();
+    }
+
+    /**
+     * @return 注册MBean时使用的上下文名称
+     */
+    public String getId() {
+        return id;
+    }
+
+    public boolean isEmpty() {
+        return loaders.isEmpty() && lazyLoaders.isEmpty();
     }
 
     /**
      * Populates the context with JarClassLoader instances
-     * 
+     *
      * @param name
      * @param jcl
      */
     public void addJcl(String name, JarClassLoader jcl) {
-        if( loaders.containsKey( name ) )
+        if( lazyLoaders.containsKey( name ) || loaders.putIfAbsent( name, jcl ) != null )
+            throw new JclContextException( "JarClassLoader[" + name + "] already exist. Name must be unique" );
+        JarClassLoaderMonitor.register( id, name, jcl );
+    }
+
+    /**
+     * Populates the context with a JarClassLoader created by the factory on
+     * first access
+     *
+     * @param name
+     * @param factory
+     */
+    public void addLazyJcl(String name, Supplier<JarClassLoader> factory) {
+        if( loaders.containsKey( name ) || lazyLoaders.putIfAbsent( name, new LazyJcl( name, factory ) ) != null )
             throw new JclContextException( "JarClassLoader[" + name + "] already exist. Name must be unique" );
+    }
 
-        loaders.put( name, jcl );
+    /**
+     * Replaces the JarClassLoader registered under name, or adds it. Callers
+     * of get(name) see either the previous or the new loader, never null
+     *
+     * @param name
+     * @param jcl
+     */
+    public void replaceJcl(String name, JarClassLoader jcl) {
+        release( name, loaders.put( name, jcl ), jcl );
+        lazyLoaders.remove( name );
+        JarClassLoaderMonitor.register( id, name, jcl );
     }
 
     /**
-     * Clears the context
+     * Replaces the JarClassLoader registered under name with one created by
+     * the factory on next access
+     *
+     * @param name
+     * @param factory
      */
-    public static void destroy() {
-        if( isLoaded() ) {
-            loaders.clear();
+    public void replaceLazyJcl(String name, Supplier<JarClassLoader> factory) {
+        lazyLoaders.put( name, new LazyJcl( name, factory ) );
+        release( name, loaders.remove( name ), null );
+    }
+
+    /**
+     * Removes the JarClassLoader registered under name
+     *
+     * @param name
+     */
+    public void removeJcl(String name) {
+        lazyLoaders.remove( name );
+        release( name, loaders.remove( name ), null );
+    }
+
+    /**
+     * Returns the JarClassLoader registered under name, creating it if it is
+     * lazy and was not accessed yet
+     *
+     * @param name
+     * @return JarClassLoader
+     */
+    public JarClassLoader getJcl(String name) {
+        JarClassLoader jcl = loaders.get( name );
+        if( jcl == null ) {
+            LazyJcl lazy = lazyLoaders.get( name );
+            if( lazy != null ) {
+                jcl = lazy.get();
+            }
+        }
+        return jcl;
+    }
+
+    /**
+     * Returns all the loaders, creating the lazy ones that were not accessed yet
+     *
+     * @return Map
+     */
+    public Map<String, JarClassLoader> getJcls() {
+        for( String name : lazyLoaders.keySet() ) {
+            getJcl( name );
+        }
+        return Collections.unmodifiableMap( loaders );
+    }
+
+    /**
+     * Clears this context
+     */
+    public void clear() {
+        lazyLoaders.clear();
+        for (String name : loaders.keySet()) {
+            release( name, loaders.remove( name ), null );
         }
     }
 
+    /**
+     * 被移除的JarClassLoader应该被回收,登记到LeakDetector;没有替换时注销其MBean
+     */
+    private void release(String name, JarClassLoader old, JarClassLoader replacement) {
+        if( old != null && old != replacement ) {
+            LeakDetector.getInstance().released( name, old );
+        }
+        if( old != null && replacement == null ) {
+            JarClassLoaderMonitor.unregister( id, name );
+        }
+    }
+
+    /**
+     * Clears the default context
+     */
+    public static void destroy() {
+        getDefault().clear();
+    }
+
     public static JarClassLoader get() {
-        return loaders.get( DEFAULT_NAME );
+        return get( DEFAULT_NAME );
     }
 
     public static JarClassLoader get(String name) {
-        return loaders.get( name );
+        return getDefault().getJcl( name );
     }
 
     public static Map<String, JarClassLoader> getAll() {
-        return Collections.unmodifiableMap( loaders );
+        return getDefault().getJcls();
+    }
+
+    /**
+     * 只创建一次的JarClassLoader,创建后加入loaders
+     */
+    private final class LazyJcl {
+        private final String name;
+        private final Supplier<JarClassLoader> factory;
+        private JarClassLoader jcl;
+
+        private LazyJcl(String name, Supplier<JarClassLoader> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        synchronized JarClassLoader get() {
+            if( jcl != null )
+                return jcl;
+            // 已被替换或移除,不再创建
+            if( lazyLoaders.get( name ) != this )
+                return getJcl( name );
+
+            // 在loaders的原子操作之外创建,发布成功后再注册MBean
+            JarClassLoader created = factory.get();
+            JarClassLoader existing = loaders.putIfAbsent( name, created );
+            if( existing == null && lazyLoaders.remove( name, this ) ) {
+                JarClassLoaderMonitor.register( id, name, created );
+                jcl = created;
+                return jcl;
+            }
+
+            // 创建期间已被替换或移除,撤回发布.撤回前已被移除的实例由移除者释放,否则登记到LeakDetector
+            lazyLoaders.remove( name, this );
+            if( existing != null || loaders.remove( name, created ) )
+                LeakDetector.getInstance().released( name, created );
+            return getJcl( name );
+        }
     }
 }
@@ -0,0 +1,92 @@
+package cn.vicky.engine.classloader.core.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 配置文件中一个jcl元素的定义.先从XML中读取定义,再根据定义创建JarClassLoader,
+ * 因此创建过程不依赖XML解析器,可以并行或延迟进行
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class JclDefinition {
+
+    final String name;
+    final boolean lazy;
+    final List<LoaderDefinition> loaders = new ArrayList<>();
+    String defaultProxyProvider;
+    // 接口名 -> 代理供应器
+    final Map<String, String> proxyProviders = new LinkedHashMap<>();
+    final List<String> sources = new ArrayList<>();
+
+    JclDefinition(String name, boolean lazy) {
+        this.name = name;
+        this.lazy = lazy;
+    }
+
+    /**
+     * 两个定义相等时,根据它们创建的JarClassLoader相同,重新加载时可以保留原来的JarClassLoader
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JclDefinition)) {
+            return false;
+        }
+
+        JclDefinition d = (JclDefinition) o;
+        return name.equals(d.name) && lazy == d.lazy && loaders.equals(d.loaders)
+                && Objects.equals(defaultProxyProvider, d.defaultProxyProvider) && proxyProviders.equals(d.proxyProviders)
+                && sources.equals(d.sources);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, lazy, loaders, defaultProxyProvider, proxyProviders, sources);
+    }
+
+    /**
+     * loader元素的定义,未配置的项为null
+     */
+    static final class LoaderDefinition {
+        final String name;
+        final String className;
+        Integer order;
+        Boolean enabled;
+        Boolean strict;
+        String[] bootDelegation;
+
+        LoaderDefinition(String name, String className) {
+            this.name = name;
+            this.className = className;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LoaderDefinition)) {
+                return false;
+            }
+
+            LoaderDefinition l = (LoaderDefinition) o;
+            return name.equals(l.name) && Objects.equals(className, l.className) && Objects.equals(order, l.order)
+                    && Objects.equals(enabled, l.enabled) && Objects.equals(strict, l.strict)
+                    && Arrays.equals(bootDelegation, l.bootDelegation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, className, order, enabled, strict) * 31 + Arrays.hashCode(bootDelegation);
+        }
+    }
+}
@@ -3,31 +3,60 @@ package cn.vicky.engine.classloader.core.context;
 import cn.vicky.engine.classloader.core.AbstractClassLoader;
 import cn.vicky.engine.classloader.core.JarClassLoader;
 import cn.vicky.engine.classloader.core.ProxyClassLoader;
+import cn.vicky.engine.classloader.core.context.JclDefinition.LoaderDefinition;
 import cn.vicky.engine.classloader.core.exception.JclContextException;
+import cn.vicky.engine.classloader.core.proxy.CglibProxyProvider;
+import cn.vicky.engine.classloader.core.proxy.JdkProxyProvider;
+import cn.vicky.engine.classloader.core.proxy.ProxyProvider;
 import cn.vicky.engine.classloader.core.utils.PathResolver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Source;
+import javax.xml.XMLConstants;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
 
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
 
 /**
  * 通过XML文件来配置JclContext 查看jcl-context.xsd获得配置
@@ -48,8 +77,17 @@ public class XmlContextLoader implements JclContextLoader {
     private static final String ELEMENT_ORDER = "order";
     private static final String ELEMENT_STRICT = "strict";
     private static final String ELEMENT_BOOT_DELEGATION = "bootDelegation";
+    private static final String ELEMENT_PROXY_PROVIDERS = "proxyProviders";
+    private static final String ELEMENT_PROXY_PROVIDER = "proxyProvider";
     private static final String ATTRIBUTE_CLASS = "class";
     private static final String ATTRIBUTE_NAME = "name";
+    private static final String ATTRIBUTE_DEFAULT = "default";
+    private static final String ATTRIBUTE_INTERFACE = "interface";
+    private static final String ATTRIBUTE_PROVIDER = "provider";
+    private static final String ATTRIBUTE_LAZY = "lazy";
+
+    private static final String PROXY_JDK = "jdk";
+    private static final String PROXY_CGLIB = "cglib";
 
     private static final String JCL_BOOTOSGI = "jcl.bootosgi";
     private static final String JCL_SYSTEM = "jcl.system";
@@ -58,94 +96,506 @@ public class XmlContextLoader implements JclContextLoader {
     private static final String JCL_CURRENT = "jcl.current";
     private static final String JCL_PARENT = "jcl.parent";
 
-    private static final String XML_SCHEMA_LANG = "http://www.w3.org/2001/XMLSchema";
     private static final String JCL_CONTEXT_SCHEMA = "cn/vicky/engine/classloader/core/context/jcl-context.xsd";
 
     private final String file;
     private final JclContext jclContext;
 
     private final List<PathResolver> pathResolvers = new ArrayList<>();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean validating = true;
+
+    // 最近一次加载的定义,用于reload时比较
+    private Map<String, JclDefinition> loaded = Collections.emptyMap();
+    private ContextWatcher watcher;
 
     private static final Logger logger = Logger.getLogger(XmlContextLoader.class.getName());
 
     public XmlContextLoader(String file) {
+        this(file, JclContext.unloadedDefault());
+    }
+
+    /**
+     * 加载到指定的JclContext中,例如JclContext.newContext()创建的独立上下文
+     *
+     * @param file
+     * @param jclContext
+     */
+    public XmlContextLoader(String file, JclContext jclContext) {
         this.file = file;
-        jclContext = new JclContext();
+        this.jclContext = jclContext;
+    }
+
+    public JclContext getJclContext() {
+        return jclContext;
     }
 
     /**
-     * Loads the JCL context from XML file
+     * Loads the JCL context from XML file. The loaders are built in parallel,
+     * lazy loaders are built by JclContext on first access
      *
      * @see cn.vicky.engine.classloader.core.context.JclContextLoader#loadContext()
      */
     @Override
-    public void loadContext() {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setValidating(false);
-        factory.setNamespaceAware(true);
+    public synchronized void loadContext() {
+        List<JclDefinition> definitions = readDefinitions();
+        Map<String, JclDefinition> current = index(definitions);
+        Map<JclDefinition, JarClassLoader> built = buildAll(definitions);
+
+        for (JclDefinition d : definitions) {
+            if (d.lazy) {
+                jclContext.addLazyJcl(d.name, lazyFactory(d));
+            } else {
+                jclContext.addJcl(d.name, built.get(d));
+            }
 
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XML_SCHEMA_LANG);
+            if (logger.isLoggable(Level.FINER)) {
+                logger.log(Level.FINER, "JarClassLoader[{0}] loaded into context.", d.name);
+            }
+        }
 
-        try {
-            factory.setSchema(schemaFactory.newSchema(new Source[]{new StreamSource(getClass().getClassLoader()
-                .getResourceAsStream(JCL_CONTEXT_SCHEMA))}));
-        } catch (SAXException e) {
-            throw new JclContextException(e);
+        loaded = current;
+    }
+
+    /**
+     * 重新读取XML文件,只重建定义有变化的JarClassLoader并替换到JclContext中,
+     * 定义没有变化的JarClassLoader保持不变,已删除的jcl元素从JclContext中移除
+     */
+    public synchronized void reload() {
+        List<JclDefinition> definitions = readDefinitions();
+        Map<String, JclDefinition> current = index(definitions);
+
+        List<JclDefinition> changed = new ArrayList<>();
+        for (JclDefinition d : definitions) {
+            if (!d.equals(loaded.get(d.name))) {
+                changed.add(d);
+            }
         }
 
-        try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
+        replaceAll(changed);
+
+        for (String name : loaded.keySet()) {
+            if (!current.containsKey(name)) {
+                jclContext.removeJcl(name);
+
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "JarClassLoader[{0}] removed from context.", name);
+                }
+            }
+        }
 
-            Document d = null;
+        loaded = current;
+    }
 
-            if (file.startsWith(CLASSPATH)) {
-                d = builder.parse(getClass().getClassLoader().getResourceAsStream(file.split(CLASSPATH)[1]));
+    /**
+     * 重建指定名称的JarClassLoader并替换到JclContext中,用于sources的内容有变化时
+     *
+     * @param names
+     */
+    public synchronized void rebuild(Collection<String> names) {
+        List<JclDefinition> definitions = new ArrayList<>();
+        for (String name : names) {
+            JclDefinition d = loaded.get(name);
+            if (d != null) {
+                definitions.add(d);
+            }
+        }
+
+        replaceAll(definitions);
+    }
+
+    private void replaceAll(List<JclDefinition> definitions) {
+        // 先创建所有JarClassLoader,失败时不替换任何一个
+        Map<JclDefinition, JarClassLoader> built = buildAll(definitions);
+
+        for (JclDefinition d : definitions) {
+            if (d.lazy) {
+                jclContext.replaceLazyJcl(d.name, lazyFactory(d));
             } else {
-                d = builder.parse(file);
+                jclContext.replaceJcl(d.name, built.get(d));
             }
 
-            NodeList nl = d.getElementsByTagName(ELEMENT_JCL);
-            for (int i = 0; i < nl.getLength(); i++) {
-                Node n = nl.item(i);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "JarClassLoader[{0}] replaced in context.", d.name);
+            }
+        }
+    }
 
-                String name = n.getAttributes().getNamedItem(ATTRIBUTE_NAME).getNodeValue();
+    private static Map<String, JclDefinition> index(List<JclDefinition> definitions) {
+        Map<String, JclDefinition> index = new LinkedHashMap<>();
+        for (JclDefinition d : definitions) {
+            if (index.put(d.name, d) != null) {
+                throw new JclContextException("JarClassLoader[" + d.name + "] already exist. Name must be unique");
+            }
+        }
+        return index;
+    }
 
-                JarClassLoader jcl = new JarClassLoader();
+    /**
+     * 并行创建definitions中所有非lazy的JarClassLoader
+     */
+    private Map<JclDefinition, JarClassLoader> buildAll(List<JclDefinition> definitions) {
+        Map<JclDefinition, ForkJoinTask<JarClassLoader>> tasks = new IdentityHashMap<>();
+        for (JclDefinition d : definitions) {
+            if (!d.lazy) {
+                tasks.put(d, ForkJoinTask.adapt(() -> build(d, ForkJoinTask.getPool())));
+            }
+        }
 
-                NodeList config = n.getChildNodes();
+        if (parallelism > 1 && !tasks.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks.values())));
+            } finally {
+                pool.shutdown();
+            }
+        }
 
-                for (int j = 0; j < config.getLength(); j++) {
-                    Node c = config.item(j);
-                    switch (c.getNodeName()) {
-                        case ELEMENT_LOADERS:
-                            processLoaders(jcl, c);
-                            break;
-                        case ELEMENT_SOURCES:
-                            processSources(jcl, c);
-                            break;
+        Map<JclDefinition, JarClassLoader> built = new IdentityHashMap<>();
+        for (Map.Entry<JclDefinition, ForkJoinTask<JarClassLoader>> e : tasks.entrySet()) {
+            built.put(e.getKey(), parallelism > 1 ? e.getValue().join() : e.getValue().invoke());
+        }
+        return built;
+    }
+
+    private Supplier<JarClassLoader> lazyFactory(JclDefinition d) {
+        ForkJoinPool pool = parallelism > 1 ? ForkJoinPool.commonPool() : null;
+        return () -> build(d, pool);
+    }
+
+    /**
+     * 在后台线程中监视XML文件,文件修改后调用reload.watchSources为true时同时监视
+     * 本地的sources(jar文件与类目录),其内容修改后重建使用它们的JarClassLoader
+     *
+     * @param watchSources
+     */
+    public synchronized void watch(boolean watchSources) {
+        if (watcher != null) {
+            throw new JclContextException("Context file is already watched: " + file);
+        }
+
+        try {
+            watcher = new ContextWatcher(this, configPath(), watchSources);
+        } catch (IOException e) {
+            throw new JclContextException(e);
+        }
+        watcher.start();
+    }
+
+    /**
+     * 停止监视
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * XML文件在本地文件系统中的路径
+     */
+    private Path configPath() {
+        if (file.startsWith(CLASSPATH)) {
+            URL url = getClass().getClassLoader().getResource(file.split(CLASSPATH)[1]);
+            if (url == null || !"file".equals(url.getProtocol())) {
+                throw new JclContextException("Context file is not on the local file system: " + file);
+            }
+
+            try {
+                return Paths.get(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new JclContextException(e);
+            }
+        }
+
+        return Paths.get(file).toAbsolutePath();
+    }
+
+    /**
+     * 当前加载的定义中,本地sources的路径 -> 使用它的jcl元素名称
+     *
+     * @return Map
+     */
+    synchronized Map<Path, Set<String>> localSources() {
+        Map<Path, Set<String>> sources = new HashMap<>();
+        for (JclDefinition d : loaded.values()) {
+            for (Object source : resolveSources(d.sources)) {
+                if (source instanceof String) {
+                    Path path = Paths.get((String) source).toAbsolutePath().normalize();
+                    if (Files.exists(path)) {
+                        sources.computeIfAbsent(path, (p) -> new LinkedHashSet<>()).add(d.name);
                     }
                 }
+            }
+        }
+        return sources;
+    }
 
-                jclContext.addJcl(name, jcl);
-
-                if (logger.isLoggable(Level.FINER)) {
-                    logger.log(Level.FINER, "JarClassLoader[{0}] loaded into context.", name);
+    /**
+     * 读取XML文件,返回所有jcl元素的定义.validating为true时在读取的同时通过缓存的Schema校验文件
+     *
+     * @return List
+     */
+    List<JclDefinition> readDefinitions() {
+        DefinitionReader definitions = new DefinitionReader();
+
+        XMLStreamReader reader = null;
+        try (InputStream in = openFile()) {
+            reader = ContextSchema.INPUT_FACTORY.createXMLStreamReader(file, in);
+            SchemaValidation validation = validating ? new SchemaValidation(reader) : null;
+
+            while (reader.hasNext()) {
+                reader.next();
+                if (validation != null) {
+                    validation.accept(reader);
                 }
+                definitions.accept(reader);
             }
 
+            return definitions.definitions;
         } catch (SAXParseException e) {
             JclContextException we = new JclContextException(e.getMessage() + " [" + file + " (" + e.getLineNumber()
                     + ", " + e.getColumnNumber() + ")]");
             we.setStackTrace(e.getStackTrace());
 
             throw we;
-        } catch (JclContextException e) {
-            throw e;
-        } catch (ParserConfigurationException | SAXException | IOException | DOMException e) {
+        } catch (XMLStreamException e) {
+            throw new JclContextException(e.getMessage() + " [" + file + location(e.getLocation()) + "]", e);
+        } catch (SAXException | IOException e) {
             throw new JclContextException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // ignore
+                }
+            }
         }
     }
 
+    private static String location(Location l) {
+        return l == null ? "" : " (" + l.getLineNumber() + ", " + l.getColumnNumber() + ")";
+    }
+
+    /**
+     * 把StAX事件转换为SAX事件交给缓存的Schema的ValidatorHandler,从而在读取的同时校验文件
+     */
+    private static final class SchemaValidation implements Locator {
+        private final XMLStreamReader reader;
+        private final ValidatorHandler handler = ContextSchema.SCHEMA.newValidatorHandler();
+        private final AttributesImpl attributes = new AttributesImpl();
+
+        private SchemaValidation(XMLStreamReader reader) throws SAXException {
+            this.reader = reader;
+            handler.setDocumentLocator(this);
+            handler.startDocument();
+        }
+
+        private void accept(XMLStreamReader reader) throws SAXException {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        handler.startPrefixMapping(nonNull(reader.getNamespacePrefix(i)), nonNull(reader.getNamespaceURI(i)));
+                    }
+
+                    attributes.clear();
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        attributes.addAttribute(nonNull(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i),
+                                qName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeType(i),
+                                reader.getAttributeValue(i));
+                    }
+                    handler.startElement(nonNull(reader.getNamespaceURI()), reader.getLocalName(),
+                            qName(reader.getPrefix(), reader.getLocalName()), attributes);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    handler.endElement(nonNull(reader.getNamespaceURI()), reader.getLocalName(),
+                            qName(reader.getPrefix(), reader.getLocalName()));
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        handler.endPrefixMapping(nonNull(reader.getNamespacePrefix(i)));
+                    }
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    handler.endDocument();
+                    break;
+            }
+        }
+
+        private static String nonNull(String s) {
+            return s == null ? "" : s;
+        }
+
+        private static String qName(String prefix, String localName) {
+            return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+        }
+
+        @Override
+        public String getPublicId() {
+            return reader.getLocation().getPublicId();
+        }
+
+        @Override
+        public String getSystemId() {
+            return reader.getLocation().getSystemId();
+        }
+
+        @Override
+        public int getLineNumber() {
+            return reader.getLocation().getLineNumber();
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return reader.getLocation().getColumnNumber();
+        }
+    }
+
+    /**
+     * 根据StAX事件构建jcl元素的定义,只读取reader的当前事件
+     */
+    private final class DefinitionReader {
+        private final List<JclDefinition> definitions = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private JclDefinition definition;
+        private LoaderDefinition loader;
+
+        private void accept(XMLStreamReader reader) {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    text.setLength(0);
+                    startElement(reader);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement(reader);
+                    text.setLength(0);
+                    break;
+            }
+        }
+
+        private void startElement(XMLStreamReader reader) {
+            switch (reader.getLocalName()) {
+                case ELEMENT_JCL:
+                    String lazy = reader.getAttributeValue(null, ATTRIBUTE_LAZY);
+                    definition = new JclDefinition(requiredAttribute(reader, ATTRIBUTE_NAME),
+                            lazy != null && parseBoolean(reader, lazy));
+                    definitions.add(definition);
+                    break;
+                case ELEMENT_LOADER:
+                    loader = new LoaderDefinition(requiredAttribute(reader, ATTRIBUTE_NAME),
+                            reader.getAttributeValue(null, ATTRIBUTE_CLASS));
+                    definition(reader).loaders.add(loader);
+                    break;
+                case ELEMENT_PROXY_PROVIDERS:
+                    definition(reader).defaultProxyProvider = reader.getAttributeValue(null, ATTRIBUTE_DEFAULT);
+                    break;
+                case ELEMENT_PROXY_PROVIDER:
+                    definition(reader).proxyProviders.put(requiredAttribute(reader, ATTRIBUTE_INTERFACE),
+                            requiredAttribute(reader, ATTRIBUTE_PROVIDER));
+                    break;
+            }
+        }
+
+        private void endElement(XMLStreamReader reader) {
+            String value = text.toString();
+            switch (reader.getLocalName()) {
+                case ELEMENT_JCL:
+                    definition = null;
+                    break;
+                case ELEMENT_LOADER:
+                    loader = null;
+                    break;
+                case ELEMENT_ORDER:
+                    try {
+                        loader(reader).order = Integer.parseInt(value.trim());
+                    } catch (NumberFormatException e) {
+                        throw error(reader, "Invalid order '" + value + "'");
+                    }
+                    break;
+                case ELEMENT_ENABLED:
+                    loader(reader).enabled = parseBoolean(reader, value);
+                    break;
+                case ELEMENT_STRICT:
+                    loader(reader).strict = parseBoolean(reader, value);
+                    break;
+                case ELEMENT_BOOT_DELEGATION:
+                    loader(reader).bootDelegation = value.split(",");
+                    break;
+                case ELEMENT_SOURCE:
+                    definition(reader).sources.add(value);
+                    break;
+            }
+        }
+
+        /**
+         * 按xsd:boolean解析: 接受true/1与false/0,其它值在未校验时也视为错误
+         */
+        private boolean parseBoolean(XMLStreamReader reader, String value) {
+            switch (value.trim()) {
+                case "true":
+                case "1":
+                    return true;
+                case "false":
+                case "0":
+                    return false;
+                default:
+                    throw error(reader, "Invalid boolean '" + value + "'");
+            }
+        }
+
+        private String requiredAttribute(XMLStreamReader reader, String name) {
+            String value = reader.getAttributeValue(null, name);
+            if (value == null) {
+                throw error(reader, "Attribute '" + name + "' must appear on element '" + reader.getLocalName() + "'");
+            }
+            return value;
+        }
+
+        private JclDefinition definition(XMLStreamReader reader) {
+            if (definition == null) {
+                throw error(reader, "Element '" + reader.getLocalName() + "' must appear inside 'jcl'");
+            }
+            return definition;
+        }
+
+        private LoaderDefinition loader(XMLStreamReader reader) {
+            if (loader == null) {
+                throw error(reader, "Element '" + reader.getLocalName() + "' must appear inside 'loader'");
+            }
+            return loader;
+        }
+
+        private JclContextException error(XMLStreamReader reader, String message) {
+            return new JclContextException(message + " [" + file + location(reader.getLocation()) + "]");
+        }
+    }
+
+    private InputStream openFile() throws IOException {
+        if (file.startsWith(CLASSPATH)) {
+            InputStream in = getClass().getClassLoader().getResourceAsStream(file.split(CLASSPATH)[1]);
+            if (in == null) {
+                throw new FileNotFoundException(file);
+            }
+            return in;
+        }
+
+        File f = new File(file);
+        if (f.isFile()) {
+            return new FileInputStream(f);
+        }
+        return new URL(file).openStream();
+    }
+
     /**
      * Unloads the context
      *
@@ -153,94 +603,141 @@ public class XmlContextLoader implements JclContextLoader {
      */
     @Override
     public void unloadContext() {
-        JclContext.destroy();
+        stopWatching();
+        jclContext.clear();
     }
 
-    private void processSources(JarClassLoader jcl, Node c) {
-        NodeList sources = c.getChildNodes();
-        for (int k = 0; k < sources.getLength(); k++) {
-            Node s = sources.item(k);
+    /**
+     * 根据定义创建JarClassLoader,pool不为null时在其中并行读取sources
+     *
+     * @param definition
+     * @param pool
+     * @return JarClassLoader
+     */
+    private JarClassLoader build(JclDefinition definition, ForkJoinPool pool) {
+        long start = System.nanoTime();
 
-            if (s.getNodeName().equals(ELEMENT_SOURCE)) {
-                String path = s.getTextContent();
-                Object[] res = null;
+        JarClassLoader jcl = new JarClassLoader();
 
-                for (PathResolver pr : pathResolvers) {
-                    res = pr.resolvePath(path);
+        for (LoaderDefinition l : definition.loaders) {
+            processLoader(jcl, l);
+        }
 
-                    if (res != null) {
-                        for (Object r : res) {
-                            jcl.add(r);
-                        }
+        if (definition.defaultProxyProvider != null) {
+            jcl.setProxyProvider(newProxyProvider(definition.defaultProxyProvider));
+        }
+        for (Map.Entry<String, String> p : definition.proxyProviders.entrySet()) {
+            jcl.setProxyProvider(p.getKey(), newProxyProvider(p.getValue()));
+        }
 
-                        break;
-                    }
-                }
+        List<Object> sources = resolveSources(definition.sources);
+        if (pool != null && sources.size() > 1) {
+            jcl.addAll(sources, pool);
+        } else {
+            jcl.addAll(sources);
+        }
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "JarClassLoader[{0}] built in {1} ms ({2} sources)", new Object[]{definition.name,
+                (System.nanoTime() - start) / 1000000, sources.size()});
+        }
+        return jcl;
+    }
 
-                if (res == null) {
-                    jcl.add(path);
+    private List<Object> resolveSources(List<String> paths) {
+        List<Object> sources = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            Object[] res = null;
+
+            for (PathResolver pr : pathResolvers) {
+                res = pr.resolvePath(path);
+
+                if (res != null) {
+                    sources.addAll(Arrays.asList(res));
+                    break;
                 }
             }
+
+            if (res == null) {
+                sources.add(path);
+            }
         }
+        return sources;
     }
 
-    private void processLoaders(JarClassLoader jcl, Node c) {
-        NodeList loaders = c.getChildNodes();
-        for (int k = 0; k < loaders.getLength(); k++) {
-            Node l = loaders.item(k);
-            if (l.getNodeName().equals(ELEMENT_LOADER)) {
-                switch (l.getAttributes().getNamedItem(ATTRIBUTE_NAME).getNodeValue()) {
-                    case JCL_PARENT:
-                        processLoader(jcl.getParentLoader(), l);
-                        break;
-                    case JCL_CURRENT:
-                        processLoader(jcl.getCurrentLoader(), l);
-                        break;
-                    case JCL_LOCAL:
-                        processLoader(jcl.getLocalLoader(), l);
-                        break;
-                    case JCL_THREAD:
-                        processLoader(jcl.getThreadLoader(), l);
-                        break;
-                    case JCL_SYSTEM:
-                        processLoader(jcl.getSystemLoader(), l);
-                        break;
-                    case JCL_BOOTOSGI:
-                        processLoader(jcl.getOsgiBootLoader(), l);
-                        break;
-                    default:
-                        Objenesis objenesis = new ObjenesisStd();
-                        Class<?> clazz = null;
-                        try {
-                            clazz = getClass().getClassLoader().loadClass(
-                                    l.getAttributes().getNamedItem(ATTRIBUTE_CLASS).getNodeValue());
-                        } catch (DOMException | ClassNotFoundException e) {
-                            throw new JclContextException(e);
-                        }   ProxyClassLoader pcl = (ProxyClassLoader) objenesis.newInstance(clazz);
-                    jcl.addLoader(pcl);
-                        processLoader(pcl, l);
-                        break;
+    /**
+     * 创建代理供应器, provider可以是jdk, cglib或ProxyProvider的类名
+     *
+     * @param provider
+     * @return ProxyProvider
+     */
+    private ProxyProvider newProxyProvider(String provider) {
+        switch (provider) {
+            case PROXY_JDK:
+                return new JdkProxyProvider();
+            case PROXY_CGLIB:
+                return new CglibProxyProvider();
+            default:
+                try {
+                    return (ProxyProvider) getClass().getClassLoader().loadClass(provider).getDeclaredConstructor()
+                        .newInstance();
+                } catch (InvocationTargetException e) {
+                    throw new JclContextException("Failed to create proxy provider " + provider, e.getCause());
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new JclContextException("Failed to create proxy provider " + provider, e);
                 }
-            }
         }
     }
 
-    private void processLoader(ProxyClassLoader loader, Node node) {
-        NodeList oe = node.getChildNodes();
-        for (int i = 0; i < oe.getLength(); i++) {
-            Node noe = oe.item(i);
-            if (noe.getNodeName().equals(ELEMENT_ORDER) && !(loader instanceof AbstractClassLoader.OsgiBootLoader)) {
-                loader.setOrder(Integer.parseInt(noe.getTextContent()));
-            } else if (noe.getNodeName().equals(ELEMENT_ENABLED)) {
-                loader.setEnabled(Boolean.parseBoolean(noe.getTextContent()));
-            } else if (noe.getNodeName().equals(ELEMENT_STRICT)
-                    && loader instanceof AbstractClassLoader.OsgiBootLoader) {
-                ((AbstractClassLoader.OsgiBootLoader) loader).setStrictLoading(Boolean.parseBoolean(noe
-                        .getTextContent()));
-            } else if (noe.getNodeName().equals(ELEMENT_BOOT_DELEGATION)
-                    && loader instanceof AbstractClassLoader.OsgiBootLoader) {
-                ((AbstractClassLoader.OsgiBootLoader) loader).setBootDelagation(noe.getTextContent().split(","));
-            }
+    private void processLoader(JarClassLoader jcl, LoaderDefinition l) {
+        switch (l.name) {
+            case JCL_PARENT:
+                processLoader(jcl.getParentLoader(), l);
+                break;
+            case JCL_CURRENT:
+                processLoader(jcl.getCurrentLoader(), l);
+                break;
+            case JCL_LOCAL:
+                processLoader(jcl.getLocalLoader(), l);
+                break;
+            case JCL_THREAD:
+                processLoader(jcl.getThreadLoader(), l);
+                break;
+            case JCL_SYSTEM:
+                processLoader(jcl.getSystemLoader(), l);
+                break;
+            case JCL_BOOTOSGI:
+                processLoader(jcl.getOsgiBootLoader(), l);
+                break;
+            default:
+                Objenesis objenesis = new ObjenesisStd();
+                Class<?> clazz = null;
+                try {
+                    clazz = getClass().getClassLoader().loadClass(l.className);
+                } catch (ClassNotFoundException | NullPointerException e) {
+                    throw new JclContextException(e);
+                }
+                ProxyClassLoader pcl = (ProxyClassLoader) objenesis.newInstance(clazz);
+                jcl.addLoader(pcl);
+                processLoader(pcl, l);
+                break;
+        }
+    }
+
+    private void processLoader(ProxyClassLoader loader, LoaderDefinition l) {
+        boolean osgiBoot = loader instanceof AbstractClassLoader.OsgiBootLoader;
+
+        if (l.order != null && !osgiBoot) {
+            loader.setOrder(l.order);
+        }
+        if (l.enabled != null) {
+            loader.setEnabled(l.enabled);
+        }
+        if (l.strict != null && osgiBoot) {
+            ((AbstractClassLoader.OsgiBootLoader) loader).setStrictLoading(l.strict);
+        }
+        if (l.bootDelegation != null && osgiBoot) {
+            ((AbstractClassLoader.OsgiBootLoader) loader).setBootDelagation(l.bootDelegation);
         }
 
         if (logger.isLoggable(Level.FINEST)) {
@@ -248,7 +745,54 @@ public class XmlContextLoader implements JclContextLoader {
         }
     }
 
+    /**
+     * 是否通过jcl-context.xsd校验文件,默认为true.可以为可信的生成文件关闭校验
+     *
+     * @param validating
+     */
+    public void setValidating(boolean validating) {
+        this.validating = validating;
+    }
+
+    /**
+     * 设置创建JarClassLoader与读取sources的并行度,为1时在当前线程中依次创建
+     *
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     public void addPathResolver(PathResolver pr) {
         pathResolvers.add(pr);
     }
+
+    /**
+     * 每个JVM只编译一次的jcl-context.xsd与StAX工厂,二者都是线程安全的
+     */
+    private static final class ContextSchema {
+        static final Schema SCHEMA = compile();
+        static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+        private static Schema compile() {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            try {
+                return schemaFactory.newSchema(new StreamSource(XmlContextLoader.class.getClassLoader()
+                    .getResourceAsStream(JCL_CONTEXT_SCHEMA)));
+            } catch (SAXException e) {
+                throw new JclContextException(e);
+            }
+        }
+
+        private static XMLInputFactory newInputFactory() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            return factory;
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JclObjectFactory.create的JFR事件
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@Name("cn.vicky.engine.classloader.CreateObject")
+@Label("JCL Create Object")
+@Category({ "JCL", "Object Factory" })
+@Threshold("1 ms")
+final class CreateObjectEvent extends jdk.jfr.Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Class Loader")
+    String loader;
+
+    @Label("Factory Method")
+    @Description("The static method used to create the object, null for a constructor")
+    String factoryMethod;
+
+    @Label("Created")
+    boolean created;
+}
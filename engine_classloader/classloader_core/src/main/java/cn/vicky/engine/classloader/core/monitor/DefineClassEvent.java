@@ -0,0 +1,31 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * LocalLoader中defineClass的JFR事件
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@Name("cn.vicky.engine.classloader.DefineClass")
+@Label("JCL Define Class")
+@Category({ "JCL", "Class Loading" })
+@Threshold("1 ms")
+final class DefineClassEvent extends jdk.jfr.Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Class Loader")
+    String loader;
+
+    @Label("Size")
+    @DataAmount
+    int bytes;
+}
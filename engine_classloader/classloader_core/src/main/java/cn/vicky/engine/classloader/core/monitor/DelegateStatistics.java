@@ -0,0 +1,67 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 某一时刻一个代理(ProxyClassLoader)的查找统计,在JMX中作为CompositeData
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class DelegateStatistics {
+
+    private final String name;
+    private final int order;
+    private final boolean enabled;
+    private final long hits;
+    private final long misses;
+    private final long timeNanos;
+    private final long timeP50Nanos;
+    private final long timeP99Nanos;
+
+    @ConstructorProperties({ "name", "order", "enabled", "hits", "misses", "timeNanos", "timeP50Nanos", "timeP99Nanos" })
+    public DelegateStatistics(String name, int order, boolean enabled, long hits, long misses, long timeNanos, long timeP50Nanos,
+            long timeP99Nanos) {
+        this.name = name;
+        this.order = order;
+        this.enabled = enabled;
+        this.hits = hits;
+        this.misses = misses;
+        this.timeNanos = timeNanos;
+        this.timeP50Nanos = timeP50Nanos;
+        this.timeP99Nanos = timeP99Nanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    public long getTimeP50Nanos() {
+        return timeP50Nanos;
+    }
+
+    public long getTimeP99Nanos() {
+        return timeP99Nanos;
+    }
+}
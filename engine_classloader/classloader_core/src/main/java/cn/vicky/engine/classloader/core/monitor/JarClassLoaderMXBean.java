@@ -0,0 +1,60 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+/**
+ * JclContext中一个JarClassLoader的类加载统计.耗时的单位都是纳秒,百分位数是近似值
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public interface JarClassLoaderMXBean {
+
+    /**
+     * @return JclContext中的名称
+     */
+    String getName();
+
+    /**
+     * @return 本加载器定义的类的数量
+     */
+    int getDefinedClasses();
+
+    /**
+     * @return JarResources中资源的数量
+     */
+    int getResources();
+
+    /**
+     * @return JarResources中资源的字节数
+     */
+    long getResourceBytes();
+
+    /**
+     * @return 所有代理都没有找到类的次数
+     */
+    long getNegativeLookups();
+
+    long getDefineCount();
+
+    long getDefineTimeNanos();
+
+    long getDefineTimeP50Nanos();
+
+    long getDefineTimeP99Nanos();
+
+    /**
+     * @return 读取jar,目录等资源的次数
+     */
+    long getIngestCount();
+
+    long getIngestTimeNanos();
+
+    long getIngestTimeP99Nanos();
+
+    /**
+     * @return 每个代理的查找统计
+     */
+    DelegateStatistics[] getDelegates();
+
+    void resetStatistics();
+}
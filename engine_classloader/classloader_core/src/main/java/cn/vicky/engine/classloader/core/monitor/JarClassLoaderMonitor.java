@@ -0,0 +1,199 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import cn.vicky.engine.classloader.core.Configuration;
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.ProxyClassLoader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * JarClassLoaderMXBean的实现,以及在平台MBeanServer中的注册.
+ * 只持有JarClassLoader的弱引用,注册不会阻止它被回收
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class JarClassLoaderMonitor implements JarClassLoaderMXBean {
+
+    public static final String DOMAIN = "cn.vicky.engine.classloader";
+
+    private static final boolean ENABLED = Configuration.isJmxEnabled();
+
+    private final String name;
+    private final WeakReference<JarClassLoader> jcl;
+
+    private static final Logger logger = Logger.getLogger( JarClassLoaderMonitor.class.getName() );
+
+    private JarClassLoaderMonitor(String name, JarClassLoader jcl) {
+        this.name = name;
+        this.jcl = new WeakReference<>( jcl );
+    }
+
+    /**
+     * 注册jcl的MBean,同名的MBean已经存在时替换
+     *
+     * @param context JclContext的名称
+     * @param name JarClassLoader在JclContext中的名称
+     * @param jcl
+     */
+    public static void register(String context, String name, JarClassLoader jcl) {
+        if (!ENABLED)
+            return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = objectName( context, name );
+            synchronized (JarClassLoaderMonitor.class) {
+                if (server.isRegistered( objectName ))
+                    server.unregisterMBean( objectName );
+                server.registerMBean( new JarClassLoaderMonitor( name, jcl ), objectName );
+            }
+        } catch (JMException e) {
+            logger.log( Level.WARNING, "Failed to register the MBean of JarClassLoader[" + name + "]", e );
+        }
+    }
+
+    /**
+     * @param context
+     * @param name
+     */
+    public static void unregister(String context, String name) {
+        if (!ENABLED)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName( context, name ) );
+        } catch (InstanceNotFoundException e) {
+            // 已经被替换或注销
+        } catch (JMException e) {
+            logger.log( Level.WARNING, "Failed to unregister the MBean of JarClassLoader[" + name + "]", e );
+        }
+    }
+
+    public static ObjectName objectName(String context, String name) throws JMException {
+        return new ObjectName( DOMAIN + ":type=JarClassLoader,context=" + ObjectName.quote( context ) + ",name="
+                + ObjectName.quote( name ) );
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getDefinedClasses() {
+        JarClassLoader l = jcl.get();
+        return l == null ? 0 : l.getLoadedClasses().size();
+    }
+
+    @Override
+    public int getResources() {
+        JarClassLoader l = jcl.get();
+        return l == null ? 0 : l.getLoadedResources().size();
+    }
+
+    @Override
+    public long getResourceBytes() {
+        JarClassLoader l = jcl.get();
+        if (l == null)
+            return 0;
+
+        long bytes = 0;
+        for (byte[] b : l.getLoadedResources().values()) {
+            bytes += b.length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getNegativeLookups() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getNegativeLookups();
+    }
+
+    @Override
+    public long getDefineCount() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getDefine().getCount();
+    }
+
+    @Override
+    public long getDefineTimeNanos() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getDefine().getTotalNanos();
+    }
+
+    @Override
+    public long getDefineTimeP50Nanos() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getDefine().getPercentileNanos( 50 );
+    }
+
+    @Override
+    public long getDefineTimeP99Nanos() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getDefine().getPercentileNanos( 99 );
+    }
+
+    @Override
+    public long getIngestCount() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getIngest().getCount();
+    }
+
+    @Override
+    public long getIngestTimeNanos() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getIngest().getTotalNanos();
+    }
+
+    @Override
+    public long getIngestTimeP99Nanos() {
+        LoaderStatistics s = statistics();
+        return s == null ? 0 : s.getIngest().getPercentileNanos( 99 );
+    }
+
+    @Override
+    public DelegateStatistics[] getDelegates() {
+        JarClassLoader l = jcl.get();
+        if (l == null)
+            return new DelegateStatistics[0];
+
+        List<ProxyClassLoader> loaders = l.getLoaders();
+        DelegateStatistics[] delegates = new DelegateStatistics[loaders.size()];
+        for (int i = 0; i < delegates.length; i++) {
+            ProxyClassLoader p = loaders.get( i );
+            LookupStatistics s = p.getStatistics();
+            delegates[i] = new DelegateStatistics( p.getClass().getSimpleName(), p.getOrder(), p.isEnabled(), s.getHits(),
+                    s.getMisses(), s.getTime().getTotalNanos(), s.getTime().getPercentileNanos( 50 ),
+                    s.getTime().getPercentileNanos( 99 ) );
+        }
+        return delegates;
+    }
+
+    @Override
+    public void resetStatistics() {
+        JarClassLoader l = jcl.get();
+        if (l != null) {
+            l.getStatistics().reset();
+            for (ProxyClassLoader p : l.getLoaders()) {
+                p.getStatistics().reset();
+            }
+        }
+    }
+
+    private LoaderStatistics statistics() {
+        JarClassLoader l = jcl.get();
+        return l == null ? null : l.getStatistics();
+    }
+}
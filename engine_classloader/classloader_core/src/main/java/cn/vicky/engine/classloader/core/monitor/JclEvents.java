@@ -0,0 +1,189 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import cn.vicky.engine.classloader.core.Configuration;
+import cn.vicky.engine.classloader.core.ProxyClassLoader;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * 发出JCL的JFR事件.
+ * 事件类只在JFR可用时由Recorder加载,因此在没有jdk.jfr的JVM上也可以运行;
+ * 没有记录开启对应事件时begin返回null,commit不做任何事.
+ * 阈值可以在.jfc中通过事件名称cn.vicky.engine.classloader.*覆盖
+ *
+ * <pre>
+ * Object event = JclEvents.beginLoadJar();
+ * ...
+ * JclEvents.commitLoadJar( event, source, entries, bytes );
+ * </pre>
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class JclEvents {
+
+    /**
+     * JFR可用并且没有通过jcl.jfr关闭
+     */
+    public static final boolean ENABLED = Configuration.isJfrEnabled() && isAvailable();
+
+    private JclEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName( "jdk.jfr.Event", false, JclEvents.class.getClassLoader() );
+            return FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static Object beginLoadClass() {
+        return ENABLED ? Recorder.beginLoadClass() : null;
+    }
+
+    /**
+     * @param event beginLoadClass的返回值
+     * @param loader
+     * @param className
+     * @param delegate 找到类的代理,没有找到时为null
+     */
+    public static void commitLoadClass(Object event, ClassLoader loader, String className, ProxyClassLoader delegate) {
+        if (event != null)
+            Recorder.commitLoadClass( event, loader, className, delegate );
+    }
+
+    public static Object beginDefineClass() {
+        return ENABLED ? Recorder.beginDefineClass() : null;
+    }
+
+    public static void commitDefineClass(Object event, ClassLoader loader, String className, int bytes) {
+        if (event != null)
+            Recorder.commitDefineClass( event, loader, className, bytes );
+    }
+
+    public static Object beginLoadJar() {
+        return ENABLED ? Recorder.beginLoadJar() : null;
+    }
+
+    public static void commitLoadJar(Object event, String source, int entries, long bytes) {
+        if (event != null)
+            Recorder.commitLoadJar( event, source, entries, bytes );
+    }
+
+    public static Object beginCreateObject() {
+        return ENABLED ? Recorder.beginCreateObject() : null;
+    }
+
+    /**
+     * @param event beginCreateObject的返回值
+     * @param loader
+     * @param className
+     * @param factoryMethod 静态工厂方法,使用构造函数时为null
+     * @param created 是否成功创建
+     */
+    public static void commitCreateObject(Object event, ClassLoader loader, String className, String factoryMethod,
+            boolean created) {
+        if (event != null)
+            Recorder.commitCreateObject( event, loader, className, factoryMethod, created );
+    }
+
+    private static String name(Object object) {
+        return object.getClass().getName() + "@" + Integer.toHexString( System.identityHashCode( object ) );
+    }
+
+    /**
+     * 引用jdk.jfr的事件类,只在ENABLED时加载
+     */
+    private static final class Recorder {
+        private static final EventType LOAD_CLASS = EventType.getEventType( LoadClassEvent.class );
+        private static final EventType DEFINE_CLASS = EventType.getEventType( DefineClassEvent.class );
+        private static final EventType LOAD_JAR = EventType.getEventType( LoadJarEvent.class );
+        private static final EventType CREATE_OBJECT = EventType.getEventType( CreateObjectEvent.class );
+
+        static Object beginLoadClass() {
+            if (!LOAD_CLASS.isEnabled())
+                return null;
+
+            LoadClassEvent event = new LoadClassEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commitLoadClass(Object e, ClassLoader loader, String className, ProxyClassLoader delegate) {
+            LoadClassEvent event = (LoadClassEvent) e;
+            event.end();
+            if (event.shouldCommit()) {
+                event.className = className;
+                event.loader = name( loader );
+                event.delegate = delegate == null ? null : delegate.getClass().getSimpleName();
+                event.found = delegate != null;
+                event.commit();
+            }
+        }
+
+        static Object beginDefineClass() {
+            if (!DEFINE_CLASS.isEnabled())
+                return null;
+
+            DefineClassEvent event = new DefineClassEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commitDefineClass(Object e, ClassLoader loader, String className, int bytes) {
+            DefineClassEvent event = (DefineClassEvent) e;
+            event.end();
+            if (event.shouldCommit()) {
+                event.className = className;
+                event.loader = name( loader );
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+
+        static Object beginLoadJar() {
+            if (!LOAD_JAR.isEnabled())
+                return null;
+
+            LoadJarEvent event = new LoadJarEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commitLoadJar(Object e, String source, int entries, long bytes) {
+            LoadJarEvent event = (LoadJarEvent) e;
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source;
+                event.entries = entries;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+
+        static Object beginCreateObject() {
+            if (!CREATE_OBJECT.isEnabled())
+                return null;
+
+            CreateObjectEvent event = new CreateObjectEvent();
+            event.begin();
+            return event;
+        }
+
+        static void commitCreateObject(Object e, ClassLoader loader, String className, String factoryMethod, boolean created) {
+            CreateObjectEvent event = (CreateObjectEvent) e;
+            event.end();
+            if (event.shouldCommit()) {
+                event.className = className;
+                event.loader = name( loader );
+                event.factoryMethod = factoryMethod;
+                event.created = created;
+                event.commit();
+            }
+        }
+    }
+}
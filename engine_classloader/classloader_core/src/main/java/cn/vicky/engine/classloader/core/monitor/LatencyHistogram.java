@@ -0,0 +1,104 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图.每个2的幂区间分为两个桶,百分位数返回所在桶的上界,误差不超过50%;
+ * 计数使用LongAdder,多线程记录时没有竞争.桶在第一次使用时创建
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class LatencyHistogram {
+
+    private static final int MAX_EXPONENT = 47;
+    private static final int BUCKETS = ( MAX_EXPONENT + 1 ) * 2;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>( BUCKETS );
+
+    /**
+     * @param nanos
+     */
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add( nanos );
+
+        int i = bucket( nanos );
+        LongAdder b = buckets.get( i );
+        if (b == null) {
+            buckets.compareAndSet( i, null, new LongAdder() );
+            b = buckets.get( i );
+        }
+        b.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @param percentile 0到100
+     * @return 近似的百分位数,单位纳秒,没有记录时为0
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            LongAdder b = buckets.get( i );
+            if (b != null) {
+                counts[i] = b.sum();
+                total += counts[i];
+            }
+        }
+
+        if (total == 0)
+            return 0;
+
+        long rank = (long) Math.ceil( total * Math.min( 100, Math.max( 0, percentile ) ) / 100 );
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0)
+                return upperBound( i );
+        }
+        return upperBound( BUCKETS - 1 );
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            LongAdder b = buckets.get( i );
+            if (b != null)
+                b.reset();
+        }
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < 2)
+            return nanos < 0 ? 0 : (int) nanos;
+
+        int exponent = 63 - Long.numberOfLeadingZeros( nanos );
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+
+        return exponent * 2 + (int) ( ( nanos >>> ( exponent - 1 ) ) & 1 );
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 2)
+            return bucket;
+
+        int exponent = bucket >> 1;
+        long lower = ( 2L | ( bucket & 1 ) ) << ( exponent - 1 );
+        return lower + ( 1L << ( exponent - 1 ) ) - 1;
+    }
+}
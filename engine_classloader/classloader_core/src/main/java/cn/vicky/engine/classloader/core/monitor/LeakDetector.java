@@ -0,0 +1,245 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import cn.vicky.engine.classloader.core.Configuration;
+import cn.vicky.engine.classloader.core.JarClassLoader;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * JarClassLoader泄漏检测.
+ * 释放(从JclContext中移除,或ReloadableJarClassLoader的旧一代释放)的JarClassLoader以弱引用登记,
+ * 经过指定次数的GC后仍未被回收的视为泄漏,报告其持有的字节数以及可能的引用路径.
+ * 只计算能卸载类的GC(老年代或整堆GC,以及ZGC/Shenandoah等并发收集器的整堆周期),年轻代GC不会回收已晋升的JarClassLoader
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class LeakDetector {
+
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private static final LeakDetector leakDetector = new LeakDetector();
+
+    private final ReferenceQueue<JarClassLoader> queue = new ReferenceQueue<>();
+    private final Set<Released> released = ConcurrentHashMap.newKeySet();
+    // 开始监听后能卸载类的GC次数
+    private final AtomicLong unloadingGcCount = new AtomicLong();
+    private volatile boolean enabled = Configuration.isLeakDetectionEnabled();
+    private volatile int gcCount = Configuration.getLeakDetectionGcCount();
+    private volatile boolean listening;
+
+    private static final Logger logger = Logger.getLogger( LeakDetector.class.getName() );
+
+    private LeakDetector() {
+    }
+
+    /**
+     * 单例模式
+     *
+     * @return LeakDetector
+     */
+    public static LeakDetector getInstance() {
+        return leakDetector;
+    }
+
+    /**
+     * 登记一个已经释放,应该被回收的JarClassLoader
+     *
+     * @param name
+     * @param jcl
+     */
+    public void released(String name, JarClassLoader jcl) {
+        if (!enabled || jcl == null)
+            return;
+
+        expunge();
+
+        // 在记录GC次数之前开始计数
+        if (!listening)
+            listen();
+
+        long bytes = 0;
+        for (byte[] b : jcl.getLoadedResources().values()) {
+            bytes += b.length;
+        }
+        released.add( new Released( name, jcl, queue, bytes, jcl.getLoadedClasses().size(), unloadingGcCount.get() ) );
+    }
+
+    /**
+     * 检查经过gcCount次GC后仍未被回收的JarClassLoader
+     *
+     * @return 泄漏报告
+     */
+    public List<LeakReport> check() {
+        List<LeakReport> reports = new ArrayList<>();
+        for (Released r : leaked()) {
+            LeakReport report = r.report( unloadingGcCount.get() );
+            if (report != null)
+                reports.add( report );
+        }
+        return reports;
+    }
+
+    /**
+     * @return 泄漏的JarClassLoader的数量
+     */
+    public int getLeakedCount() {
+        return leaked().size();
+    }
+
+    /**
+     * @return 泄漏的JarClassLoader释放时持有的资源字节数
+     */
+    public long getLeakedBytes() {
+        long bytes = 0;
+        for (Released r : leaked()) {
+            bytes += r.bytes;
+        }
+        return bytes;
+    }
+
+    private List<Released> leaked() {
+        expunge();
+
+        List<Released> leaked = new ArrayList<>();
+        long gcs = unloadingGcCount.get();
+        for (Released r : released) {
+            if (gcs - r.gcCount >= gcCount && r.get() != null)
+                leaked.add( r );
+        }
+        return leaked;
+    }
+
+    /**
+     * @return 已经释放但还没有被回收的JarClassLoader的数量,包括还没有达到GC次数的
+     */
+    public int getPendingCount() {
+        expunge();
+        return released.size();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled)
+            released.clear();
+    }
+
+    public int getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * 设置释放后经过多少次GC仍未被回收的JarClassLoader被视为泄漏
+     *
+     * @param gcCount
+     */
+    public void setGcCount(int gcCount) {
+        if (gcCount < 1)
+            throw new IllegalArgumentException( "gcCount must be at least 1" );
+        this.gcCount = gcCount;
+    }
+
+    private void expunge() {
+        Object ref;
+        while (( ref = queue.poll() ) != null) {
+            released.remove( ref );
+        }
+    }
+
+    /**
+     * 统计能卸载类的GC,每次这样的GC后检查新出现的泄漏并记录警告
+     */
+    private synchronized void listen() {
+        if (listening)
+            return;
+        listening = true;
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                ( (NotificationEmitter) gc ).addNotificationListener( (notification, handback) -> {
+                    if (GC_NOTIFICATION.equals( notification.getType() )
+                            && unloadsClasses( GarbageCollectionNotificationInfo.from( (CompositeData) notification.getUserData() ) )) {
+                        unloadingGcCount.incrementAndGet();
+                        warnNewLeaks();
+                    }
+                }, null, null );
+            }
+        }
+    }
+
+    /**
+     * 老年代与整堆GC,以及并发收集器(ZGC,Shenandoah)的GC周期,分代ZGC的年轻代周期除外
+     */
+    private static boolean unloadsClasses(GarbageCollectionNotificationInfo info) {
+        String action = info.getGcAction();
+        return "end of major GC".equals( action )
+                || "end of GC cycle".equals( action ) && !info.getGcName().contains( "Minor" );
+    }
+
+    private void warnNewLeaks() {
+        if (released.isEmpty() || !logger.isLoggable( Level.WARNING ))
+            return;
+
+        for (Released r : leaked()) {
+            if (!r.reported) {
+                LeakReport report = r.report( unloadingGcCount.get() );
+                if (report != null) {
+                    r.reported = true;
+                    logger.warning( report.toString() );
+                }
+            }
+        }
+    }
+
+    /**
+     * 释放的JarClassLoader
+     */
+    private static final class Released extends WeakReference<JarClassLoader> {
+        private final String name;
+        private final long releasedAt = System.currentTimeMillis();
+        private final long bytes;
+        private final int classes;
+        private final long gcCount;
+        private volatile boolean reported;
+
+        private Released(String name, JarClassLoader jcl, ReferenceQueue<JarClassLoader> queue, long bytes, int classes, long gcCount) {
+            super( jcl, queue );
+            this.name = name;
+            this.bytes = bytes;
+            this.classes = classes;
+            this.gcCount = gcCount;
+        }
+
+        /**
+         * @param gcs 当前能卸载类的GC次数
+         * @return 报告,已经被回收时为null
+         */
+        private LeakReport report(long gcs) {
+            JarClassLoader jcl = get();
+            if (jcl == null)
+                return null;
+
+            return new LeakReport( name, jcl.toString(), releasedAt, gcs - gcCount, bytes, classes, Retention.paths( jcl ) );
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 一个释放后没有被回收的JarClassLoader,以及可能持有它的引用
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class LeakReport {
+
+    private final String name;
+    private final String loader;
+    private final long releasedAt;
+    private final long gcCount;
+    private final long bytes;
+    private final int classes;
+    private final List<String> retentionPaths;
+
+    LeakReport(String name, String loader, long releasedAt, long gcCount, long bytes, int classes, List<String> retentionPaths) {
+        this.name = name;
+        this.loader = loader;
+        this.releasedAt = releasedAt;
+        this.gcCount = gcCount;
+        this.bytes = bytes;
+        this.classes = classes;
+        this.retentionPaths = Collections.unmodifiableList( retentionPaths );
+    }
+
+    /**
+     * @return 释放时使用的名称,如JclContext中的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return JarClassLoader的toString
+     */
+    public String getLoader() {
+        return loader;
+    }
+
+    public long getReleasedAt() {
+        return releasedAt;
+    }
+
+    /**
+     * @return 释放后经过的GC次数
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return 释放时加载器持有的资源字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return 释放时加载器定义的类的数量
+     */
+    public int getClasses() {
+        return classes;
+    }
+
+    /**
+     * @return 找到的可能的引用路径,为空时说明引用来自其他地方,如静态缓存
+     */
+    public List<String> getRetentionPaths() {
+        return retentionPaths;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "JarClassLoader[" ).append( name ).append( "] " ).append( loader ).append( " released at " )
+                .append( new Date( releasedAt ) ).append( " is not collected after " ).append( gcCount ).append( " GCs, holding " )
+                .append( bytes ).append( " bytes and " ).append( classes ).append( " classes" );
+
+        if (retentionPaths.isEmpty()) {
+            sb.append( "\n  no thread, ThreadLocal or shutdown hook references found" );
+        }
+        for (String path : retentionPaths) {
+            sb.append( "\n  " ).append( path );
+        }
+        return sb.toString();
+    }
+}
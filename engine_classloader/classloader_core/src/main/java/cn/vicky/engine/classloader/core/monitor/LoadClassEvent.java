@@ -0,0 +1,34 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * AbstractClassLoader.loadClass的JFR事件
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@Name("cn.vicky.engine.classloader.LoadClass")
+@Label("JCL Load Class")
+@Category({ "JCL", "Class Loading" })
+@Threshold("1 ms")
+final class LoadClassEvent extends jdk.jfr.Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Class Loader")
+    String loader;
+
+    @Label("Delegate")
+    @Description("The ProxyClassLoader that found the class")
+    String delegate;
+
+    @Label("Found")
+    boolean found;
+}
@@ -0,0 +1,31 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JarResources.loadJar的JFR事件
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+@Name("cn.vicky.engine.classloader.LoadJar")
+@Label("JCL Load Jar")
+@Category({ "JCL", "Resources" })
+@Threshold("10 ms")
+final class LoadJarEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+}
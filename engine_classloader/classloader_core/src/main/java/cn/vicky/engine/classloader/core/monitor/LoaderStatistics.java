@@ -0,0 +1,53 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import cn.vicky.engine.classloader.core.Configuration;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个类加载器的统计: defineClass与读取资源的耗时,以及所有代理都没有找到类的次数.
+ * 各个代理的查找统计在ProxyClassLoader中
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class LoaderStatistics {
+
+    /**
+     * 是否收集统计,通过jcl.statistics设置
+     */
+    public static final boolean ENABLED = Configuration.isStatisticsEnabled();
+
+    private final LongAdder negativeLookups = new LongAdder();
+    private final LatencyHistogram define = new LatencyHistogram();
+    private final LatencyHistogram ingest = new LatencyHistogram();
+
+    public void negativeLookup() {
+        negativeLookups.increment();
+    }
+
+    public long getNegativeLookups() {
+        return negativeLookups.sum();
+    }
+
+    /**
+     * @return defineClass的耗时
+     */
+    public LatencyHistogram getDefine() {
+        return define;
+    }
+
+    /**
+     * @return 读取jar,目录等资源的耗时
+     */
+    public LatencyHistogram getIngest() {
+        return ingest;
+    }
+
+    public void reset() {
+        negativeLookups.reset();
+        define.reset();
+        ingest.reset();
+    }
+}
@@ -0,0 +1,47 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个ProxyClassLoader的查找统计: 找到与没有找到类的次数以及耗时
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class LookupStatistics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LatencyHistogram time = new LatencyHistogram();
+
+    /**
+     * @param found
+     * @param nanos
+     */
+    public void record(boolean found, long nanos) {
+        if (found)
+            hits.increment();
+        else
+            misses.increment();
+        time.record( nanos );
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public LatencyHistogram getTime() {
+        return time;
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        time.reset();
+    }
+}
@@ -0,0 +1,143 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import cn.vicky.engine.classloader.core.utils.JdkInternals;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 查找可能持有某个ClassLoader的引用: 线程的上下文类加载器,线程本身,线程的ThreadLocal以及shutdown hook.
+ * ThreadLocal与shutdown hook通过JdkInternals读取JDK的内部字段,Unsafe不可用时跳过
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class Retention {
+
+    private static final Logger logger = Logger.getLogger( Retention.class.getName() );
+
+    private static final long THREAD_LOCALS = fieldOffset( Thread.class, "threadLocals" );
+    private static final long INHERITABLE_THREAD_LOCALS = fieldOffset( Thread.class, "inheritableThreadLocals" );
+    private static final long TABLE = fieldOffset( "java.lang.ThreadLocal$ThreadLocalMap", "table" );
+    private static final long VALUE = fieldOffset( "java.lang.ThreadLocal$ThreadLocalMap$Entry", "value" );
+
+    private Retention() {
+    }
+
+    /**
+     * @param cl
+     * @return 可能的引用路径的描述
+     */
+    static List<String> paths(ClassLoader cl) {
+        List<String> paths = new ArrayList<>();
+
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            String thread = "Thread[" + t.getName() + "]";
+            if (t.getContextClassLoader() == cl)
+                paths.add( thread + " has it as context class loader" );
+            if (t.getClass().getClassLoader() == cl)
+                paths.add( thread + " is an instance of " + t.getClass().getName() );
+
+            threadLocals( t, THREAD_LOCALS, thread + " ThreadLocal ", cl, paths );
+            threadLocals( t, INHERITABLE_THREAD_LOCALS, thread + " InheritableThreadLocal ", cl, paths );
+        }
+
+        for (Thread hook : shutdownHooks()) {
+            if (hook.getContextClassLoader() == cl || hook.getClass().getClassLoader() == cl)
+                paths.add( "Shutdown hook Thread[" + hook.getName() + "]" );
+        }
+
+        return paths;
+    }
+
+    private static void threadLocals(Thread t, long field, String prefix, ClassLoader cl, List<String> paths) {
+        if (field < 0 || TABLE < 0 || VALUE < 0)
+            return;
+
+        Object map = JdkInternals.getObject( t, field );
+        if (map == null)
+            return;
+
+        Object[] table = (Object[]) JdkInternals.getObject( map, TABLE );
+        for (Object entry : table) {
+            if (entry == null)
+                continue;
+
+            Object value = JdkInternals.getObject( entry, VALUE );
+            if (holds( value, cl )) {
+                Object key = ( (Reference) entry ).get();
+                paths.add( prefix + ( key == null ? "(stale)" : key.getClass().getName() ) + " holds " + describe( value ) );
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Thread> shutdownHooks() {
+        List<Thread> hooks = new ArrayList<>();
+        if (!JdkInternals.isAvailable())
+            return hooks;
+
+        try {
+            Class c = Class.forName( "java.lang.ApplicationShutdownHooks" );
+            Field f = c.getDeclaredField( "hooks" );
+            synchronized (c) {
+                Map<Thread, Thread> map = (Map<Thread, Thread>) JdkInternals.getStaticObject( f );
+                if (map != null)
+                    hooks.addAll( map.keySet() );
+            }
+        } catch (ClassNotFoundException | NoSuchFieldException | RuntimeException e) {
+            if (logger.isLoggable( Level.FINE ))
+                logger.log( Level.FINE, "Shutdown hooks are not accessible", e );
+        }
+        return hooks;
+    }
+
+    /**
+     * value是否是cl本身,或是cl加载的类或其实例
+     */
+    private static boolean holds(Object value, ClassLoader cl) {
+        if (value == null)
+            return false;
+        if (value == cl)
+            return true;
+
+        Class c = value instanceof Class ? (Class) value : value.getClass();
+        return c.getClassLoader() == cl;
+    }
+
+    private static String describe(Object value) {
+        if (value instanceof ClassLoader)
+            return "the class loader";
+        if (value instanceof Class)
+            return "class " + ( (Class) value ).getName();
+        return "an instance of " + value.getClass().getName();
+    }
+
+    private static long fieldOffset(String className, String field) {
+        try {
+            return fieldOffset( Class.forName( className ), field );
+        } catch (ClassNotFoundException e) {
+            return -1;
+        }
+    }
+
+    private static long fieldOffset(Class c, String field) {
+        if (!JdkInternals.isAvailable())
+            return -1;
+
+        try {
+            return JdkInternals.objectFieldOffset( c.getDeclaredField( field ) );
+        } catch (NoSuchFieldException | RuntimeException e) {
+            if (logger.isLoggable( Level.FINE ))
+                logger.log( Level.FINE, c.getName() + "." + field + " is not accessible", e );
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package cn.vicky.engine.classloader.core.proxy;
+
+/**
+ * 按ProxyProviderFactory的选择结果准备并缓存的代理工厂,代理配置变更后重新选择
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class CachedProxyFactory implements ProxyFactory {
+
+    private final ClassLoader scope;
+    private final Class superClass;
+    private final Class[] interfaces;
+    private final ClassLoader cl;
+    private volatile Prepared prepared;
+
+    /**
+     * @param scope 被代理对象所在的ClassLoader,用于选择ProxyProvider
+     * @param superClass
+     * @param interfaces
+     * @param cl 定义代理类的ClassLoader
+     */
+    public CachedProxyFactory(ClassLoader scope, Class superClass, Class[] interfaces, ClassLoader cl) {
+        this.scope = scope;
+        this.superClass = superClass;
+        this.interfaces = interfaces;
+        this.cl = cl;
+    }
+
+    @Override
+    public Object newProxy(Object object) {
+        int generation = ProxyProviderFactory.getGeneration();
+
+        Prepared p = prepared;
+        if (p == null || p.generation != generation) {
+            ProxyProvider provider = ProxyProviderFactory.create( scope, interfaces );
+            p = new Prepared( generation, provider.prepare( superClass, interfaces, cl ) );
+            prepared = p;
+        }
+
+        return p.factory.newProxy( object );
+    }
+
+    private static final class Prepared {
+        private final int generation;
+        private final ProxyFactory factory;
+
+        private Prepared(int generation, ProxyFactory factory) {
+            this.generation = generation;
+            this.factory = factory;
+        }
+    }
+}
@@ -1,27 +1,61 @@
-
 package cn.vicky.engine.classloader.core.proxy;
 
 import cn.vicky.engine.classloader.core.JclUtils;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
+
 /**
  * cglib 是一个强大的，高性能，高质量的Code生成类库，它可以在运行期扩展Java类与实现Java接口。
  *      Hibernate用它来实现PO(Persistent Object 持久化对象)字节码的动态生成。
  * 创建cglib代理
- * 
+ *
+ * 代理类按(superClass, interfaces, classloader)只生成一次,之后通过Objenesis直接实例化缓存的代理类,
+ * 并为每个实例写入各自的回调. 缓存只弱引用ClassLoader与代理类,不会阻止JarClassLoader被回收
+ *
  * @author Vicky.H
  * @email ecliser@163.com
- * 
+ *
  */
 public class CglibProxyProvider implements ProxyProvider {
 
+    // Objenesis自带的缓存以类名为key,不同ClassLoader中的同名代理类会互相覆盖,因此自行缓存实例化器
+    private static final Objenesis objenesis = new ObjenesisStd( false );
+
+    /**
+     * 代理类缓存,挂在被代理的主类型上. 主类型通常由父ClassLoader加载而代理类定义在JarClassLoader中,
+     * 因此key与value都是弱引用,代理类随定义它的ClassLoader一起回收
+     */
+    private static final ClassValue<ConcurrentMap<ProxyKey, WeakReference<Class>>> proxyClasses = new ClassValue<ConcurrentMap<ProxyKey, WeakReference<Class>>>() {
+        @Override
+        protected ConcurrentMap<ProxyKey, WeakReference<Class>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * 代理类 -> 实例化器,挂在代理类自身上
+     */
+    private static final ClassValue<ObjectInstantiator> instantiators = new ClassValue<ObjectInstantiator>() {
+        @Override
+        protected ObjectInstantiator computeValue(Class<?> type) {
+            return objenesis.getInstantiatorOf( type );
+        }
+    };
+
     private class CglibProxyHandler implements MethodInterceptor {
         private final Object delegate;
 
@@ -30,7 +64,7 @@ public class CglibProxyProvider implements ProxyProvider {
         }
 
         /**
-         * 
+         *
          * @see net.sf.cglib.proxy.MethodInterceptor#intercept(java.lang.Object,
          *      java.lang.reflect.Method, java.lang.Object[],
          *      net.sf.cglib.proxy.MethodProxy)
@@ -44,30 +78,138 @@ public class CglibProxyProvider implements ProxyProvider {
 
     @Override
     public Object createProxy(Object object, Class superClass, Class[] interfaces, ClassLoader cl) {
-        CglibProxyHandler handler = new CglibProxyHandler( object );
+        return newProxy( getInstantiator( superClass, interfaces, cl ), object );
+    }
 
-        Enhancer enhancer = new Enhancer();
+    @Override
+    public ProxyFactory prepare(Class superClass, Class[] interfaces, ClassLoader cl) {
+        ObjectInstantiator instantiator = getInstantiator( superClass, interfaces, cl );
+        return (object) -> newProxy( instantiator, object );
+    }
 
-        if( superClass != null ) {
-            enhancer.setSuperclass( superClass );
-        }
+    private Object newProxy(ObjectInstantiator instantiator, Object object) {
+        Factory proxy = (Factory) instantiator.newInstance();
+        proxy.setCallback( 0, new CglibProxyHandler( object ) );
+        return proxy;
+    }
 
-        enhancer.setCallback( handler );
+    /**
+     * 返回缓存的代理类实例化器,代理类不存在时生成
+     *
+     * @param superClass
+     * @param interfaces
+     * @param cl
+     * @return ObjectInstantiator
+     */
+    private ObjectInstantiator getInstantiator(final Class superClass, Class[] interfaces, ClassLoader cl) {
+        List<Class> il = new ArrayList<>();
 
         if( interfaces != null ) {
-            List<Class> il = new ArrayList<>();
-
             for( Class i : interfaces ) {
                 if( i.isInterface() ) {
                     il.add( i );
                 }
             }
+        }
+
+        final Class[] proxyInterfaces = il.toArray( new Class[il.size()] );
+        final ClassLoader loader = cl == null ? JclUtils.class.getClassLoader() : cl;
+
+        Class anchor = superClass != null ? superClass : proxyInterfaces.length > 0 ? proxyInterfaces[0] : Object.class;
+
+        Object[] parts = new Object[proxyInterfaces.length + 2];
+        parts[0] = loader;
+        parts[1] = superClass;
+        System.arraycopy( proxyInterfaces, 0, parts, 2, proxyInterfaces.length );
+
+        ConcurrentMap<ProxyKey, WeakReference<Class>> classes = proxyClasses.get( anchor );
+        ProxyKey key = new ProxyKey( parts, false );
+
+        WeakReference<Class> ref = classes.get( key );
+        Class proxyClass = ref != null ? ref.get() : null;
+        if( proxyClass == null ) {
+            Enhancer enhancer = new Enhancer();
+
+            if( superClass != null ) {
+                enhancer.setSuperclass( superClass );
+            }
+
+            enhancer.setCallbackType( MethodInterceptor.class );
+            enhancer.setInterfaces( proxyInterfaces );
+            enhancer.setClassLoader( loader );
+
+            proxyClass = enhancer.createClass();
+
+            // 清除ClassLoader已被回收的条目
+            classes.values().removeIf( r -> r.get() == null );
+            classes.put( new ProxyKey( parts, true ), new WeakReference<>( proxyClass ) );
+        }
+
+        return instantiators.get( proxyClass );
+    }
+
+    /**
+     * 代理类缓存的key: (classloader, superClass, interfaces...),查找时强引用,存入缓存时弱引用
+     */
+    private static final class ProxyKey {
+        private final Object[] parts;
+        private final boolean weak;
+        private final int hash;
+
+        private ProxyKey(Object[] parts, boolean weak) {
+            int h = 1;
+            for( Object part : parts ) {
+                h = 31 * h + System.identityHashCode( part );
+            }
+            this.hash = h;
+            this.weak = weak;
+
+            if( weak ) {
+                Object[] refs = new Object[parts.length];
+                for( int i = 0; i < parts.length; i++ ) {
+                    refs[i] = parts[i] == null ? null : new WeakReference<>( parts[i] );
+                }
+                this.parts = refs;
+            } else {
+                this.parts = parts;
+            }
+        }
+
+        private Object part(int i) {
+            return weak && parts[i] != null ? ( (WeakReference<?>) parts[i] ).get() : parts[i];
+        }
 
-            enhancer.setInterfaces( il.toArray( new Class[il.size()] ) );
+        @Override
+        public int hashCode() {
+            return hash;
         }
 
-        enhancer.setClassLoader( cl == null ? JclUtils.class.getClassLoader() : cl );
+        @Override
+        public boolean equals(Object obj) {
+            if( this == obj ) {
+                return true;
+            }
+            if( !( obj instanceof ProxyKey ) ) {
+                return false;
+            }
+
+            ProxyKey other = (ProxyKey) obj;
+            if( hash != other.hash || parts.length != other.parts.length ) {
+                return false;
+            }
+
+            // 已被回收的ClassLoader不会与任何查找的key相同
+            Object loader = part( 0 );
+            if( loader == null || loader != other.part( 0 ) ) {
+                return false;
+            }
 
-        return enhancer.create();
+            for( int i = 1; i < parts.length; i++ ) {
+                if( part( i ) != other.part( i ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
@@ -40,4 +40,12 @@ public class JdkProxyProvider implements ProxyProvider {
         JdkProxyHandler handler = new JdkProxyHandler(object);
         return Proxy.newProxyInstance(cl == null ? JclUtils.class.getClassLoader() : cl, interfaces, handler);
     }
+
+    @Override
+    public ProxyFactory prepare(Class superClass, Class[] interfaces, ClassLoader cl) {
+        // Proxy按ClassLoader与接口缓存代理类及其构造函数
+        final ClassLoader loader = cl == null ? JclUtils.class.getClassLoader() : cl;
+        final Class[] proxyInterfaces = interfaces.clone();
+        return (object) -> Proxy.newProxyInstance(loader, proxyInterfaces, new JdkProxyHandler(object));
+    }
 }
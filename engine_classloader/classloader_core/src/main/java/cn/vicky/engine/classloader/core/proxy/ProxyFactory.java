@@ -0,0 +1,12 @@
+package cn.vicky.engine.classloader.core.proxy;
+
+/**
+ * 针对固定的(superClass, interfaces, classloader)准备好的代理工厂
+ * 
+ * @author Vicky.H
+ * @email ecliser@163.com
+ * 
+ */
+public interface ProxyFactory {
+    public Object newProxy(Object object);
+}
@@ -9,4 +9,16 @@ package cn.vicky.engine.classloader.core.proxy;
  */
 public interface ProxyProvider {
     public Object createProxy(Object object, Class superClass, Class[] interfaces, ClassLoader cl);
+
+    /**
+     * 为固定的类型组合准备代理工厂,实现类可以在此预先生成代理类,默认每次调用createProxy
+     * 
+     * @param superClass
+     * @param interfaces
+     * @param cl
+     * @return ProxyFactory
+     */
+    public default ProxyFactory prepare(Class superClass, Class[] interfaces, ClassLoader cl) {
+        return (object) -> createProxy( object, superClass, interfaces, cl );
+    }
 }
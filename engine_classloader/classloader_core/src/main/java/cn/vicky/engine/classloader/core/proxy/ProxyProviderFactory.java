@@ -1,5 +1,9 @@
 package cn.vicky.engine.classloader.core.proxy;
 
+import cn.vicky.engine.classloader.core.JarClassLoader;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author Vicky.H
  * @email ecliser@163.com
@@ -7,10 +11,14 @@ package cn.vicky.engine.classloader.core.proxy;
 public class ProxyProviderFactory {
 
     // 默认使用JDK代理供应
-    private static ProxyProvider proxyProvider = new JdkProxyProvider();
+    private static volatile ProxyProvider proxyProvider = new JdkProxyProvider();
+
+    // 每次代理配置变更时递增,缓存的选择结果据此失效
+    private static final AtomicInteger generation = new AtomicInteger();
 
     public static void setDefaultProxyProvider(ProxyProvider proxyProvider) {
         ProxyProviderFactory.proxyProvider = proxyProvider;
+        invalidate();
     }
 
     /**
@@ -21,4 +29,40 @@ public class ProxyProviderFactory {
     public static ProxyProvider create() {
         return proxyProvider;
     }
+
+    /**
+     * 返回为指定ClassLoader及接口选择的ProxyProvider. 如果scope是JarClassLoader,
+     * 依次使用其针对接口的配置与其默认配置,否则使用全局默认的ProxyProvider
+     *
+     * @param scope 被代理对象所在的ClassLoader
+     * @param interfaces
+     * @return
+     */
+    public static ProxyProvider create(ClassLoader scope, Class[] interfaces) {
+        if (scope instanceof JarClassLoader) {
+            ProxyProvider provider = ((JarClassLoader) scope).getProxyProvider(interfaces);
+
+            if (provider != null) {
+                return provider;
+            }
+        }
+
+        return proxyProvider;
+    }
+
+    /**
+     * 使所有缓存的ProxyProvider选择结果失效,代理配置变更时调用
+     */
+    public static void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * 当前代理配置的版本
+     *
+     * @return
+     */
+    public static int getGeneration() {
+        return generation.get();
+    }
 }
@@ -0,0 +1,107 @@
+package cn.vicky.engine.classloader.core.trace;
+
+import cn.vicky.engine.classloader.core.monitor.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 一次重放的结果:重放与记录时的耗时分布,吞吐量,以及与记录结果不一致的调用
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class ReplayReport {
+
+    private final int threads;
+    private final long elapsedNanos;
+    private final long mismatches;
+    private final long errors;
+    private final Map<TraceEvent.Type, LatencyHistogram> replayed;
+    private final Map<TraceEvent.Type, LatencyHistogram> recorded;
+
+    ReplayReport(int threads, long elapsedNanos, long mismatches, long errors, Map<TraceEvent.Type, LatencyHistogram> replayed,
+            Map<TraceEvent.Type, LatencyHistogram> recorded) {
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+        this.mismatches = mismatches;
+        this.errors = errors;
+        this.replayed = new EnumMap<>( replayed );
+        this.recorded = new EnumMap<>( recorded );
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getEvents() {
+        long events = 0;
+        for (LatencyHistogram h : replayed.values()) {
+            events += h.getCount();
+        }
+        return events;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return 每秒重放的调用数量
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getEvents() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return 找到与否与记录时不同的调用数量
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @return 抛出ClassNotFoundException以外异常的调用数量
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @param type
+     * @return 重放时的耗时
+     */
+    public LatencyHistogram getLatency(TraceEvent.Type type) {
+        return replayed.get( type );
+    }
+
+    /**
+     * @param type
+     * @return 记录时的耗时
+     */
+    public LatencyHistogram getRecordedLatency(TraceEvent.Type type) {
+        return recorded.get( type );
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( String.format( "Replayed %d events on %d threads in %.1f ms (%.0f events/s), %d mismatches, %d errors", getEvents(),
+                threads, elapsedNanos / 1e6, getThroughput(), mismatches, errors ) );
+        for (TraceEvent.Type type : TraceEvent.Type.values()) {
+            LatencyHistogram h = replayed.get( type );
+            if (h.getCount() == 0)
+                continue;
+
+            LatencyHistogram r = recorded.get( type );
+            sb.append( String.format( "%n  %-22s %8d calls  p50 %s p90 %s p99 %s  (recorded p50 %s p90 %s p99 %s)", type, h.getCount(),
+                    micros( h, 50 ), micros( h, 90 ), micros( h, 99 ), micros( r, 50 ), micros( r, 90 ), micros( r, 99 ) ) );
+        }
+        return sb.toString();
+    }
+
+    private static String micros(LatencyHistogram h, double percentile) {
+        return String.format( "%9.1fus", h.getPercentileNanos( percentile ) / 1e3 );
+    }
+}
@@ -0,0 +1,151 @@
+package cn.vicky.engine.classloader.core.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 由TraceRecorder写入的轨迹,按线程分组,每个线程中的调用按开始时间排序
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class Trace {
+
+    private final long startTime;
+    private final List<String> threadNames;
+    private final List<List<TraceEvent>> threads;
+    private final int eventCount;
+
+    private Trace(long startTime, List<String> threadNames, List<List<TraceEvent>> threads, int eventCount) {
+        this.startTime = startTime;
+        this.threadNames = Collections.unmodifiableList( threadNames );
+        this.threads = threads;
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * @param file
+     * @return Trace
+     * @throws IOException 文件不是完整的轨迹时
+     */
+    public static Trace read(File file) throws IOException {
+        try (InputStream in = new FileInputStream( file )) {
+            return read( in );
+        }
+    }
+
+    /**
+     * @param stream 不会被关闭
+     * @return Trace
+     * @throws IOException 不是完整的轨迹时
+     */
+    public static Trace read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( new GZIPInputStream( stream ), 65536 ) );
+        if (in.readInt() != TraceFormat.MAGIC)
+            throw new IOException( "Not a class loading trace" );
+        int version = in.readUnsignedByte();
+        if (version != TraceFormat.VERSION)
+            throw new IOException( "Unsupported trace version " + version );
+        long startTime = in.readLong();
+
+        TraceEvent.Type[] types = TraceEvent.Type.values();
+        List<String> names = new ArrayList<>();
+        List<String> threadNames = new ArrayList<>();
+        List<List<TraceEvent>> threads = new ArrayList<>();
+        List<long[]> lastStarts = new ArrayList<>();
+        int events = 0;
+
+        while (true) {
+            int tag;
+            try {
+                tag = in.readUnsignedByte();
+            } catch (EOFException e) {
+                throw new IOException( "Truncated trace, the recorder was not closed", e );
+            }
+
+            if (tag == TraceFormat.END) {
+                long expected = TraceFormat.readVarLong( in );
+                if (expected != events)
+                    throw new IOException( "Trace has " + events + " events, expected " + expected );
+                break;
+            } else if (tag == TraceFormat.THREAD) {
+                int index = (int) TraceFormat.readVarLong( in );
+                if (index != threads.size())
+                    throw new IOException( "Unexpected thread " + index );
+                threadNames.add( in.readUTF() );
+                threads.add( new ArrayList<>() );
+                lastStarts.add( new long[1] );
+            } else if (tag == TraceFormat.NAME) {
+                int index = (int) TraceFormat.readVarLong( in );
+                if (index != names.size())
+                    throw new IOException( "Unexpected name " + index );
+                names.add( in.readUTF() );
+            } else {
+                int type = ( tag & ~TraceFormat.FOUND ) - 1;
+                if (type < 0 || type >= types.length)
+                    throw new IOException( "Unknown record " + tag );
+
+                int thread = (int) TraceFormat.readVarLong( in );
+                long[] lastStart = lastStarts.get( thread );
+                lastStart[0] += TraceFormat.readVarLong( in );
+                long duration = TraceFormat.readVarLong( in );
+                String name = names.get( (int) TraceFormat.readVarLong( in ) );
+                threads.get( thread ).add(
+                        new TraceEvent( types[type], name, thread, lastStart[0], duration, ( tag & TraceFormat.FOUND ) != 0 ) );
+                events++;
+            }
+        }
+
+        return new Trace( startTime, threadNames, threads, events );
+    }
+
+    /**
+     * @return 开始记录的时间(毫秒)
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getThreadCount() {
+        return threads.size();
+    }
+
+    public List<String> getThreadNames() {
+        return threadNames;
+    }
+
+    /**
+     * @param thread 线程序号
+     * @return 该线程的调用,按开始时间排序
+     */
+    public List<TraceEvent> getEvents(int thread) {
+        return Collections.unmodifiableList( threads.get( thread ) );
+    }
+
+    /**
+     * @return 所有线程的调用,按开始时间排序
+     */
+    public List<TraceEvent> getEvents() {
+        List<TraceEvent> all = new ArrayList<>( eventCount );
+        for (List<TraceEvent> events : threads) {
+            all.addAll( events );
+        }
+        all.sort( Comparator.comparingLong( TraceEvent::getStartNanos ) );
+        return all;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+}
@@ -0,0 +1,75 @@
+package cn.vicky.engine.classloader.core.trace;
+
+/**
+ * 轨迹中的一次调用
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public final class TraceEvent {
+
+    public enum Type {
+        LOAD_CLASS, GET_RESOURCE, GET_RESOURCE_AS_STREAM
+    }
+
+    private final Type type;
+    private final String name;
+    private final int thread;
+    private final long startNanos;
+    private final long durationNanos;
+    private final boolean found;
+
+    TraceEvent(Type type, String name, int thread, long startNanos, long durationNanos, boolean found) {
+        this.type = type;
+        this.name = name;
+        this.thread = thread;
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.found = found;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return 类名或资源名
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 线程在轨迹中的序号
+     */
+    public int getThread() {
+        return thread;
+    }
+
+    /**
+     * @return 相对于开始记录的时间
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return 记录时调用的耗时
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return 记录时是否找到了类或资源
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name + " @" + startNanos + "ns " + ( found ? "found" : "not found" ) + " in " + durationNanos + "ns";
+    }
+}
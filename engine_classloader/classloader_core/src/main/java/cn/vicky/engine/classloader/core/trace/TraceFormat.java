@@ -0,0 +1,57 @@
+package cn.vicky.engine.classloader.core.trace;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * 轨迹文件格式,整个文件经过gzip压缩:
+ *
+ * <pre>
+ * header: int MAGIC, byte VERSION, long 开始记录的时间(毫秒)
+ * THREAD: byte THREAD, varlong 线程序号, UTF 线程名
+ * NAME:   byte NAME, varlong 名称序号, UTF 类名或资源名
+ * 调用:   byte 类型序号+1 (找到时加FOUND), varlong 线程序号, varlong 与该线程上一次调用开始时间的差,
+ *         varlong 耗时, varlong 名称序号
+ * END:    byte END, varlong 调用数量
+ * </pre>
+ *
+ * 时间的单位为纳秒,线程与名称第一次出现时写入
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x4A434C54;
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int THREAD = 0x10;
+    static final int NAME = 0x11;
+    static final int FOUND = 0x08;
+
+    private TraceFormat() {
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while (( value & ~0x7FL ) != 0) {
+            out.writeByte( (int) ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.writeByte( (int) value );
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            if (( b & 0x80 ) == 0)
+                return value;
+        }
+        throw new EOFException( "Malformed varlong" );
+    }
+}
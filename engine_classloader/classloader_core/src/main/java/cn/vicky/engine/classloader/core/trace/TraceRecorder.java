@@ -0,0 +1,254 @@
+package cn.vicky.engine.classloader.core.trace;
+
+import cn.vicky.engine.classloader.core.AbstractClassLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 记录对一个类加载器的loadClass,getResource与getResourceAsStream调用的顺序,线程与时间.
+ * 只记录最外层的调用:加载一个类时引起的父类加载不会单独记录,重放时会再次发生.
+ * 创建后立即开始记录,close时停止.
+ * 加载线程只把调用放入无锁队列,由后台线程压缩并写入,记录不会改变被记录的加载器的并发行为
+ *
+ * <pre>
+ * try (TraceRecorder recorder = new TraceRecorder( jcl, new File( "jcl.trace" ) )) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class TraceRecorder implements Closeable {
+
+    // 写入线程空闲时检查队列的间隔
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+    private final AbstractClassLoader loader;
+    private final DataOutputStream out;
+    private final long origin;
+
+    // 当前线程中进行中的调用数量
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial( () -> new int[1] );
+
+    private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong events = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    // close已经执行,由this保护
+    private boolean finished;
+
+    // 以下字段只由写入线程访问,写入线程结束后由close访问
+    private final Map<String, Long> names = new HashMap<>();
+    // 线程序号与该线程上一次调用的开始时间
+    private final Map<Thread, long[]> threads = new WeakHashMap<>();
+    private long threadCount;
+    private long written;
+
+    private static final Logger logger = Logger.getLogger( TraceRecorder.class.getName() );
+
+    /**
+     * @param loader
+     * @param file
+     * @throws IOException
+     */
+    public TraceRecorder(AbstractClassLoader loader, File file) throws IOException {
+        this( loader, new FileOutputStream( file ) );
+    }
+
+    /**
+     * @param loader
+     * @param out close时关闭
+     * @throws IOException
+     */
+    public TraceRecorder(AbstractClassLoader loader, OutputStream out) throws IOException {
+        this.loader = loader;
+        this.out = new DataOutputStream( new BufferedOutputStream( new GZIPOutputStream( out, 8192 ), 65536 ) );
+        this.out.writeInt( TraceFormat.MAGIC );
+        this.out.writeByte( TraceFormat.VERSION );
+        this.out.writeLong( System.currentTimeMillis() );
+        this.origin = System.nanoTime();
+
+        this.writer = new Thread( this::write, "jcl-trace-writer" );
+        this.writer.setDaemon( true );
+        this.writer.start();
+        loader.setTraceRecorder( this );
+    }
+
+    /**
+     * 由AbstractClassLoader在调用开始时调用
+     *
+     * @return 开始时间
+     */
+    public long enter() {
+        depth.get()[0]++;
+        return System.nanoTime();
+    }
+
+    /**
+     * 由AbstractClassLoader在调用结束时调用,只记录最外层的调用
+     *
+     * @param type
+     * @param name
+     * @param start enter的返回值
+     * @param found
+     */
+    public void exit(TraceEvent.Type type, String name, long start, boolean found) {
+        long duration = System.nanoTime() - start;
+        if (--depth.get()[0] == 0 && !closed) {
+            pending.add( new Event( Thread.currentThread(), type, name, start - origin, duration, found ) );
+            events.incrementAndGet();
+        }
+    }
+
+    /**
+     * 写入线程: 取出队列中的调用并写入,close后写完剩余的调用
+     */
+    private void write() {
+        try {
+            while (true) {
+                Event e = pending.poll();
+                if (e != null) {
+                    write( e );
+                } else if (closed) {
+                    // close之前放入的调用在看到closed之后一定可见
+                    if (pending.isEmpty())
+                        break;
+                } else {
+                    LockSupport.parkNanos( this, IDLE_NANOS );
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            closed = true;
+            pending.clear();
+            if (logger.isLoggable( Level.WARNING ))
+                logger.log( Level.WARNING, "Stopped recording the class loading trace", e );
+        }
+    }
+
+    private void write(Event e) throws IOException {
+        long[] thread = threads.get( e.thread );
+        if (thread == null) {
+            thread = new long[] { threadCount++, 0 };
+            threads.put( e.thread, thread );
+            out.writeByte( TraceFormat.THREAD );
+            TraceFormat.writeVarLong( out, thread[0] );
+            out.writeUTF( e.thread.getName() );
+        }
+
+        Long id = names.get( e.name );
+        if (id == null) {
+            id = (long) names.size();
+            names.put( e.name, id );
+            out.writeByte( TraceFormat.NAME );
+            TraceFormat.writeVarLong( out, id );
+            out.writeUTF( e.name );
+        }
+
+        out.writeByte( ( e.type.ordinal() + 1 ) | ( e.found ? TraceFormat.FOUND : 0 ) );
+        TraceFormat.writeVarLong( out, thread[0] );
+        TraceFormat.writeVarLong( out, Math.max( 0, e.offset - thread[1] ) );
+        TraceFormat.writeVarLong( out, e.duration );
+        TraceFormat.writeVarLong( out, id );
+        thread[1] = Math.max( e.offset, thread[1] );
+        written++;
+    }
+
+    /**
+     * @return 已记录的调用数量,关闭后为写入的调用数量
+     */
+    public long getEventCount() {
+        synchronized (this) {
+            if (finished)
+                return written;
+        }
+        return events.get();
+    }
+
+    /**
+     * 停止记录,等待写入线程写完已记录的调用并关闭文件.关闭时仍在进行的调用不会被写入
+     *
+     * @throws IOException 写入失败时
+     */
+    @Override
+    public void close() throws IOException {
+        if (loader.getTraceRecorder() == this)
+            loader.setTraceRecorder( null );
+
+        synchronized (this) {
+            if (!finished) {
+                finished = true;
+                closed = true;
+                LockSupport.unpark( writer );
+                boolean interrupted = false;
+                while (writer.isAlive()) {
+                    try {
+                        writer.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+
+                if (failure == null) {
+                    try {
+                        out.writeByte( TraceFormat.END );
+                        TraceFormat.writeVarLong( out, written );
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * 一次已结束的调用,等待写入
+     */
+    private static final class Event {
+        private final Thread thread;
+        private final TraceEvent.Type type;
+        private final String name;
+        private final long offset;
+        private final long duration;
+        private final boolean found;
+
+        private Event(Thread thread, TraceEvent.Type type, String name, long offset, long duration, boolean found) {
+            this.thread = thread;
+            this.type = type;
+            this.name = name;
+            this.offset = offset;
+            this.duration = duration;
+            this.found = found;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package cn.vicky.engine.classloader.core.trace;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.monitor.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 在任意类加载器上重放轨迹:每个记录的线程由一个重放线程按原来的顺序执行.
+ * speed为0时尽快执行,否则按记录时的开始时间除以speed执行,1为原来的速度
+ *
+ * <pre>
+ * java -cp classloader_core.jar cn.vicky.engine.classloader.core.trace.TraceReplayer [-speed 1] jcl.trace app.jar lib/
+ * </pre>
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ *
+ */
+public class TraceReplayer {
+
+    private final Trace trace;
+    private double speed;
+
+    private static final Logger logger = Logger.getLogger( TraceReplayer.class.getName() );
+
+    public TraceReplayer(Trace trace) {
+        this.trace = trace;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @param speed 0为尽快执行,1为记录时的速度
+     */
+    public void setSpeed(double speed) {
+        if (speed < 0)
+            throw new IllegalArgumentException( "speed must not be negative" );
+        this.speed = speed;
+    }
+
+    /**
+     * @param loader
+     * @return ReplayReport
+     * @throws InterruptedException
+     */
+    public ReplayReport replay(final ClassLoader loader) throws InterruptedException {
+        final Map<TraceEvent.Type, LatencyHistogram> replayed = histograms();
+        final Map<TraceEvent.Type, LatencyHistogram> recorded = histograms();
+        final LongAdder mismatches = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        for (TraceEvent event : trace.getEvents()) {
+            recorded.get( event.getType() ).record( event.getDurationNanos() );
+        }
+
+        final CountDownLatch ready = new CountDownLatch( trace.getThreadCount() );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final long[] origin = new long[1];
+        List<Thread> threads = new ArrayList<>( trace.getThreadCount() );
+        for (int t = 0; t < trace.getThreadCount(); t++) {
+            final List<TraceEvent> events = trace.getEvents( t );
+            Thread thread = new Thread( () -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (TraceEvent event : events) {
+                    if (speed > 0)
+                        awaitStart( origin[0] + (long) ( event.getStartNanos() / speed ) );
+
+                    long begin = System.nanoTime();
+                    boolean found;
+                    try {
+                        found = execute( loader, event );
+                    } catch (Exception | LinkageError e) {
+                        errors.increment();
+                        if (logger.isLoggable( Level.FINE ))
+                            logger.log( Level.FINE, "Failed to replay " + event, e );
+                        continue;
+                    }
+                    replayed.get( event.getType() ).record( System.nanoTime() - begin );
+                    if (found != event.isFound())
+                        mismatches.increment();
+                }
+            }, "jcl-replay-" + trace.getThreadNames().get( t ) );
+            thread.setDaemon( true );
+            threads.add( thread );
+            thread.start();
+        }
+
+        ready.await();
+        origin[0] = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - origin[0];
+
+        return new ReplayReport( threads.size(), elapsed, mismatches.sum(), errors.sum(), replayed, recorded );
+    }
+
+    private static boolean execute(ClassLoader loader, TraceEvent event) throws IOException {
+        switch (event.getType()) {
+        case LOAD_CLASS:
+            try {
+                loader.loadClass( event.getName() );
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        case GET_RESOURCE:
+            return loader.getResource( event.getName() ) != null;
+        default:
+            try (InputStream in = loader.getResourceAsStream( event.getName() )) {
+                return in != null;
+            }
+        }
+    }
+
+    private static void awaitStart(long deadline) {
+        long remaining;
+        while (( remaining = deadline - System.nanoTime() ) > 0) {
+            LockSupport.parkNanos( remaining );
+        }
+    }
+
+    private static Map<TraceEvent.Type, LatencyHistogram> histograms() {
+        Map<TraceEvent.Type, LatencyHistogram> histograms = new EnumMap<>( TraceEvent.Type.class );
+        for (TraceEvent.Type type : TraceEvent.Type.values()) {
+            histograms.put( type, new LatencyHistogram() );
+        }
+        return histograms;
+    }
+
+    /**
+     * 在由参数中的jar与目录组成的JarClassLoader上重放轨迹
+     *
+     * @param args [-speed factor] trace source...
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int i = 0;
+        double speed = 0;
+        if (args.length > 1 && "-speed".equals( args[0] )) {
+            speed = Double.parseDouble( args[1] );
+            i = 2;
+        }
+        if (args.length - i < 2) {
+            System.err.println( "Usage: TraceReplayer [-speed factor] trace source..." );
+            System.exit( 1 );
+        }
+
+        TraceReplayer replayer = new TraceReplayer( Trace.read( new File( args[i++] ) ) );
+        replayer.setSpeed( speed );
+
+        JarClassLoader jcl = new JarClassLoader();
+        for (; i < args.length; i++) {
+            jcl.add( args[i] );
+        }
+
+        System.out.println( replayer.replay( jcl ) );
+    }
+}
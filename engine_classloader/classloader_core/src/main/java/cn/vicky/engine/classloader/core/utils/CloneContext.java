@@ -0,0 +1,76 @@
+package cn.vicky.engine.classloader.core.utils;
+
+/**
+ * 一次克隆操作的上下文,提供给FastCloner用于克隆子元素
+ * 
+ * @author Vicky.H
+ * @email  ecliser@163.com
+ */
+public interface CloneContext {
+
+    /**
+     * @return 是否为深克隆
+     */
+    public boolean isDeep();
+
+    /**
+     * 深克隆时返回value的克隆,浅克隆时返回value本身
+     * 
+     * @param <T>
+     * @param value
+     * @return T
+     */
+    public <T> T clone(T value);
+
+    /**
+     * 按clone(Object)处理数组中的每个元素,结果写回原数组
+     * 
+     * @param values
+     * @return values
+     */
+    public Object[] cloneAll(Object[] values);
+
+    /**
+     * 同cloneAll(Object[]),但元素由克隆的工作栈填充,不在当前调用中递归复制.
+     * 所有元素及其可达的对象填充完毕后执行then,FastCloner应在then中使用这些元素,以免深层结构耗尽线程栈
+     *
+     * @param then
+     * @param values
+     */
+    public default void deferCloneAll(Runnable then, Object[]... values) {
+        for( Object[] v : values ) {
+            cloneAll( v );
+        }
+        then.run();
+    }
+
+    /**
+     * 登记original的克隆结果.实现类应在克隆子元素之前登记,以保持共享引用与循环引用.
+     * 并行克隆时其他任务可能已经登记了original,此时返回已登记的对象,调用者应直接返回它而不再填充clone
+     * 
+     * @param original
+     * @param clone
+     * @return 实际登记的克隆结果
+     */
+    public Object register(Object original, Object clone);
+
+    /**
+     * 在整个对象图克隆完成后执行action.并行克隆时clone(Object)返回的对象可能仍在被其他任务填充,
+     * 依赖元素hashCode/compareTo的集合应在这里插入元素;顺序克隆时立即执行
+     * 
+     * @param action
+     */
+    public void whenComplete(Runnable action);
+
+    /**
+     * 同whenComplete(Runnable),用于向集合clone插入elements.并行克隆时elements可达的其他集合先被填充,
+     * 因此元素的hashCode/compareTo与顺序克隆时一致
+     * 
+     * @param clone
+     * @param action
+     * @param elements
+     */
+    public default void whenComplete(Object clone, Runnable action, Object[]... elements) {
+        whenComplete( action );
+    }
+}
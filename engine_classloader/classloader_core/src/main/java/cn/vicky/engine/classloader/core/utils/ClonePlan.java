@@ -0,0 +1,367 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 某个类的克隆计划: 所有实例字段按基本类型与引用类型拆分并保存在数组中,
+ * 每个类只编译一次.字段通过Unsafe偏移量读写,不可用时退回到按类型读写的反射(同样不装箱)
+ *
+ * 计划也可以建立在两个不同的类之间(如不同ClassLoader中的同名类),此时按名称与类型匹配字段
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ */
+final class ClonePlan {
+
+    private static final Logger logger = Logger.getLogger( ClonePlan.class.getName() );
+
+    private static final byte BOOLEAN = 0;
+    private static final byte BYTE = 1;
+    private static final byte CHAR = 2;
+    private static final byte SHORT = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+
+    private static final ClassValue<ClonePlan> plans = new ClassValue<ClonePlan>() {
+        @Override
+        protected ClonePlan computeValue(Class<?> type) {
+            return new ClonePlan( type, type );
+        }
+    };
+
+    /**
+     * 目标类 -> (源类 -> 计划).计划挂在目标类上并弱引用源类,
+     * 迁移不会让目标ClassLoader或源ClassLoader中的类比它们本身活得更久.读取不加锁
+     */
+    private static final ClassValue<WeakKeyCache<Class<?>, ClonePlan>> crossPlans = new ClassValue<WeakKeyCache<Class<?>, ClonePlan>>() {
+        @Override
+        protected WeakKeyCache<Class<?>, ClonePlan> computeValue(Class<?> type) {
+            return new WeakKeyCache<>();
+        }
+    };
+
+    private final byte[] primitiveKinds;
+    private final long[] primitiveSourceOffsets;
+    private final long[] primitiveTargetOffsets;
+    private final long[] referenceSourceOffsets;
+    private final long[] referenceTargetOffsets;
+    private final int referenceCount;
+
+    // 两个不同的类之间的计划中的目标引用字段,写入前检查值的类型,同一个类的计划中为null
+    private final Field[] checkedReferenceFields;
+
+    // 反射方式,仅在Unsafe不可用时使用,否则为null
+    private final Field[] primitiveSourceFields;
+    private final Field[] primitiveTargetFields;
+    private final Field[] referenceSourceFields;
+    private final Field[] referenceTargetFields;
+
+    private ClonePlan(Class<?> source, Class<?> target) {
+        List<Field> primitiveSources = new ArrayList<>();
+        List<Field> primitiveTargets = new ArrayList<>();
+        List<Field> referenceSources = new ArrayList<>();
+        List<Field> referenceTargets = new ArrayList<>();
+
+        List<Field> sourceFields = instanceFields( source );
+        List<Field> targetFields = source == target ? sourceFields : instanceFields( target );
+
+        for( int i = 0; i < targetFields.size(); i++ ) {
+            Field tf = targetFields.get( i );
+            Field sf = source == target ? tf : matchingField( sourceFields, tf );
+
+            if( sf == null ) {
+                if( logger.isLoggable( Level.FINER ) )
+                    logger.log( Level.FINER, "No field in {0} matches {1}", new Object[] { source.getName(), tf } );
+                continue;
+            }
+
+            if( tf.getType().isPrimitive() ) {
+                primitiveSources.add( sf );
+                primitiveTargets.add( tf );
+            } else {
+                referenceSources.add( sf );
+                referenceTargets.add( tf );
+            }
+        }
+
+        Field[] psf = primitiveSources.toArray( new Field[primitiveSources.size()] );
+        Field[] ptf = primitiveTargets.toArray( new Field[primitiveTargets.size()] );
+        Field[] rsf = referenceSources.toArray( new Field[referenceSources.size()] );
+        Field[] rtf = referenceTargets.toArray( new Field[referenceTargets.size()] );
+
+        primitiveKinds = new byte[ptf.length];
+        for( int i = 0; i < ptf.length; i++ ) {
+            primitiveKinds[i] = kindOf( ptf[i].getType() );
+        }
+        referenceCount = rtf.length;
+        // 字段只按类型名匹配,同名的类可能来自其他ClassLoader
+        checkedReferenceFields = source == target ? null : rtf;
+
+        long[] pso = offsets( psf );
+        long[] pto = offsets( ptf );
+        long[] rso = offsets( rsf );
+        long[] rto = offsets( rtf );
+
+        if( pso == null || pto == null || rso == null || rto == null ) {
+            primitiveSourceOffsets = primitiveTargetOffsets = referenceSourceOffsets = referenceTargetOffsets = null;
+            makeAccessible( psf );
+            makeAccessible( ptf );
+            makeAccessible( rsf );
+            makeAccessible( rtf );
+            primitiveSourceFields = psf;
+            primitiveTargetFields = ptf;
+            referenceSourceFields = rsf;
+            referenceTargetFields = rtf;
+        } else {
+            primitiveSourceOffsets = pso;
+            primitiveTargetOffsets = pto;
+            referenceSourceOffsets = rso;
+            referenceTargetOffsets = rto;
+            // 偏移量不引用类本身,计划不会让源类保持可达
+            primitiveSourceFields = primitiveTargetFields = referenceSourceFields = referenceTargetFields = null;
+        }
+    }
+
+    /**
+     * 返回类的克隆计划
+     *
+     * @param c
+     * @return ClonePlan
+     */
+    static ClonePlan of(Class<?> c) {
+        return plans.get( c );
+    }
+
+    /**
+     * 返回从source实例复制到target实例的计划,字段按名称,声明类名与类型名匹配
+     *
+     * @param source
+     * @param target
+     * @return ClonePlan
+     */
+    static ClonePlan between(Class<?> source, Class<?> target) {
+        if( source == target ) {
+            return of( source );
+        }
+
+        WeakKeyCache<Class<?>, ClonePlan> sources = crossPlans.get( target );
+
+        ClonePlan plan = sources.get( source );
+        if( plan == null ) {
+            plan = new ClonePlan( source, target );
+            // 反射方式的计划通过Field强引用源类,缓存后弱key永远不会被清除,因此每次重新编译
+            if( plan.primitiveSourceOffsets != null ) {
+                sources.put( source, plan );
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 复制所有基本类型字段
+     *
+     * @param src
+     * @param dst
+     */
+    void copyPrimitives(Object src, Object dst) {
+        if( primitiveSourceOffsets == null ) {
+            copyPrimitivesReflectively( src, dst );
+            return;
+        }
+
+        for( int i = 0; i < primitiveKinds.length; i++ ) {
+            long so = primitiveSourceOffsets[i];
+            long to = primitiveTargetOffsets[i];
+            switch (primitiveKinds[i]) {
+            case BOOLEAN:
+                JdkInternals.putBoolean( dst, to, JdkInternals.getBoolean( src, so ) );
+                break;
+            case BYTE:
+                JdkInternals.putByte( dst, to, JdkInternals.getByte( src, so ) );
+                break;
+            case CHAR:
+                JdkInternals.putChar( dst, to, JdkInternals.getChar( src, so ) );
+                break;
+            case SHORT:
+                JdkInternals.putShort( dst, to, JdkInternals.getShort( src, so ) );
+                break;
+            case INT:
+                JdkInternals.putInt( dst, to, JdkInternals.getInt( src, so ) );
+                break;
+            case LONG:
+                JdkInternals.putLong( dst, to, JdkInternals.getLong( src, so ) );
+                break;
+            case FLOAT:
+                JdkInternals.putFloat( dst, to, JdkInternals.getFloat( src, so ) );
+                break;
+            default:
+                JdkInternals.putDouble( dst, to, JdkInternals.getDouble( src, so ) );
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return 引用类型字段的个数
+     */
+    int referenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * 读取第i个引用类型字段
+     *
+     * @param src
+     * @param i
+     * @return Object
+     */
+    Object getReference(Object src, int i) {
+        if( referenceSourceOffsets != null ) {
+            return JdkInternals.getObject( src, referenceSourceOffsets[i] );
+        }
+
+        try {
+            return referenceSourceFields[i].get( src );
+        } catch (IllegalAccessException e) {
+            throw new JclException( e );
+        }
+    }
+
+    /**
+     * 写入第i个引用类型字段
+     *
+     * @param dst
+     * @param i
+     * @param value
+     */
+    void putReference(Object dst, int i, Object value) {
+        if( checkedReferenceFields != null && value != null && !checkedReferenceFields[i].getType().isInstance( value ) ) {
+            throw new JclException( "Can not set " + checkedReferenceFields[i] + " to " + value.getClass().getName()
+                    + " from " + value.getClass().getClassLoader() );
+        }
+
+        if( referenceTargetOffsets != null ) {
+            JdkInternals.putObject( dst, referenceTargetOffsets[i], value );
+            return;
+        }
+
+        try {
+            referenceTargetFields[i].set( dst, value );
+        } catch (IllegalAccessException e) {
+            throw new JclException( e );
+        }
+    }
+
+    private void copyPrimitivesReflectively(Object src, Object dst) {
+        try {
+            for( int i = 0; i < primitiveKinds.length; i++ ) {
+                Field sf = primitiveSourceFields[i];
+                Field tf = primitiveTargetFields[i];
+                switch (primitiveKinds[i]) {
+                case BOOLEAN:
+                    tf.setBoolean( dst, sf.getBoolean( src ) );
+                    break;
+                case BYTE:
+                    tf.setByte( dst, sf.getByte( src ) );
+                    break;
+                case CHAR:
+                    tf.setChar( dst, sf.getChar( src ) );
+                    break;
+                case SHORT:
+                    tf.setShort( dst, sf.getShort( src ) );
+                    break;
+                case INT:
+                    tf.setInt( dst, sf.getInt( src ) );
+                    break;
+                case LONG:
+                    tf.setLong( dst, sf.getLong( src ) );
+                    break;
+                case FLOAT:
+                    tf.setFloat( dst, sf.getFloat( src ) );
+                    break;
+                default:
+                    tf.setDouble( dst, sf.getDouble( src ) );
+                    break;
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new JclException( e );
+        }
+    }
+
+    private static List<Field> instanceFields(Class<?> c) {
+        List<Field> fields = new ArrayList<>();
+
+        for( Class<?> sc = c; sc != Object.class && sc != null; sc = sc.getSuperclass() ) {
+            for( Field field : sc.getDeclaredFields() ) {
+                if( !Modifier.isStatic( field.getModifiers() ) ) {
+                    fields.add( field );
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static Field matchingField(List<Field> fields, Field target) {
+        for( Field f : fields ) {
+            if( f.getName().equals( target.getName() )
+                    && f.getDeclaringClass().getName().equals( target.getDeclaringClass().getName() )
+                    && f.getType().getName().equals( target.getType().getName() ) ) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    private static byte kindOf(Class<?> type) {
+        if( type == boolean.class )
+            return BOOLEAN;
+        if( type == byte.class )
+            return BYTE;
+        if( type == char.class )
+            return CHAR;
+        if( type == short.class )
+            return SHORT;
+        if( type == int.class )
+            return INT;
+        if( type == long.class )
+            return LONG;
+        if( type == float.class )
+            return FLOAT;
+        return DOUBLE;
+    }
+
+    /**
+     * 返回字段的Unsafe偏移量,Unsafe不可用或不支持该类(如record/hidden class)时返回null
+     */
+    static long[] offsets(Field[] fields) {
+        if( !JdkInternals.isAvailable() ) {
+            return null;
+        }
+
+        long[] offsets = new long[fields.length];
+        try {
+            for( int i = 0; i < fields.length; i++ ) {
+                offsets[i] = JdkInternals.objectFieldOffset( fields[i] );
+            }
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        return offsets;
+    }
+
+    private static void makeAccessible(Field[] fields) {
+        for( Field field : fields ) {
+            field.setAccessible( true );
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次延迟克隆(ObjectCloner.lazyClone)的状态.
+ *
+ * 原对象图通过接口的动态代理(视图)共享,读方法直接调用原对象.第一次调用某个节点的修改方法时,
+ * 该节点被深克隆,其视图路径上的祖先被浅复制并指向新的副本(路径复制),之后的调用都转到副本上.
+ * 所有副本记录在同一个identity map中,因此共享引用与循环引用在副本之间保持一致.
+ *
+ * 祖先无法指向子节点的副本时(如Map.Entry位于重建的HashMap内部),修改会抛出JclException而不是只修改脱离视图的副本.
+ *
+ * 读方法返回的非接口类型的可变对象是脱离会话的深克隆,不复制路径,对它的修改不会反映到视图上.
+ * 修改方法按名称识别: 名称等于某个前缀,或前缀之后紧跟大写字母(如setName,addAll),settings,address等读方法不受影响.
+ *
+ * 只有通过视图访问的部分才受保护,原对象图在视图使用期间不应被修改.非线程安全
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ */
+final class CopyOnWriteSession {
+
+    private final ObjectCloner cloner;
+    private final String[] mutatorPrefixes;
+    private final Copies copies = new Copies();
+    private final Map<Object, Object> views = new IdentityHashMap<>();
+    private final Map<Method, Boolean> mutators = new HashMap<>();
+
+    // 副本无法连接到祖先的原对象,对它们的修改总是失败
+    private final Set<Object> detached = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+    CopyOnWriteSession(ObjectCloner cloner, String[] mutatorPrefixes) {
+        this.cloner = cloner;
+        this.mutatorPrefixes = mutatorPrefixes;
+    }
+
+    /**
+     * 返回original的视图,视图实现type以及original的类实现的所有public接口
+     *
+     * @param original
+     * @param type
+     * @return Object
+     */
+    Object view(Object original, Class<?> type) {
+        Object view = view( original, type, null );
+        if( view == null ) {
+            throw new JclException( "Unable to create a view of " + original.getClass().getName() + " as " + type.getName() );
+        }
+        return view;
+    }
+
+    /**
+     * 原对象 -> 副本.同时记录每个副本对应的原对象,以及其中只做了路径复制(浅复制)的副本
+     */
+    private static final class Copies extends IdentityHashMap<Object, Object> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Object, Object> originals = new IdentityHashMap<>();
+        private final Set<Object> shallow = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+        // 深克隆过程中遇到的浅副本,克隆完成后需要补全
+        private final List<Object> shallowHits = new ArrayList<>();
+
+        @Override
+        public Object get(Object original) {
+            Object copy = super.get( original );
+            if( copy == null ) {
+                // 副本已经属于本次会话(如从副本得到的迭代器引用副本本身),不再被复制
+                return originals.containsKey( original ) ? original : null;
+            }
+            if( shallow.contains( copy ) ) {
+                shallowHits.add( copy );
+            }
+            return copy;
+        }
+
+        @Override
+        public Object put(Object original, Object copy) {
+            originals.put( copy, original );
+            return super.put( original, copy );
+        }
+
+        private Object copyOf(Object original) {
+            return super.get( original );
+        }
+
+        private boolean isCopy(Object o) {
+            return originals.containsKey( o );
+        }
+    }
+
+    /**
+     * 返回当前应该调用的对象: 已复制时为副本,否则为原对象
+     */
+    private Object current(Object original) {
+        Object copy = copies.copyOf( original );
+        return copy != null ? copy : original;
+    }
+
+    /**
+     * 返回original的视图,type为null时只实现original的接口.没有接口或无法创建代理时返回null
+     */
+    private Object view(Object original, Class<?> type, ViewHandler parent) {
+        Object view = views.get( original );
+        if( view != null && ( type == null || type.isInstance( view ) ) ) {
+            return view;
+        }
+
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        if( type != null ) {
+            interfaces.add( type );
+        }
+        for( Class<?> c = original.getClass(); c != null; c = c.getSuperclass() ) {
+            for( Class<?> i : c.getInterfaces() ) {
+                if( Modifier.isPublic( i.getModifiers() ) ) {
+                    interfaces.add( i );
+                }
+            }
+        }
+
+        if( interfaces.isEmpty() ) {
+            return null;
+        }
+
+        ClassLoader loader = original.getClass().getClassLoader();
+        try {
+            view = Proxy.newProxyInstance( loader != null ? loader : interfaces.iterator().next().getClassLoader(),
+                    interfaces.toArray( new Class[interfaces.size()] ), new ViewHandler( original, parent ) );
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        views.put( original, view );
+        return view;
+    }
+
+    private boolean isMutator(Method method) {
+        Boolean mutator = mutators.get( method );
+        if( mutator == null ) {
+            mutator = Boolean.FALSE;
+            String name = method.getName();
+            for( String prefix : mutatorPrefixes ) {
+                if( name.startsWith( prefix )
+                        && ( name.length() == prefix.length() || Character.isUpperCase( name.charAt( prefix.length() ) ) ) ) {
+                    mutator = Boolean.TRUE;
+                    break;
+                }
+            }
+            mutators.put( method, mutator );
+        }
+        return mutator;
+    }
+
+    /**
+     * 复制original(如果还没有被复制)及其路径,返回副本
+     */
+    private Object materialize(Object original, ViewHandler parent) {
+        if( detached.contains( original ) ) {
+            throw detachedWrite( original );
+        }
+
+        Object copy = copies.copyOf( original );
+        if( copy == null ) {
+            copy = deepCopy( original );
+        } else if( copies.shallow.contains( copy ) ) {
+            own( copy );
+        }
+
+        copyPath( parent, original, copy, original );
+        return copy;
+    }
+
+    private static JclException detachedWrite(Object original) {
+        return new JclException( "Unable to copy " + original.getClass().getName()
+                + " on write: its parent view does not reach the copy" );
+    }
+
+    /**
+     * 通过共享的identity map深克隆original,并补全克隆过程中复用到的浅副本
+     */
+    private Object deepCopy(Object original) {
+        Object copy = cloner.deepClone( original, copies );
+
+        while( !copies.shallowHits.isEmpty() ) {
+            Object hit = copies.shallowHits.remove( copies.shallowHits.size() - 1 );
+            if( copies.shallow.contains( hit ) ) {
+                own( hit );
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * 把浅副本补全为深副本: 仍然指向原对象的字段替换为其深克隆
+     */
+    private void own(Object copy) {
+        copies.shallow.remove( copy );
+
+        ClonePlan plan = ClonePlan.of( copy.getClass() );
+        for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+            Object v = plan.getReference( copy, i );
+            if( v == null || cloner.isLeaf( v ) ) {
+                continue;
+            }
+
+            if( copies.isCopy( v ) ) {
+                if( copies.shallow.contains( v ) ) {
+                    own( v );
+                }
+            } else {
+                plan.putReference( copy, i, deepCopy( v ) );
+            }
+        }
+    }
+
+    /**
+     * 沿视图路径向上复制祖先,使其指向子节点的副本.祖先的字段不直接引用子节点时(如子节点位于集合内部),
+     * 该祖先被深克隆.target为被修改的原对象
+     */
+    private void copyPath(ViewHandler parent, Object childOriginal, Object childCopy, Object target) {
+        for( ViewHandler p = parent; p != null; p = p.parent ) {
+            Object copy = copies.copyOf( p.original );
+
+            if( copy != null ) {
+                // 更上层的祖先在复制copy时已经处理过
+                if( !replaceReferences( copy, childOriginal, childCopy ) ) {
+                    checkConnected( p.original, childOriginal, childCopy, target );
+                    if( copies.shallow.contains( copy ) ) {
+                        own( copy );
+                    }
+                }
+                return;
+            }
+
+            copy = shallowCopy( p.original );
+            if( copy != null && replaceReferences( copy, childOriginal, childCopy ) ) {
+                copies.put( p.original, copy );
+                copies.shallow.add( copy );
+            } else {
+                checkConnected( p.original, childOriginal, childCopy, target );
+                copy = deepCopy( p.original );
+            }
+
+            childOriginal = p.original;
+            childCopy = copy;
+        }
+    }
+
+    /**
+     * 祖先不直接引用子节点时,深克隆祖先只有两种情况能保留子节点的副本: 子节点可以从祖先克隆到(副本被复用),
+     * 或者子节点的副本引用了祖先或其字段的副本(如迭代器与子列表引用其集合).否则把target标记为脱离并抛出JclException
+     */
+    private void checkConnected(Object ancestor, Object childOriginal, Object childCopy, Object target) {
+        if( reaches( ancestor, Collections.singleton( childOriginal ) ) ) {
+            return;
+        }
+
+        Set<Object> ancestorCopies = Collections.newSetFromMap( new IdentityHashMap<>() );
+        addCopy( ancestorCopies, ancestor );
+        if( !ancestor.getClass().isArray() ) {
+            ClonePlan plan = ClonePlan.of( ancestor.getClass() );
+            for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+                addCopy( ancestorCopies, plan.getReference( ancestor, i ) );
+            }
+        }
+
+        if( ancestorCopies.isEmpty() || !reaches( childCopy, ancestorCopies ) ) {
+            detached.add( target );
+            throw detachedWrite( target );
+        }
+    }
+
+    private void addCopy(Set<Object> copySet, Object original) {
+        Object copy = original != null ? copies.copyOf( original ) : null;
+        if( copy != null ) {
+            copySet.add( copy );
+        }
+    }
+
+    /**
+     * 按克隆的方式遍历from可达的对象(集合只遍历其元素),返回是否到达targets中的某个对象
+     */
+    private boolean reaches(Object from, Set<Object> targets) {
+        Set<Object> visited = Collections.newSetFromMap( new IdentityHashMap<>() );
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        stack.push( from );
+
+        while( !stack.isEmpty() ) {
+            Object o = stack.pop();
+            if( targets.contains( o ) ) {
+                return true;
+            }
+            if( !visited.add( o ) || cloner.isLeaf( o ) ) {
+                continue;
+            }
+
+            Class<?> clz = o.getClass();
+            if( clz.isArray() ) {
+                if( !clz.getComponentType().isPrimitive() ) {
+                    push( stack, Arrays.asList( (Object[]) o ) );
+                }
+            } else if( cloner.hasFastCloner( clz ) ) {
+                if( o instanceof Collection ) {
+                    push( stack, (Collection<?>) o );
+                } else if( o instanceof Map ) {
+                    push( stack, ( (Map<?, ?>) o ).keySet() );
+                    push( stack, ( (Map<?, ?>) o ).values() );
+                }
+            } else {
+                ClonePlan plan = ClonePlan.of( clz );
+                for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+                    Object r = plan.getReference( o, i );
+                    if( r != null ) {
+                        stack.push( r );
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void push(ArrayDeque<Object> stack, Collection<?> values) {
+        for( Object v : values ) {
+            if( v != null ) {
+                stack.push( v );
+            }
+        }
+    }
+
+    private Object shallowCopy(Object original) {
+        Class<?> clz = original.getClass();
+        if( clz.isArray() ) {
+            return null;
+        }
+
+        Object copy = cloner.newInstance( clz );
+        ClonePlan plan = ClonePlan.of( clz );
+        plan.copyPrimitives( original, copy );
+        for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+            plan.putReference( copy, i, plan.getReference( original, i ) );
+        }
+        return copy;
+    }
+
+    /**
+     * 把copy中引用已复制对象的字段替换为副本
+     *
+     * @return copy是否直接引用childOriginal或childCopy
+     */
+    private boolean replaceReferences(Object copy, Object childOriginal, Object childCopy) {
+        boolean found = false;
+
+        ClonePlan plan = ClonePlan.of( copy.getClass() );
+        for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+            Object v = plan.getReference( copy, i );
+            if( v == null ) {
+                continue;
+            }
+
+            if( v == childOriginal || v == childCopy ) {
+                plan.putReference( copy, i, childCopy );
+                found = true;
+            } else {
+                Object c = copies.copyOf( v );
+                if( c != null ) {
+                    plan.putReference( copy, i, c );
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 视图的调用处理器.parent为返回该视图的视图,用于路径复制
+     */
+    private final class ViewHandler implements InvocationHandler {
+        private final Object original;
+        private final ViewHandler parent;
+
+        private ViewHandler(Object original, ViewHandler parent) {
+            this.original = original;
+            this.parent = parent;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if( args != null ) {
+                for( int i = 0; i < args.length; i++ ) {
+                    args[i] = unwrap( args[i] );
+                }
+            }
+
+            boolean write = method.getDeclaringClass() != Object.class && isMutator( method );
+            Object target = write ? materialize( original, parent ) : current( original );
+
+            Object result;
+            try {
+                result = method.invoke( target, args );
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if( result == target ) {
+                return proxy;
+            }
+            return wrap( result, method.getReturnType(), write );
+        }
+
+        /**
+         * 包装返回值: 接口类型与Object(泛型擦除后的类型)返回视图.其他可变对象在修改方法中连同路径一起复制,
+         * 在读方法中返回脱离会话的深克隆,不复制路径
+         */
+        private Object wrap(Object result, Class<?> returnType, boolean write) {
+            if( result == null || returnType.isPrimitive() || cloner.isLeaf( result ) ) {
+                return result;
+            }
+
+            Object resultOriginal = copies.originals.get( result );
+            if( resultOriginal == null ) {
+                resultOriginal = result;
+            }
+
+            if( returnType.isInterface() || returnType == Object.class ) {
+                Object view = view( resultOriginal, returnType.isInterface() ? returnType : null, this );
+                if( view != null ) {
+                    return view;
+                }
+            }
+
+            return write ? materialize( resultOriginal, this ) : cloner.deepClone( result );
+        }
+
+        private Object unwrap(Object arg) {
+            if( arg != null && Proxy.isProxyClass( arg.getClass() ) ) {
+                InvocationHandler h = Proxy.getInvocationHandler( arg );
+                if( h instanceof ViewHandler && ( (ViewHandler) h ).session() == CopyOnWriteSession.this ) {
+                    return current( ( (ViewHandler) h ).original );
+                }
+            }
+            return arg;
+        }
+
+        private CopyOnWriteSession session() {
+            return CopyOnWriteSession.this;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cn.vicky.engine.classloader.core.utils;
+
+/**
+ * 针对某个类型的克隆实现,替代ObjectCloner按字段复制的通用方式
+ * 
+ * @author Vicky.H
+ * @email  ecliser@163.com
+ */
+public interface FastCloner {
+
+    /**
+     * 克隆original
+     * 
+     * @param original
+     * @param context
+     * @return clone
+     */
+    public Object clone(Object original, CloneContext context);
+}
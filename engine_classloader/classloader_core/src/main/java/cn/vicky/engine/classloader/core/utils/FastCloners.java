@@ -0,0 +1,197 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntFunction;
+
+/**
+ * 常用java.util集合的FastCloner,通过公开API按原大小重建集合,而不是复制其内部的表与节点.
+ * 排序集合的Comparator不会被克隆.元素由CloneContext.deferCloneAll在工作栈中复制,在CloneContext.whenComplete中插入,以支持并行克隆,并行时元素可达的集合先被填充
+ * 
+ * @author Vicky.H
+ * @email  ecliser@163.com
+ */
+final class FastCloners {
+
+    private FastCloners() {
+    }
+
+    /**
+     * 向ObjectCloner注册所有内置的FastCloner
+     * 
+     * @param cloner
+     */
+    static void registerDefaults(ObjectCloner cloner) {
+        cloner.registerFastCloner( ArrayList.class, new CollectionCloner( ArrayList::new ) );
+        cloner.registerFastCloner( LinkedList.class, new CollectionCloner( (n) -> new LinkedList<>() ) );
+        cloner.registerFastCloner( ArrayDeque.class, new CollectionCloner( ArrayDeque::new ) );
+        cloner.registerFastCloner( HashSet.class, new CollectionCloner( (n) -> new HashSet<>( capacity( n ) ) ) );
+        cloner.registerFastCloner( LinkedHashSet.class, new CollectionCloner( (n) -> new LinkedHashSet<>( capacity( n ) ) ) );
+        cloner.registerFastCloner( TreeSet.class, new TreeSetCloner() );
+        cloner.registerFastCloner( CopyOnWriteArrayList.class, new CopyOnWriteArrayListCloner() );
+        cloner.registerFastCloner( HashMap.class, new MapCloner( (n) -> new HashMap<>( capacity( n ) ) ) );
+        cloner.registerFastCloner( ConcurrentHashMap.class, new MapCloner( ConcurrentHashMap::new ) );
+        cloner.registerFastCloner( TreeMap.class, new TreeMapCloner() );
+    }
+
+    /**
+     * 保证size个元素在默认负载因子下不会触发扩容的初始容量
+     */
+    private static int capacity(int size) {
+        return (int) ( size / 0.75f ) + 1;
+    }
+
+    /**
+     * 集合类的modCount字段的偏移量,没有该字段或Unsafe不可用时为null
+     */
+    private static final ClassValue<long[]> modCounts = new ClassValue<long[]>() {
+        @Override
+        protected long[] computeValue(Class<?> type) {
+            for( Class<?> c = type; c != null; c = c.getSuperclass() ) {
+                try {
+                    Field f = c.getDeclaredField( "modCount" );
+                    return f.getType() == int.class ? ClonePlan.offsets( new Field[] { f } ) : null;
+                } catch (NoSuchFieldException e) {
+                    // 继续查找父类
+                }
+            }
+            return null;
+        }
+    };
+
+    /**
+     * 重建的集合沿用原集合的modCount,与集合一起被复制的迭代器与子列表因此仍然有效
+     */
+    private static void copyModCount(Object original, Object clone) {
+        long[] offset = modCounts.get( clone.getClass() );
+        if( offset != null && original.getClass() == clone.getClass() ) {
+            JdkInternals.putInt( clone, offset[0], JdkInternals.getInt( original, offset[0] ) );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object fill(Collection original, Collection clone, CloneContext context) {
+        Object registered = context.register( original, clone );
+        if( registered != clone ) {
+            return registered;
+        }
+
+        Object[] values = original.toArray();
+        context.deferCloneAll( () -> context.whenComplete( clone, () -> {
+            for( Object v : values ) {
+                clone.add( v );
+            }
+            copyModCount( original, clone );
+        }, values ), values );
+        return clone;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object fill(Map<?, ?> original, Map clone, CloneContext context) {
+        Object registered = context.register( original, clone );
+        if( registered != clone ) {
+            return registered;
+        }
+
+        int size = original.size();
+        Object[] keys = new Object[size];
+        Object[] values = new Object[size];
+
+        int n = 0;
+        for( Map.Entry<?, ?> e : original.entrySet() ) {
+            // Concurrent maps may grow while iterating
+            if( n == size ) {
+                break;
+            }
+            keys[n] = e.getKey();
+            values[n] = e.getValue();
+            n++;
+        }
+
+        final int count = n;
+        context.deferCloneAll( () -> context.whenComplete( clone, () -> {
+            for( int i = 0; i < count; i++ ) {
+                clone.put( keys[i], values[i] );
+            }
+            copyModCount( original, clone );
+        }, keys, values ), keys, values );
+        return clone;
+    }
+
+    static final class CollectionCloner implements FastCloner {
+        private final IntFunction<Collection> factory;
+
+        CollectionCloner(IntFunction<Collection> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Object clone(Object original, CloneContext context) {
+            Collection c = (Collection) original;
+            return fill( c, factory.apply( c.size() ), context );
+        }
+    }
+
+    static final class MapCloner implements FastCloner {
+        private final IntFunction<Map> factory;
+
+        MapCloner(IntFunction<Map> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Object clone(Object original, CloneContext context) {
+            Map m = (Map) original;
+            return fill( m, factory.apply( m.size() ), context );
+        }
+    }
+
+    static final class TreeSetCloner implements FastCloner {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone(Object original, CloneContext context) {
+            SortedSet s = (SortedSet) original;
+            return fill( s, new TreeSet( s.comparator() ), context );
+        }
+    }
+
+    static final class TreeMapCloner implements FastCloner {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone(Object original, CloneContext context) {
+            SortedMap m = (SortedMap) original;
+            return fill( m, new TreeMap( m.comparator() ), context );
+        }
+    }
+
+    static final class CopyOnWriteArrayListCloner implements FastCloner {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone(Object original, CloneContext context) {
+            CopyOnWriteArrayList clone = new CopyOnWriteArrayList();
+            Object registered = context.register( original, clone );
+            if( registered != clone ) {
+                return registered;
+            }
+
+            Object[] values = ( (CopyOnWriteArrayList) original ).toArray();
+            context.deferCloneAll( () -> context.whenComplete( clone, () -> clone.addAll( Arrays.asList( values ) ), values ),
+                    values );
+            return clone;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 判断类的实例是否不可变,每个类只分析一次.
+ * 不可变的类: 已知的JDK值类型,枚举,以及自身与所有父类的实例字段都是final并且字段类型也不可变的final类
+ *
+ * 数组与非final的字段类型(接口,Object等)视为可变,因为无法确定运行时的实际类型
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ */
+final class Immutability {
+
+    /**
+     * 已知的JDK值类型,其中一些类(如String)为缓存hash而带有非final字段.
+     * Optional不在其中: 它只和持有的值一样不可变,按字段分析时视为可变
+     */
+    private static final Set<Class<?>> knownImmutables = new HashSet<>( Arrays.<Class<?>> asList( String.class,
+            Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class,
+            Double.class, Void.class, BigDecimal.class, BigInteger.class, Class.class, URI.class, URL.class,
+            UUID.class, Pattern.class, Locale.class, File.class, Instant.class, Duration.class, Period.class,
+            LocalDate.class, LocalTime.class, LocalDateTime.class, OffsetTime.class, OffsetDateTime.class,
+            ZonedDateTime.class, Year.class, YearMonth.class, MonthDay.class ) );
+
+    /**
+     * 所有子类都不可变的JDK类型
+     */
+    private static final Class<?>[] knownImmutableHierarchies = { ZoneId.class };
+
+    private static final ClassValue<Boolean> verdicts = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return analyze( type, new HashSet<>() );
+        }
+    };
+
+    private Immutability() {
+    }
+
+    /**
+     * @param c
+     * @return c的实例是否不可变
+     */
+    static boolean isImmutable(Class<?> c) {
+        return verdicts.get( c );
+    }
+
+    /**
+     * 分析c,inProgress中的类视为不可变: 若它们实际可变,分析路径上的根类也会被判为可变,
+     * 因此只缓存根类的结论
+     */
+    private static boolean analyze(Class<?> c, Set<Class<?>> inProgress) {
+        if( c.isPrimitive() || c.isEnum() || knownImmutables.contains( c ) ) {
+            return true;
+        }
+
+        for( Class<?> h : knownImmutableHierarchies ) {
+            if( h.isAssignableFrom( c ) ) {
+                return true;
+            }
+        }
+
+        if( c.isArray() || c.isInterface() || !Modifier.isFinal( c.getModifiers() ) ) {
+            return false;
+        }
+
+        if( !inProgress.add( c ) ) {
+            return true;
+        }
+
+        for( Class<?> sc = c; sc != Object.class && sc != null; sc = sc.getSuperclass() ) {
+            for( Field field : sc.getDeclaredFields() ) {
+                int modifiers = field.getModifiers();
+                if( Modifier.isStatic( modifiers ) ) {
+                    continue;
+                }
+
+                if( !Modifier.isFinal( modifiers ) || !analyze( field.getType(), inProgress ) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+import sun.reflect.ReflectionFactory;
+
+/**
+ * JDK内部API(sun.misc.Unsafe与sun.reflect.ReflectionFactory)的唯一入口,其他类只通过这里按偏移量读写字段.
+ * 仅供JCL内部使用.Unsafe不可用时isAvailable返回false,此时不应调用读写方法
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ */
+@SuppressWarnings("sunapi")
+public final class JdkInternals {
+
+    private static final Unsafe unsafe = findUnsafe();
+
+    private JdkInternals() {
+    }
+
+    /**
+     * @return Unsafe是否可用
+     */
+    public static boolean isAvailable() {
+        return unsafe != null;
+    }
+
+    /**
+     * 返回实例字段的偏移量
+     *
+     * @param field
+     * @return long
+     * @throws UnsupportedOperationException 不支持该类(如record/hidden class)时
+     */
+    public static long objectFieldOffset(Field field) {
+        return unsafe.objectFieldOffset( field );
+    }
+
+    /**
+     * 读取静态字段,不检查访问权限
+     *
+     * @param field
+     * @return Object
+     */
+    public static Object getStaticObject(Field field) {
+        return unsafe.getObject( unsafe.staticFieldBase( field ), unsafe.staticFieldOffset( field ) );
+    }
+
+    public static boolean getBoolean(Object o, long offset) {
+        return unsafe.getBoolean( o, offset );
+    }
+
+    public static void putBoolean(Object o, long offset, boolean x) {
+        unsafe.putBoolean( o, offset, x );
+    }
+
+    public static byte getByte(Object o, long offset) {
+        return unsafe.getByte( o, offset );
+    }
+
+    public static void putByte(Object o, long offset, byte x) {
+        unsafe.putByte( o, offset, x );
+    }
+
+    public static char getChar(Object o, long offset) {
+        return unsafe.getChar( o, offset );
+    }
+
+    public static void putChar(Object o, long offset, char x) {
+        unsafe.putChar( o, offset, x );
+    }
+
+    public static short getShort(Object o, long offset) {
+        return unsafe.getShort( o, offset );
+    }
+
+    public static void putShort(Object o, long offset, short x) {
+        unsafe.putShort( o, offset, x );
+    }
+
+    public static int getInt(Object o, long offset) {
+        return unsafe.getInt( o, offset );
+    }
+
+    public static void putInt(Object o, long offset, int x) {
+        unsafe.putInt( o, offset, x );
+    }
+
+    public static long getLong(Object o, long offset) {
+        return unsafe.getLong( o, offset );
+    }
+
+    public static void putLong(Object o, long offset, long x) {
+        unsafe.putLong( o, offset, x );
+    }
+
+    public static float getFloat(Object o, long offset) {
+        return unsafe.getFloat( o, offset );
+    }
+
+    public static void putFloat(Object o, long offset, float x) {
+        unsafe.putFloat( o, offset, x );
+    }
+
+    public static double getDouble(Object o, long offset) {
+        return unsafe.getDouble( o, offset );
+    }
+
+    public static void putDouble(Object o, long offset, double x) {
+        unsafe.putDouble( o, offset, x );
+    }
+
+    public static Object getObject(Object o, long offset) {
+        return unsafe.getObject( o, offset );
+    }
+
+    /**
+     * 不检查类型地写入引用字段,调用者负责保证x的类型与字段匹配
+     *
+     * @param o
+     * @param offset
+     * @param x
+     */
+    public static void putObject(Object o, long offset, Object x) {
+        unsafe.putObject( o, offset, x );
+    }
+
+    /**
+     * 返回按序列化的方式创建type实例的构造函数: 执行base(第一个非Serializable父类)的无参构造函数
+     *
+     * @param type
+     * @param base
+     * @return Constructor
+     */
+    public static Constructor<?> serializationConstructor(Class<?> type, Constructor<?> base) {
+        return ReflectionFactory.getReflectionFactory().newConstructorForSerialization( type, base );
+    }
+
+    private static Unsafe findUnsafe() {
+        try {
+            Field f = Unsafe.class.getDeclaredField( "theUnsafe" );
+            f.setAccessible( true );
+            return (Unsafe) f.get( null );
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cn.vicky.engine.classloader.core.utils;
+
+/**
+ * 迁移对象到另一个ClassLoader时,替代按字段名复制的转换器,按源类的类名注册.
+ * 用于字段改名,类型变化或者类已被删除等无法自动匹配的情况
+ *
+ * @author Vicky.H
+ * @email  ecliser@163.com
+ */
+public interface MigrationConverter {
+
+    /**
+     * 返回original在目标ClassLoader中的对应对象.实现类应在迁移子元素之前通过context登记结果,
+     * 以保持共享引用与循环引用
+     *
+     * @param original 旧ClassLoader中的对象
+     * @param targetClass 目标ClassLoader中的同名类,不存在时为null
+     * @param context 用于迁移子元素
+     * @return Object
+     */
+    public Object convert(Object original, Class<?> targetClass, CloneContext context);
+}
@@ -2,6 +2,7 @@ package cn.vicky.engine.classloader.core.utils;
 
 import cn.vicky.engine.classloader.core.exception.JclException;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -11,15 +12,24 @@ import java.net.URI;
 import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 
 import org.objenesis.Objenesis;
@@ -28,6 +38,12 @@ import org.objenesis.ObjenesisStd;
 /**
  * Object clone
  * 
+ * 每个类的字段在第一次克隆时编译为ClonePlan并缓存,之后的克隆不再反射遍历字段.
+ * 克隆使用显式的工作栈而不是递归,可选地在ForkJoinPool中并行执行
+ * 
+ * migrate可以把对象图复制到另一个ClassLoader(如重新加载后的JarClassLoader)中:
+ * 每个类被替换为目标ClassLoader中的同名类,字段按名称与类型匹配,类之间的映射与字段计划按类对缓存
+ * 
  * @author Vicky.H
  * @email  ecliser@163.com
  */
@@ -35,7 +51,24 @@ public class ObjectCloner {
     private final Objenesis objenesis;
     private final Set<Class<?>> ignoredClasses = new HashSet<>();
     private final Map<Object, Boolean> ignoredInstances = new IdentityHashMap<>();
-    private final ConcurrentHashMap<Class<?>, List<Field>> fieldsMap = new ConcurrentHashMap<>();
+    private final Map<Class<?>, FastCloner> fastCloners = new HashMap<>();
+    private final Map<String, MigrationConverter> migrationConverters = new HashMap<>();
+    private int parallelThreshold = 1024;
+    private boolean detectImmutables = true;
+    private String[] mutatorPrefixes = { "set", "add", "put", "remove", "clear", "replace", "retain", "offer", "poll",
+            "push", "pop", "sort", "compute", "merge", "update", "reset", "increment", "decrement", "append",
+            "insert", "delete" };
+
+    /**
+     * 源类 -> (目标ClassLoader -> 目标ClassLoader中的同名类),每个源类只解析一次.
+     * 弱引用目标ClassLoader与其中的类,迁移不会阻止重新加载后旧的JarClassLoader被回收.读取不加锁
+     */
+    private static final ClassValue<WeakKeyCache<ClassLoader, WeakReference<Class<?>>>> targetClasses = new ClassValue<WeakKeyCache<ClassLoader, WeakReference<Class<?>>>>() {
+        @Override
+        protected WeakKeyCache<ClassLoader, WeakReference<Class<?>>> computeValue(Class<?> type) {
+            return new WeakKeyCache<>();
+        }
+    };
 
     public ObjectCloner() {
         objenesis = new ObjenesisStd();
@@ -44,6 +77,7 @@ public class ObjectCloner {
 
     private void init() {
         ignoreKnownJdkImmutableClasses();
+        FastCloners.registerDefaults( this );
     }
 
     /**
@@ -86,6 +120,39 @@ public class ObjectCloner {
         ignoredClasses.addAll(Arrays.asList(clazz));
     }
 
+    /**
+     * Registers a cloner for instances of exactly the given class, replacing
+     * the generic field by field copy
+     * 
+     * @param clazz
+     * @param fastCloner
+     */
+    public void registerFastCloner(final Class<?> clazz, final FastCloner fastCloner) {
+        fastCloners.put( clazz, fastCloner );
+    }
+
+    /**
+     * Removes the cloners of the given classes, including the built-in ones
+     * 
+     * @param clazz
+     */
+    public void unregisterFastCloner(final Class<?>... clazz) {
+        for( Class<?> c : clazz ) {
+            fastCloners.remove( c );
+        }
+    }
+
+    /**
+     * Registers a converter used by migrate for instances of the named class,
+     * replacing the copy by field name
+     * 
+     * @param className
+     * @param converter
+     */
+    public void registerMigrationConverter(final String className, final MigrationConverter converter) {
+        migrationConverters.put( className, converter );
+    }
+
     /**
      * Creates a new instance of the Class
      * 
@@ -98,6 +165,27 @@ public class ObjectCloner {
         return (T) objenesis.newInstance( c );
     }
 
+    /**
+     * 是否自动检测不可变的类型(见Immutability),其实例与普通忽略的类型一样被共享而不是复制.默认开启
+     * 
+     * @param detectImmutables
+     */
+    public void setDetectImmutables(final boolean detectImmutables) {
+        this.detectImmutables = detectImmutables;
+    }
+
+    /**
+     * 并行克隆时,元素个数超过该值的数组与集合才会被拆分,也是每个任务最多处理的元素个数
+     * 
+     * @param parallelThreshold
+     */
+    public void setParallelThreshold(final int parallelThreshold) {
+        if( parallelThreshold < 1 ) {
+            throw new IllegalArgumentException( "parallelThreshold must be positive" );
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
     /**
      * @param <T>
      * @param original
@@ -107,10 +195,32 @@ public class ObjectCloner {
         if( original == null )
             return null;
 
-        final Map<Object, Object> clones = new IdentityHashMap<>();
         try {
-            return clone( original, clones );
-        } catch (IllegalAccessException e) {
+            return new Context( new Session( new IdentityHashMap<>(), null, null ) ).clone( original );
+        } catch (JclException e) {
+            throw new JclException( "Error during cloning of " + original, e );
+        }
+    }
+
+    /**
+     * 在pool中并行深克隆: 大数组与大集合的元素被拆分给多个任务,共享引用与循环引用通过并发的identity map保持.
+     * 哈希集合与有序集合在所有任务完成后才填充,见{@link CloneContext#whenComplete(Runnable)}
+     * 
+     * @param <T>
+     * @param original
+     * @param pool 如ForkJoinPool.commonPool()
+     * @return T
+     */
+    public <T> T deepClone(final T original, final ForkJoinPool pool) {
+        if( original == null )
+            return null;
+
+        final Session session = new Session( null, null, pool );
+        try {
+            T clone = pool.invoke( ForkJoinTask.adapt( () -> new Context( session ).clone( original ) ) );
+            complete( session );
+            return clone;
+        } catch (JclException e) {
             throw new JclException( "Error during cloning of " + original, e );
         }
     }
@@ -125,100 +235,637 @@ public class ObjectCloner {
             return null;
 
         try {
-            return clone( original, null );
-        } catch (IllegalAccessException e) {
+            return new Context( new Session( null, null, null ) ).clone( original );
+        } catch (JclException e) {
             throw new JclException( "Error during cloning of " + original, e );
         }
     }
 
     /**
-     * @param T
-     *            original
-     * @param Map
-     *            clones
-     * @return
-     * @throws IllegalAccessException
+     * 返回original的写时复制视图: 视图与原对象共享状态,第一次调用某个节点的修改方法时才复制该节点及其路径.
+     * 通过视图得到的接口类型的返回值也是视图,读方法返回的其他可变对象是脱离视图的深克隆,对它的修改不会反映到视图上,
+     * 因此适合以接口访问的对象图.修改方法按方法名前缀识别,见setMutatorPrefixes
+     * 
+     * @param <T>
+     * @param original
+     * @param type 视图实现的接口
+     * @return T
      */
-    @SuppressWarnings("unchecked")
-    private <T> T clone(final T original, final Map<Object, Object> clones) throws IllegalAccessException {
-        final Class<T> clz = (Class<T>) original.getClass();
+    public <T> T lazyClone(final T original, final Class<T> type) {
+        if( original == null )
+            return null;
 
-        if( ignoredInstances.containsKey( original ) || clz.isEnum() || ignoredClasses.contains( clz ) )
+        if( !type.isInterface() ) {
+            throw new JclException( type.getName() + " is not an interface" );
+        }
+
+        if( isLeaf( original ) ) {
             return original;
+        }
+
+        return type.cast( new CopyOnWriteSession( this, mutatorPrefixes ).view( original, type ) );
+    }
+
+    /**
+     * lazyClone中被视为修改方法的方法名前缀.方法名等于前缀,或前缀之后紧跟大写字母时视为修改方法
+     * 
+     * @param prefixes
+     */
+    public void setMutatorPrefixes(final String... prefixes) {
+        this.mutatorPrefixes = prefixes.clone();
+    }
+
+    /**
+     * 把对象图深复制到target中: 每个对象的类替换为target中的同名类,
+     * 枚举常量与Class按名称映射,target与原ClassLoader共享的类(如JDK类)按普通深克隆处理
+     * 
+     * @param original
+     * @param target
+     * @return Object
+     */
+    public Object migrate(final Object original, final ClassLoader target) {
+        if( original == null )
+            return null;
+
+        try {
+            return new Context( new Session( new IdentityHashMap<>(), target, null ) ).clone( original );
+        } catch (JclException e) {
+            throw new JclException( "Error during migration of " + original, e );
+        }
+    }
 
-        if( clones != null && clones.get( original ) != null ) {
-            return (T) clones.get( original );
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object enumConstant(Class<?> enumClass, String name) {
+        try {
+            return Enum.valueOf( (Class) enumClass, name );
+        } catch (IllegalArgumentException e) {
+            throw new JclException( "Enum constant " + name + " not found in " + enumClass.getName(), e );
         }
+    }
 
-        if( clz.isArray() ) {
-            int length = Array.getLength( original );
-            T newInstance = (T) Array.newInstance( clz.getComponentType(), length );
+    /**
+     * 返回target中与c同名的类
+     * 
+     * @param c
+     * @param target
+     * @return Class
+     */
+    private static Class<?> targetClass(final Class<?> c, final ClassLoader target) {
+        Class<?> tc = findTargetClass( c, target );
+        if( tc == null ) {
+            throw new JclException( "Class " + c.getName() + " not found in target classloader " + target );
+        }
+        return tc;
+    }
+
+    /**
+     * 返回target中与c同名的类,不存在时返回null.结果按(c, target)缓存
+     * 
+     * @param c
+     * @param target
+     * @return Class
+     */
+    private static Class<?> findTargetClass(final Class<?> c, final ClassLoader target) {
+        if( c.isPrimitive() || c.getClassLoader() == null ) {
+            return c;
+        }
 
-            clones.put( original, newInstance );
+        WeakKeyCache<ClassLoader, WeakReference<Class<?>>> classes = targetClasses.get( c );
 
-            for( int i = 0; i < length; i++ ) {
-                Object v = Array.get( original, i );
-                Object clone = clones != null ? clone( v, clones ) : v;
-                Array.set( newInstance, i, clone );
+        WeakReference<Class<?>> ref = classes.get( target );
+        Class<?> tc = ref != null ? ref.get() : null;
+        if( tc == null ) {
+            try {
+                tc = Class.forName( c.getName(), false, target );
+            } catch (ClassNotFoundException e) {
+                return null;
             }
+            classes.put( target, new WeakReference<Class<?>>( tc ) );
+        }
+        return tc;
+    }
 
-            return newInstance;
+    /**
+     * 通过clones深克隆original,clones中已有的对象直接复用,新的副本也登记到clones中
+     * 
+     * @param original
+     * @param clones
+     * @return Object
+     */
+    Object deepClone(final Object original, final Map<Object, Object> clones) {
+        return new Context( new Session( clones, null, null ) ).clone( original );
+    }
+
+    /**
+     * @param c
+     * @return c的实例是否由FastCloner克隆
+     */
+    boolean hasFastCloner(final Class<?> c) {
+        return fastCloners.containsKey( c );
+    }
+
+    /**
+     * @param o
+     * @return o是否无需克隆
+     */
+    boolean isLeaf(final Object o) {
+        return isLeaf( o, o.getClass() );
+    }
+
+    /**
+     * 无需克隆的值: 枚举常量,忽略的类型,忽略的实例,以及开启检测时不可变的类型
+     * 
+     * @param o
+     * @param clz
+     * @return boolean
+     */
+    private boolean isLeaf(final Object o, final Class<?> clz) {
+        return o instanceof Enum || ignoredClasses.contains( clz )
+                || ( !ignoredInstances.isEmpty() && ignoredInstances.containsKey( o ) )
+                || ( detectImmutables && Immutability.isImmutable( clz ) );
+    }
+
+    /**
+     * 数组的所有元素是否都一定是叶子值,此时数组可以整体浅复制
+     * 
+     * @param componentType
+     * @return boolean
+     */
+    private boolean isImmutableComponentType(final Class<?> componentType) {
+        return componentType.isEnum()
+                || ( Modifier.isFinal( componentType.getModifiers() ) && ignoredClasses.contains( componentType ) )
+                || ( detectImmutables && Immutability.isImmutable( componentType ) );
+    }
+
+
+    /**
+     * 一次克隆或迁移操作共享的状态.
+     * 顺序执行时使用IdentityHashMap,并行执行时使用以对象标识为key的ConcurrentHashMap,两者都没有时表示浅克隆
+     */
+    private static final class Session {
+        private final Map<Object, Object> clones;
+        private final ConcurrentMap<IdentityKey, Object> concurrentClones;
+        private final ClassLoader target;
+        private final ForkJoinPool pool;
+        private final Queue<Completion> completions;
+        private final boolean deep;
+
+        private Session(Map<Object, Object> clones, ClassLoader target, ForkJoinPool pool) {
+            this.clones = clones;
+            this.concurrentClones = pool != null ? new ConcurrentHashMap<>() : null;
+            this.target = target;
+            this.pool = pool;
+            this.completions = pool != null ? new ConcurrentLinkedQueue<>() : null;
+            this.deep = clones != null || pool != null;
         }
 
-        final T newInstance = newInstance( clz );
+        private Object lookup(Object original) {
+            if( clones != null ) {
+                return clones.get( original );
+            }
+            if( concurrentClones != null ) {
+                return concurrentClones.get( new IdentityKey( original ) );
+            }
+            return null;
+        }
 
-        if( clones != null ) {
-            clones.put( original, newInstance );
+        /**
+         * 登记original的复制结果,返回实际登记的对象(并行时可能是其他任务先登记的)
+         */
+        private Object register(Object original, Object copy) {
+            if( clones != null ) {
+                clones.put( original, copy );
+                return copy;
+            }
+            if( concurrentClones != null ) {
+                Object registered = concurrentClones.putIfAbsent( new IdentityKey( original ), copy );
+                return registered != null ? registered : copy;
+            }
+            return copy;
         }
 
-        final List<Field> fields = allFields( clz );
+        private void whenComplete(Completion completion) {
+            if( completions != null ) {
+                completions.add( completion );
+            } else {
+                completion.action.run();
+            }
+        }
+    }
 
-        for( Field field : fields ) {
-            if( !Modifier.isStatic( field.getModifiers() ) ) {
-                field.setAccessible( true );
-                Object fieldObject = field.get( original );
-                Object fieldObjectClone = clones != null ? clone( fieldObject, clones ) : fieldObject;
-                field.set( newInstance, fieldObjectClone );
+    /**
+     * 推迟到并行克隆完成后执行的操作.clone不为null时表示向集合clone插入elements
+     */
+    private static final class Completion {
+        private static final int PENDING = 0;
+        private static final int WAITING = 1;
+        private static final int DONE = 2;
+
+        private final Object clone;
+        private final Runnable action;
+        private final Object[][] elements;
+        private int state = PENDING;
+
+        private Completion(Object clone, Runnable action, Object[][] elements) {
+            this.clone = clone;
+            this.action = action;
+            this.elements = elements;
+        }
+
+        private void run() {
+            state = DONE;
+            action.run();
+        }
+    }
+
+    /**
+     * 执行并行克隆中推迟的操作.哈希集合与有序集合按后序填充: 元素可达的其他集合先被填充,
+     * 因此依赖字段(包括其中的集合)的hashCode/compareTo与顺序克隆时一致.循环引用中的集合按登记顺序填充
+     * 
+     * @param session
+     */
+    private void complete(final Session session) {
+        final List<Completion> completions = new ArrayList<>( session.completions );
+        session.completions.clear();
+
+        final Map<Object, Completion> pending = new IdentityHashMap<>();
+        for( Completion c : completions ) {
+            if( c.clone != null ) {
+                pending.put( c.clone, c );
+            }
+        }
+
+        final Set<Object> visited = Collections.newSetFromMap( new IdentityHashMap<>() );
+        final ArrayDeque<Object> stack = new ArrayDeque<>();
+
+        for( Completion c : completions ) {
+            if( c.state != Completion.PENDING ) {
+                continue;
+            }
+            // 列表等按位置插入的集合不依赖元素的状态
+            if( !( c.clone instanceof Set || c.clone instanceof Map ) || !visited.add( c.clone ) ) {
+                c.run();
+                continue;
+            }
+
+            expand( c, stack );
+            while( !stack.isEmpty() ) {
+                Object o = stack.pop();
+                if( o instanceof Completion ) {
+                    ( (Completion) o ).run();
+                    continue;
+                }
+                if( !visited.add( o ) ) {
+                    continue;
+                }
+
+                Completion dependency = pending.get( o );
+                if( dependency != null ) {
+                    if( dependency.state != Completion.WAITING ) {
+                        expand( dependency, stack );
+                    }
+                    continue;
+                }
+
+                Class<?> clz = o.getClass();
+                if( clz.isArray() ) {
+                    if( !clz.getComponentType().isPrimitive() ) {
+                        push( stack, (Object[]) o );
+                    }
+                } else if( !isLeaf( o, clz ) ) {
+                    ClonePlan plan = ClonePlan.of( clz );
+                    for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+                        Object r = plan.getReference( o, i );
+                        if( r != null ) {
+                            stack.push( r );
+                        }
+                    }
+                }
             }
         }
+    }
 
-        return newInstance;
+    /**
+     * 压入c的元素,c尚未执行时先压入c本身,使其在元素可达的对象之后执行
+     */
+    private static void expand(Completion c, ArrayDeque<Object> stack) {
+        if( c.state == Completion.PENDING ) {
+            c.state = Completion.WAITING;
+            stack.push( c );
+        }
+        for( Object[] values : c.elements ) {
+            push( stack, values );
+        }
+    }
+
+    private static void push(ArrayDeque<Object> stack, Object[] values) {
+        for( Object v : values ) {
+            if( v != null ) {
+                stack.push( v );
+            }
+        }
     }
 
     /**
-     * @param List
-     *            l
-     * @param Field
-     *            [] fields
+     * 按对象标识比较的key
      */
-    private void addAll(final List<Field> l, final Field[] fields) {
-        for( final Field field : fields ) {
-            l.add( field );
+    private static final class IdentityKey {
+        private final Object value;
+
+        private IdentityKey(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode( value );
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdentityKey && ( (IdentityKey) obj ).value == value;
         }
     }
 
     /**
-     * @param Class
-     *            c
-     * @return List
+     * 工作栈中表示推迟执行的操作的标记
+     */
+    private static final Object DEFERRED = new Object();
+
+    /**
+     * 克隆引擎,每个线程一个.对象先创建为空壳并登记,其字段由显式的工作栈逐个填充,
+     * 因此长链表等深层结构不会耗尽线程栈.同时作为CloneContext提供给FastCloner与MigrationConverter
      */
-    private List<Field> allFields(final Class<?> c) {
-        List<Field> l = fieldsMap.get( c );
+    private final class Context implements CloneContext {
+        private final Session session;
+
+        // 待填充的(original, copy, plan)三元组,plan为null时表示Object数组,为DEFERRED时original是推迟执行的Runnable
+        private Object[] stack = new Object[48];
+        private int top;
+
+        private Context(Session session) {
+            this.session = session;
+        }
 
-        if( l == null ) {
-            l = new LinkedList<>();
-            Field[] fields = c.getDeclaredFields();
+        @Override
+        public boolean isDeep() {
+            return session.deep;
+        }
 
-            addAll( l, fields );
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T clone(T value) {
+            if( value == null ) {
+                return null;
+            }
+
+            int mark = top;
+            T copy = (T) copy( value );
+            drain( mark );
+            return copy;
+        }
+
+        @Override
+        public Object[] cloneAll(Object[] values) {
+            if( !session.deep ) {
+                return values;
+            }
+
+            if( session.pool != null && values.length > parallelThreshold ) {
+                new CloneRange( session, values, values, 0, values.length ).invoke();
+            } else {
+                cloneRange( values, values, 0, values.length );
+            }
+            return values;
+        }
 
-            Class<?> sc = c;
+        @Override
+        public void deferCloneAll(Runnable then, Object[]... values) {
+            if( !session.deep ) {
+                then.run();
+                return;
+            }
+
+            // then位于元素之下,在元素及其可达的对象都出栈后执行
+            push( then, null, DEFERRED );
+            for( Object[] v : values ) {
+                push( v, v, null );
+            }
+        }
+
+        @Override
+        public Object register(Object original, Object clone) {
+            return session.register( original, clone );
+        }
+
+        @Override
+        public void whenComplete(Runnable action) {
+            session.whenComplete( new Completion( null, action, null ) );
+        }
+
+        @Override
+        public void whenComplete(Object clone, Runnable action, Object[]... elements) {
+            session.whenComplete( new Completion( clone, action, elements ) );
+        }
+
+        /**
+         * 复制src[from, to)中的元素到dst,返回时所有元素都已填充完毕
+         */
+        private void cloneRange(Object[] src, Object[] dst, int from, int to) {
+            int mark = top;
+            for( int i = from; i < to; i++ ) {
+                Object v = src[i];
+                if( v != null ) {
+                    dst[i] = copy( v );
+                }
+            }
+            drain( mark );
+        }
+
+        /**
+         * 返回value的复制: 叶子值与已复制的对象直接返回,数组与普通对象返回登记过的空壳并压入工作栈,
+         * FastCloner与MigrationConverter立即执行
+         */
+        private Object copy(final Object original) {
+            final ClassLoader target = session.target;
+
+            if( target != null ) {
+                if( original instanceof Class ) {
+                    return targetClass( (Class<?>) original, target );
+                }
+
+                if( original instanceof Enum ) {
+                    Class<?> ec = ( (Enum<?>) original ).getDeclaringClass();
+                    Class<?> tc = targetClass( ec, target );
+                    return tc == ec ? original : enumConstant( tc, ( (Enum<?>) original ).name() );
+                }
+            }
+
+            final Class<?> clz = original.getClass();
+
+            // Leaf values are returned before touching the identity maps. When migrating,
+            // only leaves whose class is shared with the target can be kept
+            if( isLeaf( original, clz ) && ( target == null || findTargetClass( clz, target ) == clz ) )
+                return original;
+
+            Object copy = session.lookup( original );
+            if( copy != null ) {
+                return copy;
+            }
+
+            Class<?> tc = clz;
+
+            if( target != null ) {
+                if( !migrationConverters.isEmpty() ) {
+                    MigrationConverter converter = migrationConverters.get( clz.getName() );
+                    if( converter != null ) {
+                        return register( original, converter.convert( original, findTargetClass( clz, target ), this ) );
+                    }
+                }
+                tc = targetClass( clz, target );
+            }
+
+            if( clz.isArray() ) {
+                return copyArray( original, clz, tc );
+            }
+
+            // 共享的类,其中的对象仍然会被迁移
+            if( tc == clz ) {
+                final FastCloner fastCloner = fastCloners.get( clz );
+                if( fastCloner != null ) {
+                    return fastCloner.clone( original, this );
+                }
+            }
+
+            final Object newInstance = newInstance( tc );
+            final Object registered = session.register( original, newInstance );
+            if( registered != newInstance ) {
+                return registered;
+            }
+
+            final ClonePlan plan = ClonePlan.between( clz, tc );
+
+            plan.copyPrimitives( original, newInstance );
+
+            if( plan.referenceCount() > 0 ) {
+                push( original, newInstance, plan );
+            }
+            return newInstance;
+        }
+
+        /**
+         * 复制数组: 基本类型数组与不可变元素类型的数组整体复制,其他数组的元素由工作栈逐个复制
+         */
+        private Object copyArray(final Object original, final Class<?> clz, final Class<?> tc) {
+            final Class<?> componentType = clz.getComponentType();
+
+            if( componentType.isPrimitive() ) {
+                int length = Array.getLength( original );
+                Object newInstance = Array.newInstance( componentType, length );
+                System.arraycopy( original, 0, newInstance, 0, length );
+                return session.register( original, newInstance );
+            }
+
+            final Object[] values = (Object[]) original;
+            final Object[] newInstance = tc == clz ? values.clone()
+                    : (Object[]) Array.newInstance( tc.getComponentType(), values.length );
+
+            final Object registered = session.register( original, newInstance );
+            if( registered != newInstance ) {
+                return registered;
+            }
+
+            if( session.deep && ( tc != clz || !isImmutableComponentType( componentType ) ) ) {
+                push( values, newInstance, null );
+            }
+            return newInstance;
+        }
+
+        private void push(Object original, Object copy, Object plan) {
+            if( top + 3 > stack.length ) {
+                stack = Arrays.copyOf( stack, stack.length * 2 );
+            }
+            stack[top++] = original;
+            stack[top++] = copy;
+            stack[top++] = plan;
+        }
+
+        /**
+         * 填充工作栈中mark以上的所有对象,填充过程中新压入的对象也一并处理
+         */
+        private void drain(int mark) {
+            final boolean deep = session.deep;
+
+            while( top > mark ) {
+                Object entry = stack[--top];
+                Object copy = stack[--top];
+                Object original = stack[--top];
+                stack[top] = stack[top + 1] = stack[top + 2] = null;
+
+                if( entry == null ) {
+                    fillArray( (Object[]) original, (Object[]) copy );
+                    continue;
+                }
+                if( entry == DEFERRED ) {
+                    ( (Runnable) original ).run();
+                    continue;
+                }
+
+                ClonePlan plan = (ClonePlan) entry;
+
+                for( int i = 0, n = plan.referenceCount(); i < n; i++ ) {
+                    Object fieldObject = plan.getReference( original, i );
+                    if( fieldObject != null ) {
+                        plan.putReference( copy, i, deep ? copy( fieldObject ) : fieldObject );
+                    }
+                }
+            }
+        }
+
+        private void fillArray(Object[] src, Object[] dst) {
+            if( session.pool != null && src.length > parallelThreshold ) {
+                new CloneRange( session, src, dst, 0, src.length ).invoke();
+                return;
+            }
+
+            for( int i = 0; i < src.length; i++ ) {
+                Object v = src[i];
+                if( v != null ) {
+                    dst[i] = copy( v );
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行复制数组的一段,超过parallelThreshold时一分为二
+     */
+    private final class CloneRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Session session;
+        private final Object[] src;
+        private final Object[] dst;
+        private final int from;
+        private final int to;
+
+        private CloneRange(Session session, Object[] src, Object[] dst, int from, int to) {
+            this.session = session;
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+        }
 
-            while (( sc = sc.getSuperclass() ) != Object.class && sc != null) {
-                addAll( l, sc.getDeclaredFields() );
+        @Override
+        protected void compute() {
+            if( to - from > parallelThreshold ) {
+                int mid = ( from + to ) >>> 1;
+                invokeAll( new CloneRange( session, src, dst, from, mid ), new CloneRange( session, src, dst, mid, to ) );
+                return;
             }
 
-            fieldsMap.putIfAbsent( c, l );
+            new Context( session ).cloneRange( src, dst, from, to );
         }
-        return l;
     }
 }
@@ -0,0 +1,1411 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 与Java序列化语义兼容的二进制克隆编解码器,替代ObjectOutputStream/ObjectInputStream往返.
+ *
+ * 只复制Serializable对象,忽略transient与static字段,调用writeReplace/readResolve,
+ * 并像反序列化一样只调用第一个非Serializable父类的无参构造函数.
+ * 每个类的字段布局(Schema)只分析一次,类在目标ClassLoader中的对应类也按类缓存;
+ * 编码使用每个线程复用的缓冲区,类描述在每次克隆的类表中只记录一次.
+ *
+ * JDK中的不可变值(String,包装类型,java.time等)直接共享,常用集合按内容编码.
+ * 对象图中出现自定义writeObject/readObject,Externalizable,record或动态代理时,整个对象图退回到Java序列化
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ */
+public final class SerialCodec {
+
+    private static final Logger logger = Logger.getLogger( SerialCodec.class.getName() );
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_RETAINED_HANDLES = 1 << 12;
+
+    // 标记
+    private static final byte NULL = 0;
+    private static final byte HANDLE = 1;
+    private static final byte SHARED = 2;
+    private static final byte CLASS = 3;
+    private static final byte ENUM = 4;
+    private static final byte OBJECT = 5;
+    private static final byte ARRAY = 6;
+    private static final byte COLLECTION = 7;
+    private static final byte MAP = 8;
+    private static final byte DATE = 9;
+
+    private static final ThreadLocal<SerialCodec> codecs = new ThreadLocal<SerialCodec>() {
+        @Override
+        protected SerialCodec initialValue() {
+            return new SerialCodec();
+        }
+    };
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int position;
+    private boolean inUse;
+
+    // 编码状态
+    private IdentityHashMap<Object, Integer> handles = new IdentityHashMap<>();
+    private int handleCount;
+    // 正在写入替代对象的原对象,在替代对象获得句柄时登记
+    private Object replaced;
+    private final IdentityHashMap<Schema, Integer> schemaIndexes = new IdentityHashMap<>();
+
+    // 编码与解码共享的类表与共享值
+    private final List<Schema> schemas = new ArrayList<>();
+    private final List<Object> shared = new ArrayList<>();
+
+    // 解码状态
+    private final List<Object> objects = new ArrayList<>();
+    // 类表中每个类在目标ClassLoader中的对应类,按类表序号
+    private final List<Target> targets = new ArrayList<>();
+    private ClassLoader loader;
+
+    private SerialCodec() {
+    }
+
+    /**
+     * 按序列化语义深克隆original,类保持不变
+     *
+     * @param original
+     * @return Object
+     */
+    public static Object clone(Object original) {
+        return clone( original, null );
+    }
+
+    /**
+     * 按序列化语义深克隆original,克隆中的类按名称从loader中解析;loader为null时类保持不变
+     *
+     * @param original
+     * @param loader
+     * @return Object
+     */
+    public static Object clone(Object original, ClassLoader loader) {
+        if( original == null ) {
+            return null;
+        }
+
+        SerialCodec codec = codecs.get();
+        if( codec.inUse ) {
+            // writeReplace/readResolve中的嵌套克隆
+            codec = new SerialCodec();
+        }
+
+        codec.inUse = true;
+        try {
+            codec.loader = loader;
+            codec.writeObject( original );
+            codec.position = 0;
+            return codec.readObject();
+        } catch (FallbackRequired e) {
+            if( logger.isLoggable( Level.FINE ) )
+                logger.log( Level.FINE, "Falling back to Java serialization: {0}", e.type.getName() );
+
+            return serializationClone( original, loader );
+        } finally {
+            codec.reset();
+        }
+    }
+
+    /**
+     * 通过ObjectOutputStream/ObjectInputStream克隆,loader不为null时从loader中解析类
+     *
+     * @param original
+     * @param loader
+     * @return Object
+     */
+    static Object serializationClone(Object original, final ClassLoader loader) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream( INITIAL_BUFFER_SIZE );
+            try (ObjectOutputStream out = new ObjectOutputStream( bos )) {
+                out.writeObject( original );
+            }
+
+            try (ObjectInputStream in = new LoaderObjectInputStream( new ByteArrayInputStream( bos.toByteArray() ), loader )) {
+                return in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new JclException( e );
+        }
+    }
+
+    private void reset() {
+        inUse = false;
+        loader = null;
+        position = 0;
+        if( buffer.length > MAX_RETAINED_BUFFER_SIZE ) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+
+        if( handleCount > MAX_RETAINED_HANDLES ) {
+            handles = new IdentityHashMap<>();
+        } else {
+            handles.clear();
+        }
+        handleCount = 0;
+        replaced = null;
+
+        schemaIndexes.clear();
+        schemas.clear();
+        shared.clear();
+        objects.clear();
+        targets.clear();
+    }
+
+    // ---------------------------------------------------------------- 编码
+
+    private void writeObject(Object o) {
+        if( o == null ) {
+            writeByte( NULL );
+            return;
+        }
+
+        Integer handle = handles.get( o );
+        if( handle != null ) {
+            writeByte( HANDLE );
+            writeVarint( handle );
+            return;
+        }
+
+        if( o instanceof Class ) {
+            writeByte( CLASS );
+            writeSchema( Schema.of( (Class<?>) o ) );
+            return;
+        }
+
+        if( o instanceof Enum ) {
+            writeByte( ENUM );
+            writeSchema( Schema.of( ( (Enum<?>) o ).getDeclaringClass() ) );
+            writeVarint( ( (Enum<?>) o ).ordinal() );
+            return;
+        }
+
+        Schema s = Schema.of( o.getClass() );
+
+        Object obj = o;
+        while( s.writeReplace != null ) {
+            Object replacement = s.invoke( s.writeReplace, obj );
+            if( replacement == obj ) {
+                break;
+            }
+
+            obj = replacement;
+            if( obj == null ) {
+                break;
+            }
+
+            Schema rs = Schema.of( obj.getClass() );
+            if( rs == s ) {
+                break;
+            }
+            s = rs;
+        }
+
+        if( obj != o ) {
+            writeReplacement( o, obj );
+            return;
+        }
+
+        writeContent( o, s );
+    }
+
+    /**
+     * 写入original的替代对象,之后对original的引用都写为替代对象的句柄
+     */
+    private void writeReplacement(Object original, Object replacement) {
+        if( replacement == null || replacement instanceof Class || replacement instanceof Enum ) {
+            writeObject( replacement );
+            return;
+        }
+
+        Integer handle = handles.get( replacement );
+        if( handle != null ) {
+            handles.put( original, handle );
+            writeByte( HANDLE );
+            writeVarint( handle );
+            return;
+        }
+
+        // 替代对象获得句柄时original共用该句柄;SHARED等没有句柄的替代对象在每次引用时重新写入
+        replaced = original;
+        try {
+            writeContent( replacement, Schema.of( replacement.getClass() ) );
+        } finally {
+            replaced = null;
+        }
+    }
+
+    private void writeContent(Object o, Schema s) {
+        switch (s.kind) {
+        case Schema.SHARED:
+            writeByte( SHARED );
+            writeVarint( shared.size() );
+            shared.add( o );
+            return;
+        case Schema.OBJECT:
+            writeByte( OBJECT );
+            writeSchema( s );
+            assignHandle( o );
+            s.writeFields( o, this );
+            return;
+        case Schema.ARRAY:
+            writeByte( ARRAY );
+            writeSchema( s );
+            assignHandle( o );
+            writeArray( o, s.type.getComponentType() );
+            return;
+        case Schema.COLLECTION:
+        case Schema.SORTED_SET:
+            writeByte( COLLECTION );
+            writeSchema( s );
+            assignHandle( o );
+            if( s.kind == Schema.SORTED_SET ) {
+                writeObject( ( (TreeSet<?>) o ).comparator() );
+            }
+            Object[] elements = ( (Collection<?>) o ).toArray();
+            writeVarint( elements.length );
+            for( Object e : elements ) {
+                writeObject( e );
+            }
+            return;
+        case Schema.MAP:
+        case Schema.SORTED_MAP:
+            writeByte( MAP );
+            writeSchema( s );
+            assignHandle( o );
+            if( s.kind == Schema.SORTED_MAP ) {
+                writeObject( ( (TreeMap<?, ?>) o ).comparator() );
+            } else if( s.type == LinkedHashMap.class ) {
+                writeByte( (byte) ( Schema.isAccessOrder( o ) ? 1 : 0 ) );
+            }
+            writeMap( (Map<?, ?>) o );
+            return;
+        case Schema.DATE:
+            writeByte( DATE );
+            writeSchema( s );
+            assignHandle( o );
+            writeLong( ( (Date) o ).getTime() );
+            return;
+        case Schema.NOT_SERIALIZABLE:
+            throw new JclException( new NotSerializableException( s.type.getName() ) );
+        default:
+            throw new FallbackRequired( s.type );
+        }
+    }
+
+    private void writeMap(Map<?, ?> m) {
+        int size = m.size();
+        Object[] entries = new Object[size * 2];
+
+        int n = 0;
+        for( Map.Entry<?, ?> e : m.entrySet() ) {
+            // Concurrent maps may grow while iterating
+            if( n == entries.length ) {
+                break;
+            }
+            entries[n++] = e.getKey();
+            entries[n++] = e.getValue();
+        }
+
+        writeVarint( n / 2 );
+        for( int i = 0; i < n; i++ ) {
+            writeObject( entries[i] );
+        }
+    }
+
+    private void writeArray(Object array, Class<?> componentType) {
+        int length = Array.getLength( array );
+        writeVarint( length );
+
+        if( !componentType.isPrimitive() ) {
+            for( Object e : (Object[]) array ) {
+                writeObject( e );
+            }
+        } else if( componentType == byte.class ) {
+            ensure( length );
+            System.arraycopy( array, 0, buffer, position, length );
+            position += length;
+        } else if( componentType == int.class ) {
+            for( int v : (int[]) array ) {
+                writeInt( v );
+            }
+        } else if( componentType == long.class ) {
+            for( long v : (long[]) array ) {
+                writeLong( v );
+            }
+        } else if( componentType == double.class ) {
+            for( double v : (double[]) array ) {
+                writeLong( Double.doubleToRawLongBits( v ) );
+            }
+        } else if( componentType == float.class ) {
+            for( float v : (float[]) array ) {
+                writeInt( Float.floatToRawIntBits( v ) );
+            }
+        } else if( componentType == char.class ) {
+            for( char v : (char[]) array ) {
+                writeShort( (short) v );
+            }
+        } else if( componentType == short.class ) {
+            for( short v : (short[]) array ) {
+                writeShort( v );
+            }
+        } else {
+            for( boolean v : (boolean[]) array ) {
+                writeByte( (byte) ( v ? 1 : 0 ) );
+            }
+        }
+    }
+
+    private void assignHandle(Object o) {
+        if( replaced != null ) {
+            handles.put( replaced, handleCount );
+            replaced = null;
+        }
+        handles.put( o, handleCount++ );
+    }
+
+    private void writeSchema(Schema s) {
+        Integer index = schemaIndexes.get( s );
+        if( index == null ) {
+            index = schemas.size();
+            schemas.add( s );
+            schemaIndexes.put( s, index );
+        }
+        writeVarint( index );
+    }
+
+    private void ensure(int n) {
+        if( position + n > buffer.length ) {
+            byte[] b = new byte[Math.max( buffer.length * 2, position + n )];
+            System.arraycopy( buffer, 0, b, 0, position );
+            buffer = b;
+        }
+    }
+
+    private void writeByte(byte v) {
+        ensure( 1 );
+        buffer[position++] = v;
+    }
+
+    private void writeVarint(int v) {
+        ensure( 5 );
+        while( ( v & ~0x7F ) != 0 ) {
+            buffer[position++] = (byte) ( ( v & 0x7F ) | 0x80 );
+            v >>>= 7;
+        }
+        buffer[position++] = (byte) v;
+    }
+
+    private void writeShort(short v) {
+        ensure( 2 );
+        buffer[position++] = (byte) v;
+        buffer[position++] = (byte) ( v >> 8 );
+    }
+
+    private void writeInt(int v) {
+        ensure( 4 );
+        buffer[position++] = (byte) v;
+        buffer[position++] = (byte) ( v >> 8 );
+        buffer[position++] = (byte) ( v >> 16 );
+        buffer[position++] = (byte) ( v >> 24 );
+    }
+
+    private void writeLong(long v) {
+        writeInt( (int) v );
+        writeInt( (int) ( v >> 32 ) );
+    }
+
+    // ---------------------------------------------------------------- 解码
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readObject() {
+        byte tag = readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case HANDLE:
+            return objects.get( readVarint() );
+        case SHARED:
+            return shared.get( readVarint() );
+        case CLASS:
+            return readTarget().type;
+        case ENUM:
+            return readTarget().enumConstant( readVarint() );
+        case OBJECT: {
+            Target t = readTarget();
+            Object obj = t.newInstance();
+            int handle = objects.size();
+            objects.add( obj );
+
+            t.readFields( obj, this );
+            return resolve( t, obj, handle );
+        }
+        case ARRAY: {
+            Target t = readTarget();
+            int handle = objects.size();
+            objects.add( null );
+
+            Object array = Array.newInstance( t.type.getComponentType(), readVarint() );
+            objects.set( handle, array );
+            readArray( array, t.type.getComponentType() );
+            return array;
+        }
+        case COLLECTION: {
+            Target t = readTarget();
+            int handle = objects.size();
+            objects.add( null );
+
+            Comparator comparator = t.schema.kind == Schema.SORTED_SET ? (Comparator) readObject() : null;
+            int size = readVarint();
+            Collection c = newCollection( t.type, size, comparator );
+            objects.set( handle, c );
+
+            for( int i = 0; i < size; i++ ) {
+                c.add( readObject() );
+            }
+            return c;
+        }
+        case MAP: {
+            Target t = readTarget();
+            int handle = objects.size();
+            objects.add( null );
+
+            Comparator comparator = null;
+            boolean accessOrder = false;
+            if( t.schema.kind == Schema.SORTED_MAP ) {
+                comparator = (Comparator) readObject();
+            } else if( t.type == LinkedHashMap.class ) {
+                accessOrder = readByte() != 0;
+            }
+
+            int size = readVarint();
+            Map m = newMap( t.type, size, comparator, accessOrder );
+            objects.set( handle, m );
+
+            for( int i = 0; i < size; i++ ) {
+                Object key = readObject();
+                m.put( key, readObject() );
+            }
+            return m;
+        }
+        case DATE: {
+            readTarget();
+            Object date = new Date( readLong() );
+            objects.add( date );
+            return date;
+        }
+        default:
+            throw new JclException( "Corrupted stream, unknown tag " + tag );
+        }
+    }
+
+    private Object resolve(Target t, Object obj, int handle) {
+        if( t.schema.readResolve == null ) {
+            return obj;
+        }
+
+        Object resolved = t.schema.invoke( t.schema.readResolve, obj );
+        objects.set( handle, resolved );
+        return resolved;
+    }
+
+    private Target readTarget() {
+        int index = readVarint();
+        while( targets.size() <= index ) {
+            targets.add( null );
+        }
+
+        Target t = targets.get( index );
+        if( t == null ) {
+            t = schemas.get( index ).target( loader );
+            targets.set( index, t );
+        }
+        return t;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Collection newCollection(Class<?> type, int size, Comparator comparator) {
+        if( type == ArrayList.class )
+            return new ArrayList<>( size );
+        if( type == LinkedList.class )
+            return new LinkedList<>();
+        if( type == ArrayDeque.class )
+            return new ArrayDeque<>( size );
+        if( type == HashSet.class )
+            return new HashSet<>( capacity( size ) );
+        if( type == LinkedHashSet.class )
+            return new LinkedHashSet<>( capacity( size ) );
+        if( type == CopyOnWriteArrayList.class )
+            return new CopyOnWriteArrayList<>();
+        return new TreeSet<>( comparator );
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Map newMap(Class<?> type, int size, Comparator comparator, boolean accessOrder) {
+        if( type == HashMap.class )
+            return new HashMap<>( capacity( size ) );
+        if( type == LinkedHashMap.class )
+            return new LinkedHashMap<>( capacity( size ), 0.75f, accessOrder );
+        if( type == ConcurrentHashMap.class )
+            return new ConcurrentHashMap<>( size );
+        return new TreeMap<>( comparator );
+    }
+
+    private static int capacity(int size) {
+        return (int) ( size / 0.75f ) + 1;
+    }
+
+    private void readArray(Object array, Class<?> componentType) {
+        int length = Array.getLength( array );
+
+        if( !componentType.isPrimitive() ) {
+            Object[] a = (Object[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = readObject();
+            }
+        } else if( componentType == byte.class ) {
+            System.arraycopy( buffer, position, array, 0, length );
+            position += length;
+        } else if( componentType == int.class ) {
+            int[] a = (int[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = readInt();
+            }
+        } else if( componentType == long.class ) {
+            long[] a = (long[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = readLong();
+            }
+        } else if( componentType == double.class ) {
+            double[] a = (double[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = Double.longBitsToDouble( readLong() );
+            }
+        } else if( componentType == float.class ) {
+            float[] a = (float[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = Float.intBitsToFloat( readInt() );
+            }
+        } else if( componentType == char.class ) {
+            char[] a = (char[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = (char) readShort();
+            }
+        } else if( componentType == short.class ) {
+            short[] a = (short[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = readShort();
+            }
+        } else {
+            boolean[] a = (boolean[]) array;
+            for( int i = 0; i < length; i++ ) {
+                a[i] = readByte() != 0;
+            }
+        }
+    }
+
+    private byte readByte() {
+        return buffer[position++];
+    }
+
+    private int readVarint() {
+        int v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[position++];
+            v |= ( b & 0x7F ) << shift;
+            shift += 7;
+        } while( ( b & 0x80 ) != 0 );
+        return v;
+    }
+
+    private short readShort() {
+        return (short) ( ( buffer[position++] & 0xFF ) | ( buffer[position++] << 8 ) );
+    }
+
+    private int readInt() {
+        return ( buffer[position++] & 0xFF ) | ( ( buffer[position++] & 0xFF ) << 8 )
+                | ( ( buffer[position++] & 0xFF ) << 16 ) | ( buffer[position++] << 24 );
+    }
+
+    private long readLong() {
+        return ( readInt() & 0xFFFFFFFFL ) | ( (long) readInt() << 32 );
+    }
+
+    // ---------------------------------------------------------------- Schema
+
+    /**
+     * 需要退回到Java序列化
+     */
+    private static final class FallbackRequired extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?> type;
+
+        private FallbackRequired(Class<?> type) {
+            super( null, null, false, false );
+            this.type = type;
+        }
+    }
+
+    /**
+     * 某个类的序列化布局: 类别,按序列化顺序(父类在前)排列的非transient字段,以及writeReplace/readResolve
+     */
+    private static final class Schema {
+        static final int OBJECT = 0;
+        static final int ARRAY = 1;
+        static final int ENUM = 2;
+        static final int SHARED = 3;
+        static final int COLLECTION = 4;
+        static final int SORTED_SET = 5;
+        static final int MAP = 6;
+        static final int SORTED_MAP = 7;
+        static final int DATE = 8;
+        static final int NOT_SERIALIZABLE = 9;
+        static final int FALLBACK = 10;
+
+        private static final byte BOOLEAN = 0;
+        private static final byte BYTE = 1;
+        private static final byte CHAR = 2;
+        private static final byte SHORT = 3;
+        private static final byte INT = 4;
+        private static final byte LONG = 5;
+        private static final byte FLOAT = 6;
+        private static final byte DOUBLE = 7;
+
+        private static final Map<Class<?>, Integer> builtIns = new HashMap<>();
+
+        static {
+            for( Class<?> c : new Class<?>[] { ArrayList.class, LinkedList.class, ArrayDeque.class, HashSet.class,
+                    LinkedHashSet.class, CopyOnWriteArrayList.class } ) {
+                builtIns.put( c, COLLECTION );
+            }
+            builtIns.put( TreeSet.class, SORTED_SET );
+            builtIns.put( HashMap.class, MAP );
+            builtIns.put( LinkedHashMap.class, MAP );
+            builtIns.put( ConcurrentHashMap.class, MAP );
+            builtIns.put( TreeMap.class, SORTED_MAP );
+            builtIns.put( Date.class, DATE );
+        }
+
+        private static final long accessOrderOffset = accessOrderOffset();
+
+        private static final ClassValue<Schema> schemas = new ClassValue<Schema>() {
+            @Override
+            protected Schema computeValue(Class<?> type) {
+                return new Schema( type );
+            }
+        };
+
+        final Class<?> type;
+        final int kind;
+        final Method writeReplace;
+        final Method readResolve;
+
+        final Field[] primitiveFields;
+        final byte[] primitiveKinds;
+        final long[] primitiveOffsets;
+        final Field[] referenceFields;
+        final long[] referenceOffsets;
+
+        // 目标ClassLoader -> 对应的类. Target由目标类的Schema持有,这里只弱引用,不会阻止目标ClassLoader被回收
+        private Map<ClassLoader, WeakReference<Target>> targets;
+        // 源类 -> 从源类读取到本类的Target,弱引用源类.以上两个字段由this保护
+        private Map<Class<?>, Target> sources;
+        private volatile Target self;
+        private volatile Constructor<?> constructor;
+
+        static Schema of(Class<?> type) {
+            return schemas.get( type );
+        }
+
+        private Schema(Class<?> type) {
+            this.type = type;
+
+            Method replace = null;
+            Method resolve = null;
+            Field[] primitives = new Field[0];
+            Field[] references = new Field[0];
+
+            int k;
+            if( type.isArray() ) {
+                k = ARRAY;
+            } else if( type.isEnum() ) {
+                k = ENUM;
+            } else if( !Serializable.class.isAssignableFrom( type ) ) {
+                k = NOT_SERIALIZABLE;
+            } else if( builtIns.containsKey( type ) ) {
+                k = builtIns.get( type );
+            } else if( type.getClassLoader() == null && Immutability.isImmutable( type ) ) {
+                k = SHARED;
+            } else if( Externalizable.class.isAssignableFrom( type ) || Proxy.isProxyClass( type )
+                    || isRecord( type ) || hasCustomHooks( type ) ) {
+                k = FALLBACK;
+            } else {
+                k = OBJECT;
+                try {
+                    replace = accessible( inheritableMethod( type, "writeReplace" ) );
+                    resolve = accessible( inheritableMethod( type, "readResolve" ) );
+
+                    List<Field> pl = new ArrayList<>();
+                    List<Field> rl = new ArrayList<>();
+                    collectFields( type, pl, rl );
+                    primitives = pl.toArray( new Field[pl.size()] );
+                    references = rl.toArray( new Field[rl.size()] );
+                } catch (RuntimeException e) {
+                    // 无法访问的JDK内部类等
+                    k = FALLBACK;
+                }
+            }
+
+            long[] po = ClonePlan.offsets( primitives );
+            long[] ro = ClonePlan.offsets( references );
+            if( k == OBJECT && ( po == null || ro == null ) ) {
+                try {
+                    makeAccessible( primitives );
+                    makeAccessible( references );
+                } catch (RuntimeException e) {
+                    k = FALLBACK;
+                }
+                po = ro = null;
+            }
+
+            this.kind = k;
+            this.writeReplace = replace;
+            this.readResolve = resolve;
+            this.primitiveFields = primitives;
+            this.referenceFields = references;
+            this.primitiveOffsets = po;
+            this.referenceOffsets = ro;
+
+            this.primitiveKinds = new byte[primitives.length];
+            for( int i = 0; i < primitives.length; i++ ) {
+                primitiveKinds[i] = kindOf( primitives[i].getType() );
+            }
+        }
+
+        /**
+         * 返回本类在loader中的对应类,loader为null时为本类
+         */
+        Target target(ClassLoader loader) {
+            if( loader == null || type.getClassLoader() == null ) {
+                return self();
+            }
+
+            Target t;
+            synchronized (this) {
+                WeakReference<Target> ref = targets != null ? targets.get( loader ) : null;
+                t = ref != null ? ref.get() : null;
+            }
+
+            if( t == null ) {
+                Class<?> c;
+                try {
+                    c = Class.forName( type.getName(), false, loader );
+                } catch (ClassNotFoundException e) {
+                    throw new JclException( e );
+                }
+
+                t = c == type ? self() : of( c ).readingFrom( this );
+                synchronized (this) {
+                    if( targets == null ) {
+                        targets = new WeakHashMap<>();
+                    }
+                    targets.put( loader, new WeakReference<>( t ) );
+                }
+            }
+            return t;
+        }
+
+        /**
+         * 返回把source的实例读取为本类实例的Target
+         */
+        private synchronized Target readingFrom(Schema source) {
+            if( sources == null ) {
+                sources = new WeakHashMap<>();
+            }
+
+            Target t = sources.get( source.type );
+            if( t == null ) {
+                t = new Target( source, this );
+                sources.put( source.type, t );
+            }
+            return t;
+        }
+
+        private Target self() {
+            Target t = self;
+            if( t == null ) {
+                self = t = new Target( this, this );
+            }
+            return t;
+        }
+
+        /**
+         * 反序列化时使用的构造函数: 调用第一个非Serializable父类的无参构造函数
+         */
+        Object newInstance() {
+            Constructor<?> c = constructor;
+            if( c == null ) {
+                Class<?> base = type;
+                while( Serializable.class.isAssignableFrom( base ) ) {
+                    base = base.getSuperclass();
+                }
+
+                try {
+                    Constructor<?> baseConstructor = base.getDeclaredConstructor();
+                    int modifiers = baseConstructor.getModifiers();
+                    if( Modifier.isPrivate( modifiers ) || !Modifier.isPublic( modifiers )
+                            && !Modifier.isProtected( modifiers ) && !samePackage( base, type ) ) {
+                        throw new JclException( "No valid constructor for " + type.getName() );
+                    }
+                    c = JdkInternals.serializationConstructor( type, baseConstructor );
+                } catch (NoSuchMethodException e) {
+                    throw new JclException( "No valid constructor for " + type.getName(), e );
+                } catch (LinkageError e) {
+                    throw new FallbackRequired( type );
+                }
+                constructor = c;
+            }
+
+            try {
+                return c.newInstance();
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new JclException( e );
+            }
+        }
+
+        Object invoke(Method method, Object target) {
+            try {
+                return method.invoke( target );
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            } catch (InvocationTargetException e) {
+                throw new JclException( e.getCause() );
+            }
+        }
+
+        void writeFields(Object o, SerialCodec out) {
+            for( int i = 0; i < primitiveKinds.length; i++ ) {
+                switch (primitiveKinds[i]) {
+                case BOOLEAN:
+                    out.writeByte( (byte) ( getBoolean( o, i ) ? 1 : 0 ) );
+                    break;
+                case BYTE:
+                case SHORT:
+                case CHAR:
+                case INT:
+                    out.writeInt( getInt( o, i ) );
+                    break;
+                case FLOAT:
+                    out.writeInt( Float.floatToRawIntBits( getFloat( o, i ) ) );
+                    break;
+                case LONG:
+                    out.writeLong( getLong( o, i ) );
+                    break;
+                default:
+                    out.writeLong( Double.doubleToRawLongBits( getDouble( o, i ) ) );
+                    break;
+                }
+            }
+
+            for( int i = 0; i < referenceFields.length; i++ ) {
+                out.writeObject( getReference( o, i ) );
+            }
+        }
+
+        private boolean getBoolean(Object o, int i) {
+            try {
+                return primitiveOffsets != null ? JdkInternals.getBoolean( o, primitiveOffsets[i] ) : primitiveFields[i].getBoolean( o );
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        private int getInt(Object o, int i) {
+            try {
+                if( primitiveOffsets == null ) {
+                    Field f = primitiveFields[i];
+                    return primitiveKinds[i] == CHAR ? f.getChar( o ) : f.getInt( o );
+                }
+
+                long offset = primitiveOffsets[i];
+                switch (primitiveKinds[i]) {
+                case BYTE:
+                    return JdkInternals.getByte( o, offset );
+                case SHORT:
+                    return JdkInternals.getShort( o, offset );
+                case CHAR:
+                    return JdkInternals.getChar( o, offset );
+                default:
+                    return JdkInternals.getInt( o, offset );
+                }
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        private float getFloat(Object o, int i) {
+            try {
+                return primitiveOffsets != null ? JdkInternals.getFloat( o, primitiveOffsets[i] ) : primitiveFields[i].getFloat( o );
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        private long getLong(Object o, int i) {
+            try {
+                return primitiveOffsets != null ? JdkInternals.getLong( o, primitiveOffsets[i] ) : primitiveFields[i].getLong( o );
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        private double getDouble(Object o, int i) {
+            try {
+                return primitiveOffsets != null ? JdkInternals.getDouble( o, primitiveOffsets[i] ) : primitiveFields[i].getDouble( o );
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        private Object getReference(Object o, int i) {
+            try {
+                return referenceOffsets != null ? JdkInternals.getObject( o, referenceOffsets[i] ) : referenceFields[i].get( o );
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        void putPrimitive(Object o, int i, long bits) {
+            try {
+                if( primitiveOffsets == null ) {
+                    putPrimitiveReflectively( o, primitiveFields[i], primitiveKinds[i], bits );
+                    return;
+                }
+
+                long offset = primitiveOffsets[i];
+                switch (primitiveKinds[i]) {
+                case BOOLEAN:
+                    JdkInternals.putBoolean( o, offset, bits != 0 );
+                    break;
+                case BYTE:
+                    JdkInternals.putByte( o, offset, (byte) bits );
+                    break;
+                case SHORT:
+                    JdkInternals.putShort( o, offset, (short) bits );
+                    break;
+                case CHAR:
+                    JdkInternals.putChar( o, offset, (char) bits );
+                    break;
+                case INT:
+                    JdkInternals.putInt( o, offset, (int) bits );
+                    break;
+                case FLOAT:
+                    JdkInternals.putFloat( o, offset, Float.intBitsToFloat( (int) bits ) );
+                    break;
+                case LONG:
+                    JdkInternals.putLong( o, offset, bits );
+                    break;
+                default:
+                    JdkInternals.putDouble( o, offset, Double.longBitsToDouble( bits ) );
+                    break;
+                }
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        private static void putPrimitiveReflectively(Object o, Field f, byte kind, long bits) throws IllegalAccessException {
+            switch (kind) {
+            case BOOLEAN:
+                f.setBoolean( o, bits != 0 );
+                break;
+            case BYTE:
+                f.setByte( o, (byte) bits );
+                break;
+            case SHORT:
+                f.setShort( o, (short) bits );
+                break;
+            case CHAR:
+                f.setChar( o, (char) bits );
+                break;
+            case INT:
+                f.setInt( o, (int) bits );
+                break;
+            case FLOAT:
+                f.setFloat( o, Float.intBitsToFloat( (int) bits ) );
+                break;
+            case LONG:
+                f.setLong( o, bits );
+                break;
+            default:
+                f.setDouble( o, Double.longBitsToDouble( bits ) );
+                break;
+            }
+        }
+
+        void putReference(Object o, int i, Object value) {
+            try {
+                if( referenceOffsets != null ) {
+                    JdkInternals.putObject( o, referenceOffsets[i], value );
+                } else {
+                    referenceFields[i].set( o, value );
+                }
+            } catch (IllegalAccessException e) {
+                throw new JclException( e );
+            }
+        }
+
+        /**
+         * 读取writeFields写入的一个基本类型字段,按long返回其位
+         */
+        static long readPrimitive(byte kind, SerialCodec in) {
+            switch (kind) {
+            case BOOLEAN:
+                return in.readByte();
+            case LONG:
+            case DOUBLE:
+                return in.readLong();
+            default:
+                return in.readInt();
+            }
+        }
+
+        private static void collectFields(Class<?> type, List<Field> primitives, List<Field> references) {
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for( Class<?> c = type; c != null && Serializable.class.isAssignableFrom( c ); c = c.getSuperclass() ) {
+                hierarchy.add( 0, c );
+            }
+
+            for( Class<?> c : hierarchy ) {
+                for( Field f : c.getDeclaredFields() ) {
+                    int modifiers = f.getModifiers();
+                    if( Modifier.isStatic( modifiers ) || Modifier.isTransient( modifiers ) ) {
+                        continue;
+                    }
+
+                    if( f.getType().isPrimitive() ) {
+                        primitives.add( f );
+                    } else {
+                        references.add( f );
+                    }
+                }
+            }
+        }
+
+        private static boolean isRecord(Class<?> type) {
+            Class<?> superclass = type.getSuperclass();
+            return superclass != null && "java.lang.Record".equals( superclass.getName() );
+        }
+
+        /**
+         * 序列化层次中是否有类声明了writeObject/readObject/readObjectNoData,
+         * 或者用serialPersistentFields指定了与非transient字段不同的字段集合
+         */
+        private static boolean hasCustomHooks(Class<?> type) {
+            for( Class<?> c = type; c != null && Serializable.class.isAssignableFrom( c ); c = c.getSuperclass() ) {
+                if( privateMethod( c, "writeObject", ObjectOutputStream.class )
+                        || privateMethod( c, "readObject", ObjectInputStream.class )
+                        || privateMethod( c, "readObjectNoData" ) || declaresPersistentFields( c ) ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean declaresPersistentFields(Class<?> c) {
+            try {
+                Field f = c.getDeclaredField( "serialPersistentFields" );
+                int modifiers = f.getModifiers();
+                return Modifier.isPrivate( modifiers ) && Modifier.isStatic( modifiers ) && Modifier.isFinal( modifiers )
+                        && f.getType() == ObjectStreamField[].class;
+            } catch (NoSuchFieldException e) {
+                return false;
+            }
+        }
+
+        private static boolean privateMethod(Class<?> c, String name, Class<?>... parameterTypes) {
+            try {
+                Method m = c.getDeclaredMethod( name, parameterTypes );
+                return Modifier.isPrivate( m.getModifiers() ) && !Modifier.isStatic( m.getModifiers() );
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 按序列化的规则查找writeReplace/readResolve: 父类中的方法必须对本类可见
+         */
+        private static Method inheritableMethod(Class<?> type, String name) {
+            for( Class<?> c = type; c != null; c = c.getSuperclass() ) {
+                Method m;
+                try {
+                    m = c.getDeclaredMethod( name );
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+
+                int modifiers = m.getModifiers();
+                if( Modifier.isStatic( modifiers ) || Modifier.isAbstract( modifiers ) || m.getReturnType() != Object.class ) {
+                    return null;
+                }
+
+                if( Modifier.isPublic( modifiers ) || Modifier.isProtected( modifiers ) ) {
+                    return m;
+                }
+                if( Modifier.isPrivate( modifiers ) ) {
+                    return c == type ? m : null;
+                }
+                return samePackage( c, type ) ? m : null;
+            }
+            return null;
+        }
+
+        private static boolean samePackage(Class<?> a, Class<?> b) {
+            if( a.getClassLoader() != b.getClassLoader() ) {
+                return false;
+            }
+
+            String an = a.getName();
+            String bn = b.getName();
+            int ai = an.lastIndexOf( '.' );
+            int bi = bn.lastIndexOf( '.' );
+            return ai == bi && an.regionMatches( 0, bn, 0, Math.max( ai, 0 ) );
+        }
+
+        private static Method accessible(Method m) {
+            if( m != null ) {
+                m.setAccessible( true );
+            }
+            return m;
+        }
+
+        private static void makeAccessible(Field[] fields) {
+            for( Field f : fields ) {
+                f.setAccessible( true );
+            }
+        }
+
+        private static byte kindOf(Class<?> type) {
+            if( type == boolean.class )
+                return BOOLEAN;
+            if( type == byte.class )
+                return BYTE;
+            if( type == char.class )
+                return CHAR;
+            if( type == short.class )
+                return SHORT;
+            if( type == int.class )
+                return INT;
+            if( type == long.class )
+                return LONG;
+            if( type == float.class )
+                return FLOAT;
+            return DOUBLE;
+        }
+
+        private static long accessOrderOffset() {
+            if( !JdkInternals.isAvailable() ) {
+                return -1;
+            }
+
+            try {
+                return JdkInternals.objectFieldOffset( LinkedHashMap.class.getDeclaredField( "accessOrder" ) );
+            } catch (NoSuchFieldException | RuntimeException e) {
+                return -1;
+            }
+        }
+
+        static boolean isAccessOrder(Object linkedHashMap) {
+            return accessOrderOffset >= 0 && JdkInternals.getBoolean( linkedHashMap, accessOrderOffset );
+        }
+    }
+
+    /**
+     * 源类在某个目标ClassLoader中的对应类,以及源字段到目标字段的映射(按字段名,声明类名与类型名匹配)
+     */
+    private static final class Target {
+        final Class<?> type;
+        final Schema schema;
+        // 源类的字段类型与枚举常量名,Target不引用源类本身
+        final byte[] sourceKinds;
+        final String[] sourceConstants;
+        final int[] primitiveSlots;
+        final int[] referenceSlots;
+        // 读取到其他ClassLoader中的类时为true,此时引用字段写入前检查值的类型
+        final boolean checked;
+        private volatile Object[] enumConstants;
+
+        private Target(Schema source, Schema schema) {
+            this.type = schema.type;
+            this.schema = schema;
+            this.sourceKinds = source.primitiveKinds;
+
+            Object[] constants = source.type.isEnum() ? source.type.getEnumConstants() : null;
+            if( constants == null || source == schema ) {
+                this.sourceConstants = null;
+            } else {
+                this.sourceConstants = new String[constants.length];
+                for( int i = 0; i < constants.length; i++ ) {
+                    sourceConstants[i] = ( (Enum<?>) constants[i] ).name();
+                }
+            }
+
+            this.checked = source != schema;
+            if( source == schema ) {
+                primitiveSlots = identity( source.primitiveFields.length );
+                referenceSlots = identity( source.referenceFields.length );
+            } else {
+                primitiveSlots = slots( source.primitiveFields, schema.primitiveFields );
+                referenceSlots = slots( source.referenceFields, schema.referenceFields );
+            }
+        }
+
+        Object newInstance() {
+            if( schema.kind != Schema.OBJECT ) {
+                throw new FallbackRequired( type );
+            }
+            return schema.newInstance();
+        }
+
+        void readFields(Object obj, SerialCodec in) {
+            byte[] kinds = sourceKinds;
+            for( int i = 0; i < kinds.length; i++ ) {
+                long bits = Schema.readPrimitive( kinds[i], in );
+                if( primitiveSlots[i] >= 0 ) {
+                    schema.putPrimitive( obj, primitiveSlots[i], bits );
+                }
+            }
+
+            for( int i = 0; i < referenceSlots.length; i++ ) {
+                Object value = in.readObject();
+                int slot = referenceSlots[i];
+                if( slot < 0 ) {
+                    continue;
+                }
+
+                // 字段只按类型名匹配,同名的类可能来自其他ClassLoader
+                Field f = schema.referenceFields[slot];
+                if( checked && value != null && !f.getType().isInstance( value ) ) {
+                    throw new JclException( "Can not set " + f + " to " + value.getClass().getName() + " from "
+                            + value.getClass().getClassLoader() );
+                }
+                schema.putReference( obj, slot, value );
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Object enumConstant(int ordinal) {
+            Object[] constants = enumConstants;
+            if( constants == null ) {
+                if( sourceConstants == null ) {
+                    constants = type.getEnumConstants();
+                } else {
+                    constants = new Object[sourceConstants.length];
+                    for( int i = 0; i < constants.length; i++ ) {
+                        constants[i] = Enum.valueOf( (Class) type, sourceConstants[i] );
+                    }
+                }
+                enumConstants = constants;
+            }
+            return constants[ordinal];
+        }
+
+        private static int[] identity(int n) {
+            int[] slots = new int[n];
+            for( int i = 0; i < n; i++ ) {
+                slots[i] = i;
+            }
+            return slots;
+        }
+
+        private static int[] slots(Field[] sourceFields, Field[] targetFields) {
+            int[] slots = new int[sourceFields.length];
+            for( int i = 0; i < sourceFields.length; i++ ) {
+                Field sf = sourceFields[i];
+                slots[i] = -1;
+                for( int j = 0; j < targetFields.length; j++ ) {
+                    Field tf = targetFields[j];
+                    if( sf.getName().equals( tf.getName() )
+                            && sf.getDeclaringClass().getName().equals( tf.getDeclaringClass().getName() )
+                            && sf.getType().getName().equals( tf.getType().getName() ) ) {
+                        slots[i] = j;
+                        break;
+                    }
+                }
+            }
+            return slots;
+        }
+    }
+
+    /**
+     * 从指定ClassLoader中解析类的ObjectInputStream
+     */
+    private static final class LoaderObjectInputStream extends ObjectInputStream {
+        private final ClassLoader loader;
+
+        private LoaderObjectInputStream(InputStream in, ClassLoader loader) throws IOException {
+            super( in );
+            this.loader = loader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if( loader == null ) {
+                return super.resolveClass( desc );
+            }
+
+            try {
+                return Class.forName( desc.getName(), false, loader );
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass( desc );
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按标识弱引用key的小缓存,用于挂在类上的(ClassLoader或类 -> 值)映射,条目通常只有一两个.
+ * 读取不加锁,写入时复制并清除key已被回收的条目.value不应强引用key,否则条目永远不会被清除
+ *
+ * @author Vicky.H
+ * @email ecliser@163.com
+ */
+final class WeakKeyCache<K, V> {
+
+    private static final Object[] EMPTY = {};
+
+    // 交替存放key的弱引用与value
+    private volatile Object[] entries = EMPTY;
+
+    /**
+     * @param key
+     * @return key对应的value,不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        Object[] e = entries;
+        for( int i = 0; i < e.length; i += 2 ) {
+            if( ( (WeakReference<?>) e[i] ).get() == key ) {
+                return (V) e[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入或替换key对应的value
+     *
+     * @param key
+     * @param value
+     */
+    synchronized void put(K key, V value) {
+        Object[] e = entries;
+        List<Object> live = new ArrayList<>( e.length + 2 );
+        for( int i = 0; i < e.length; i += 2 ) {
+            Object k = ( (WeakReference<?>) e[i] ).get();
+            if( k != null && k != key ) {
+                live.add( e[i] );
+                live.add( e[i + 1] );
+            }
+        }
+        live.add( new WeakReference<>( key ) );
+        live.add( value );
+        entries = live.toArray();
+    }
+}
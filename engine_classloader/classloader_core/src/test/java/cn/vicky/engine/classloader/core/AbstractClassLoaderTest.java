@@ -3,6 +3,10 @@ package cn.vicky.engine.classloader.core;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+
 import org.junit.Test;
 
 /**
@@ -42,4 +46,48 @@ public class AbstractClassLoaderTest {
         assertEquals(Configuration.isOsgiBootDelegationEnabled(), classLoader.getOsgiBootLoader().isEnabled());
 
     }
+
+    @Test
+    public void checkDelegatesFollowOrderChanges() throws MalformedURLException {
+        AbstractClassLoader classLoader = new AbstractClassLoader() {
+        };
+        ResourceLoader first = new ResourceLoader(1, "first");
+        ResourceLoader second = new ResourceLoader(2, "second");
+        classLoader.addLoader(second);
+        classLoader.addLoader(first);
+
+        assertEquals(first.url, classLoader.getResource("marker"));
+
+        first.setOrder(3);
+        assertEquals(second.url, classLoader.getResource("marker"));
+
+        ResourceLoader third = new ResourceLoader(0, "third");
+        classLoader.addLoader(third);
+        assertEquals(third.url, classLoader.getResource("marker"));
+        assertEquals(third, classLoader.getLoaders().get(1));
+    }
+
+    private static class ResourceLoader extends ProxyClassLoader {
+        private final URL url;
+
+        ResourceLoader(int order, String name) throws MalformedURLException {
+            this.order = order;
+            this.url = new URL("file:/" + name);
+        }
+
+        @Override
+        public Class loadClass(String className, boolean resolveIt) {
+            return null;
+        }
+
+        @Override
+        public InputStream loadResource(String name) {
+            return null;
+        }
+
+        @Override
+        public URL findResource(String name) {
+            return "marker".equals(name) ? url : null;
+        }
+    }
 }
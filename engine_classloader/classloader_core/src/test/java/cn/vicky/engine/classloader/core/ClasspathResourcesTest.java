@@ -0,0 +1,118 @@
+package cn.vicky.engine.classloader.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ClasspathResourcesTest test case on watching and refreshing local sources.
+ *
+ */
+public class ClasspathResourcesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void checkRefreshReadsOnlyChangedEntries() throws IOException {
+        File dir = folder.newFolder( "resources" );
+        write( new File( dir, "a.txt" ), "a" );
+        write( new File( dir, "b.txt" ), "b" );
+        write( new File( dir, "conf/c.properties" ), "c" );
+        File jar = new File( folder.getRoot(), "lib.jar" );
+        writeJar( jar, "x.txt", "x", "y.txt", "y" );
+
+        ClasspathResources resources = new ClasspathResources();
+        resources.loadResource( dir.getPath() );
+        resources.loadResource( jar.getPath() );
+        byte[] y = resources.getResource( "y.txt" );
+
+        final List<ResourceChangeEvent> events = new CopyOnWriteArrayList<>();
+        resources.addChangeListener( events::add );
+        resources.watch();
+        try {
+            write( new File( dir, "a.txt" ), "a2" );
+            assertTrue( new File( dir, "b.txt" ).delete() );
+            write( new File( dir, "conf/d.properties" ), "d" );
+            writeJar( jar, "x.txt", "x2", "y.txt", "y" );
+            resources.refresh();
+        } finally {
+            resources.stopWatching();
+        }
+
+        assertEquals( "a2", new String( resources.getResource( "a.txt" ), StandardCharsets.UTF_8 ) );
+        assertNull( resources.getResource( "b.txt" ) );
+        assertEquals( "d", new String( resources.getResource( "conf/d.properties" ), StandardCharsets.UTF_8 ) );
+        assertEquals( "x2", new String( resources.getResource( "x.txt" ), StandardCharsets.UTF_8 ) );
+        // unchanged jar entries are not read again
+        assertTrue( y == resources.getResource( "y.txt" ) );
+
+        assertEquals( 2, events.size() );
+        ResourceChangeEvent e = events.get( 0 );
+        assertEquals( dir.getAbsoluteFile(), e.getFile() );
+        assertEquals( Collections.singleton( "conf/d.properties" ), e.getAdded() );
+        assertEquals( Collections.singleton( "a.txt" ), e.getModified() );
+        assertEquals( Collections.singleton( "b.txt" ), e.getRemoved() );
+        assertEquals( Collections.singleton( "x.txt" ), events.get( 1 ).getModified() );
+        assertTrue( events.get( 1 ).getAdded().isEmpty() );
+    }
+
+    @Test
+    public void checkWatchedDirectoryIsRefreshedInBackground() throws IOException, InterruptedException {
+        File dir = folder.newFolder( "classes" );
+        File file = new File( dir, "cn/vicky/Sample.class" );
+        write( file, "v1" );
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( dir.getPath() );
+        ClasspathResources resources = jcl.getClasspathResources();
+
+        final CountDownLatch changed = new CountDownLatch( 1 );
+        resources.addChangeListener( e -> {
+            if( e.hasClassChanges() )
+                changed.countDown();
+        } );
+        resources.watch();
+        try {
+            write( file, "version 2" );
+
+            assertTrue( changed.await( 10, TimeUnit.SECONDS ) );
+            assertArrayEquals( "version 2".getBytes( StandardCharsets.UTF_8 ), resources.getResource( "cn/vicky/Sample.class" ) );
+        } finally {
+            resources.stopWatching();
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static void writeJar(File jar, String... entries) throws IOException {
+        try (JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) )) {
+            for( int i = 0; i < entries.length; i += 2 ) {
+                out.putNextEntry( new JarEntry( entries[i] ) );
+                out.write( entries[i + 1].getBytes( StandardCharsets.UTF_8 ) );
+                out.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package cn.vicky.engine.classloader.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import cn.vicky.engine.classloader.core.proxy.CglibProxyProvider;
+import cn.vicky.engine.classloader.core.test.TestInterface;
+
+import java.lang.ref.WeakReference;
+
+import net.sf.cglib.proxy.Factory;
+
+import org.junit.Test;
+
+/**
+ * JclUtilsTest test case on JclUtils class.
+ *
+ */
+public class JclUtilsTest {
+
+    public static class SharedHello implements TestInterface {
+        @Override
+        public String sayHello() {
+            return "shared";
+        }
+    }
+
+    public static class DuckHello {
+        public String sayHello() {
+            return "duck";
+        }
+    }
+
+    @Test
+    public void checkCastReturnsObjectWhenTypeIsShared() {
+        SharedHello hello = new SharedHello();
+
+        assertEquals( CastStrategy.IDENTITY, JclUtils.getCastStrategy( SharedHello.class, TestInterface.class ) );
+        assertSame( hello, JclUtils.cast( hello, TestInterface.class ) );
+    }
+
+    @Test
+    public void checkCastUsesDirectProxyForMatchingMethods() {
+        DuckHello hello = new DuckHello();
+
+        assertEquals( CastStrategy.DIRECT_PROXY, JclUtils.getCastStrategy( DuckHello.class, TestInterface.class ) );
+
+        TestInterface ti = JclUtils.cast( hello, TestInterface.class );
+        assertNotSame( hello, ti );
+        assertEquals( "duck", ti.sayHello() );
+        assertEquals( hello.hashCode(), ti.hashCode() );
+    }
+
+    @Test
+    public void checkCastUsesConfiguredProxyProvider() throws Exception {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+        Object hello = jcl.loadClass( DuckHello.class.getName() ).getDeclaredConstructor().newInstance();
+
+        assertEquals( CastStrategy.DIRECT_PROXY, JclUtils.getCastStrategy( hello.getClass(), TestInterface.class ) );
+        assertFalse( JclUtils.cast( hello, TestInterface.class ) instanceof Factory );
+
+        jcl.setProxyProvider( TestInterface.class.getName(), new CglibProxyProvider() );
+
+        TestInterface ti = JclUtils.cast( hello, TestInterface.class );
+        assertTrue( ti instanceof Factory );
+        assertEquals( "duck", ti.sayHello() );
+
+        TestInterface explicit = JclUtils.cast( hello, TestInterface.class, getClass().getClassLoader() );
+        assertTrue( explicit instanceof Factory );
+        assertEquals( "duck", explicit.sayHello() );
+    }
+
+    @Test
+    public void checkCastOfNullIsNull() {
+        assertNull( JclUtils.cast( null, TestInterface.class ) );
+        assertNull( JclUtils.cast( null, TestInterface.class, new JarClassLoader() ) );
+        assertNull( JclUtils.toCastable( null, TestInterface.class ) );
+        assertNull( JclUtils.toCastable( null, new Class[] { TestInterface.class }, new JarClassLoader() ) );
+    }
+
+    @Test
+    public void checkCastDoesNotPinTargetLoader() throws Exception {
+        WeakReference<ClassLoader> ref = castToInterfaceOfAnotherLoader();
+
+        // cleared references are enqueued asynchronously
+        for( int i = 0; i < 50 && ref.get() != null; i++ ) {
+            System.gc();
+            Thread.sleep( 100 );
+        }
+        assertNull( ref.get() );
+    }
+
+    private static WeakReference<ClassLoader> castToInterfaceOfAnotherLoader() throws Exception {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+        Class target = jcl.loadClass( TestInterface.class.getName() );
+        assertNotSame( TestInterface.class, target );
+
+        Object ti = JclUtils.cast( new DuckHello(), target, jcl );
+        assertTrue( target.isInstance( ti ) );
+        return new WeakReference<ClassLoader>( jcl );
+    }
+
+    @Test
+    public void checkCastFallsBackToReflectiveProxy() {
+        assertEquals( CastStrategy.REFLECTIVE_PROXY, JclUtils.getCastStrategy( DuckHello.class, Runnable.class ) );
+        assertEquals( CastStrategy.REFLECTIVE_PROXY, JclUtils.getCastStrategy( DuckHello.class, SharedHello.class ) );
+    }
+}
@@ -0,0 +1,118 @@
+package cn.vicky.engine.classloader.core;
+
+import static cn.vicky.engine.classloader.core.fixture.SourceCompiler.compile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ReloadableJarClassLoaderTest test case on generation switching and draining.
+ *
+ */
+public class ReloadableJarClassLoaderTest {
+
+    private static final String SAMPLE = "cn.vicky.engine.classloader.core.sample.Test1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ReloadableJarClassLoader newLoader() {
+        return new ReloadableJarClassLoader( () -> {
+            JarClassLoader jcl = new JarClassLoader();
+            jcl.add( "./target/test-classes" );
+            return jcl;
+        } );
+    }
+
+    @Test
+    public void checkReloadRoutesNewLookupsToNewGeneration() throws ClassNotFoundException, InterruptedException {
+        ReloadableJarClassLoader loader = newLoader();
+        JarClassLoader first = loader.current();
+        Class c1 = loader.loadClass( SAMPLE );
+
+        assertEquals( 2, loader.reload() );
+
+        Class c2 = loader.loadClass( SAMPLE );
+        assertNotSame( first, loader.current() );
+        assertNotSame( c1, c2 );
+        assertSame( loader.current(), c2.getClassLoader() );
+        assertSame( loader.current(), JclObjectFactory.getInstance( false ).create( loader, SAMPLE ).getClass().getClassLoader() );
+
+        // nothing was leased, so the first generation is released at once
+        assertEquals( 0, loader.getRetiredCount() );
+        assertTrue( loader.awaitRetired( 0, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void checkOldGenerationIsReleasedWhenLeasesAreClosed() throws ClassNotFoundException, InterruptedException {
+        ReloadableJarClassLoader loader = newLoader();
+
+        ReloadableJarClassLoader.Lease lease = loader.acquire();
+        JarClassLoader leased = lease.getClassLoader();
+        assertEquals( 1, lease.getGeneration() );
+
+        loader.reload();
+        loader.reload();
+
+        // the lease keeps using its own generation
+        assertSame( leased, lease.getClassLoader().loadClass( SAMPLE ).getClassLoader() );
+        assertEquals( 1, loader.getRetiredCount() );
+        assertFalse( loader.awaitRetired( 10, TimeUnit.MILLISECONDS ) );
+
+        try (ReloadableJarClassLoader.Lease current = loader.acquire()) {
+            assertEquals( 3, current.getGeneration() );
+        }
+
+        lease.close();
+        lease.close();
+        assertEquals( 0, loader.getRetiredCount() );
+        assertTrue( loader.awaitRetired( 0, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void checkLayeredReloadKeepsUnaffectedClasses() throws Exception {
+        final File classes = folder.newFolder( "classes" );
+        compile( classes, "p.Stable", "public String name() { return \"stable\"; }",
+                "p.Other", "public String name() { return new Stable().name(); }",
+                "p.Changed", "public String version() { return \"v1\"; }",
+                "p.User", "public String version() { return new Changed().version(); }" );
+
+        ReloadableJarClassLoader loader = new ReloadableJarClassLoader( () -> {
+            JarClassLoader jcl = new JarClassLoader();
+            jcl.add( classes.getPath() );
+            return jcl;
+        } );
+        loader.setLayered( true );
+        JarClassLoader first = loader.current();
+        Class stable = loader.loadClass( "p.Stable" );
+        Class other = loader.loadClass( "p.Other" );
+        Class user = loader.loadClass( "p.User" );
+
+        compile( classes, "p.Changed", "public String version() { return \"v2\"; }" );
+        loader.reload();
+
+        assertSame( first, loader.current().getStableLayer() );
+        assertSame( stable, loader.loadClass( "p.Stable" ) );
+        assertSame( other, loader.loadClass( "p.Other" ) );
+        assertNotSame( user, loader.loadClass( "p.User" ) );
+        assertSame( loader.current(), loader.loadClass( "p.Changed" ).getClassLoader() );
+        assertEquals( "v2", loader.loadClass( "p.User" ).getMethod( "version" ).invoke( loader.loadClass( "p.User" ).newInstance() ) );
+
+        // a second layered reload keeps the same stable layer
+        compile( classes, "p.Changed", "public String version() { return \"v3\"; }" );
+        loader.reload();
+
+        assertSame( first, loader.current().getStableLayer() );
+        assertSame( stable, loader.loadClass( "p.Stable" ) );
+        assertEquals( "v3", loader.loadClass( "p.User" ).getMethod( "version" ).invoke( loader.loadClass( "p.User" ).newInstance() ) );
+    }
+}
@@ -0,0 +1,136 @@
+package cn.vicky.engine.classloader.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import cn.vicky.engine.classloader.core.fixture.ClasspathGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * ScaleTest test case on loading generated jars and class folders with tens of
+ * thousands of classes.
+ *
+ */
+public class ScaleTest {
+
+    private File directory;
+
+    @After
+    public void tearDown() throws IOException {
+        if (directory != null) {
+            delete( directory.toPath() );
+        }
+    }
+
+    @Test
+    public void checkLargeJarLoads() throws Exception {
+        ClasspathGenerator generator = generator( 40, 500 );
+        generator.setResources( 200 );
+        File jar = generator.writeJar( tempFile( ".jar" ) );
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( jar.getAbsolutePath() );
+        assertEquals( generator.getClassCount() + 200, jcl.getLoadedResources().size() );
+
+        loadAll( jcl, generator.getClassNames() );
+        assertEquals( generator.getClassCount(), jcl.getLoadedClasses().size() );
+
+        Map<String, byte[]> entries = generator.generate();
+        for (String name : generator.getResourceNames().subList( 0, 10 )) {
+            assertNotNull( name, jcl.getResource( name ) );
+            try (InputStream in = jcl.getResourceAsStream( name )) {
+                assertArrayEquals( name, entries.get( name ), read( in ) );
+            }
+        }
+    }
+
+    @Test
+    public void checkStoredJarAndClassFolderMatch() throws Exception {
+        ClasspathGenerator generator = generator( 10, 200 );
+        generator.setResources( 50 );
+        generator.setResourceSize( 16, 1024 * 1024 );
+        generator.setMethod( ZipEntry.STORED );
+
+        JarClassLoader fromJar = new JarClassLoader();
+        fromJar.add( generator.writeJar( tempFile( ".jar" ) ).getAbsolutePath() );
+        JarClassLoader fromFolder = new JarClassLoader();
+        directory = Files.createTempDirectory( "jcl-scale" ).toFile();
+        fromFolder.add( generator.writeDirectory( directory ).getAbsolutePath() );
+
+        for (String name : generator.getResourceNames()) {
+            assertArrayEquals( name, read( fromJar.getResourceAsStream( name ) ), read( fromFolder.getResourceAsStream( name ) ) );
+        }
+        loadAll( fromJar, generator.getClassNames() );
+        loadAll( fromFolder, generator.getClassNames() );
+    }
+
+    private static void loadAll(JarClassLoader jcl, List<String> names) throws ReflectiveOperationException {
+        for (String name : names) {
+            Class<?> c = jcl.loadClass( name );
+            assertEquals( jcl, c.getClassLoader() );
+            // resolves the classes it references through the same loader
+            Class<?>[] references = (Class<?>[]) c.getMethod( "references" ).invoke( null );
+            for (Class<?> reference : references) {
+                assertEquals( jcl, reference.getClassLoader() );
+            }
+        }
+    }
+
+    private static ClasspathGenerator generator(int packages, int classesPerPackage) {
+        ClasspathGenerator generator = new ClasspathGenerator();
+        generator.setPackages( packages );
+        generator.setClassesPerPackage( classesPerPackage );
+        generator.setChainDepth( 5 );
+        generator.setReferences( 3 );
+        return generator;
+    }
+
+    private static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile( "jcl-scale", suffix );
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void delete(Path path) throws IOException {
+        Files.walkFileTree( path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete( file );
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete( dir );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[8192];
+        int len;
+        while (( len = in.read( b ) ) > 0) {
+            out.write( b, 0, len );
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,229 @@
+package cn.vicky.engine.classloader.core.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.exception.JclContextException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * XmlContextLoaderTest test case on parallel and lazy context loading.
+ *
+ */
+public class XmlContextLoaderTest {
+
+    private static final String SAMPLE = "cn.vicky.engine.classloader.core.sample.Test1";
+    private static final String SOURCES = "<sources><source>target/test-classes</source></sources>";
+    private static final String LOADERS = "<loaders><loader name=\"jcl.local\"><order>1</order></loader></loaders>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    @After
+    public void destroyContext() {
+        JclContext.destroy();
+    }
+
+    @Test
+    public void checkParallelLoadBuildsAllEagerLoaders() throws ClassNotFoundException {
+        XmlContextLoader loader = new XmlContextLoader( "classpath:jcl-parallel.xml" );
+        loader.setParallelism( 4 );
+        loader.loadContext();
+
+        JarClassLoader eager1 = JclContext.get( "eager1" );
+        JarClassLoader eager2 = JclContext.get( "eager2" );
+
+        assertTrue( eager1.getLoadedResources().containsKey( "cn/vicky/engine/classloader/core/sample/Test1.class" ) );
+        assertTrue( eager1.getLoadedResources().containsKey( "cn/vicky/engine/classloader/core/JarClassLoader.class" ) );
+        assertSame( eager1, eager1.loadClass( SAMPLE ).getClassLoader() );
+        assertSame( eager2, eager2.loadClass( SAMPLE ).getClassLoader() );
+    }
+
+    @Test
+    public void checkLazyLoaderIsBuiltOnFirstAccess() throws ClassNotFoundException {
+        XmlContextLoader loader = new XmlContextLoader( "classpath:jcl-parallel.xml" );
+        loader.setParallelism( 1 );
+
+        // "broken" names a missing loader class, which only fails when built
+        loader.loadContext();
+
+        JarClassLoader lazy = JclContext.get( "lazy" );
+        assertSame( lazy, JclContext.get( "lazy" ) );
+        assertSame( lazy, lazy.loadClass( SAMPLE ).getClassLoader() );
+        assertNotSame( JclContext.get( "eager1" ), lazy );
+
+        try {
+            JclContext.get( "broken" );
+            fail( "Expected JclContextException" );
+        } catch (JclContextException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void checkValidationCanBeDisabled() {
+        try {
+            new XmlContextLoader( "classpath:jcl-unvalidated.xml" ).loadContext();
+            fail( "Expected JclContextException" );
+        } catch (JclContextException e) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "jcl-unvalidated.xml (4, " ) );
+        }
+
+        XmlContextLoader loader = new XmlContextLoader( "classpath:jcl-unvalidated.xml" );
+        loader.setValidating( false );
+        loader.loadContext();
+
+        assertEquals( 2, JclContext.get( "generated" ).getLocalLoader().getOrder() );
+    }
+
+    @Test
+    public void checkBooleansFollowXsdSyntaxWithoutValidation() throws IOException {
+        String broken = "<loaders><loader name=\"custom\" class=\"cn.vicky.engine.classloader.core.test.MissingLoader\" />"
+                + "</loaders>";
+        File config = folder.newFile( "jcl-boolean.xml" );
+        writeConfig( config, "<jcl name=\"deferred\" lazy=\"1\">" + broken + SOURCES + "</jcl>" );
+
+        // lazy="1" means true, so the missing loader class is not touched yet
+        XmlContextLoader loader = new XmlContextLoader( config.getPath() );
+        loader.setValidating( false );
+        loader.loadContext();
+        JclContext.destroy();
+
+        writeConfig( config, "<jcl name=\"invalid\" lazy=\"yes\">" + SOURCES + "</jcl>" );
+        loader = new XmlContextLoader( config.getPath() );
+        loader.setValidating( false );
+        try {
+            loader.loadContext();
+            fail( "Expected JclContextException" );
+        } catch (JclContextException e) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "Invalid boolean 'yes'" ) );
+        }
+    }
+
+    @Test
+    public void checkReloadRebuildsOnlyChangedLoaders() throws IOException {
+        File config = folder.newFile( "jcl-reload.xml" );
+        writeConfig( config, "<jcl name=\"kept\">" + SOURCES + "</jcl>", "<jcl name=\"changed\">" + SOURCES + "</jcl>",
+                "<jcl name=\"removed\">" + SOURCES + "</jcl>" );
+
+        XmlContextLoader loader = new XmlContextLoader( config.getPath() );
+        loader.loadContext();
+
+        JarClassLoader kept = JclContext.get( "kept" );
+        JarClassLoader changed = JclContext.get( "changed" );
+
+        writeConfig( config, "<jcl name=\"kept\">" + SOURCES + "</jcl>", "<jcl name=\"changed\">" + LOADERS + SOURCES
+                + "</jcl>", "<jcl name=\"added\" lazy=\"true\">" + SOURCES + "</jcl>" );
+        loader.reload();
+
+        assertSame( kept, JclContext.get( "kept" ) );
+        assertNotSame( changed, JclContext.get( "changed" ) );
+        assertEquals( 1, JclContext.get( "changed" ).getLocalLoader().getOrder() );
+        assertNull( JclContext.get( "removed" ) );
+        assertNotNull( JclContext.get( "added" ) );
+    }
+
+    @Test
+    public void checkWatchedConfigIsReloadedInBackground() throws IOException, InterruptedException {
+        File config = folder.newFile( "jcl-watched.xml" );
+        writeConfig( config, "<jcl name=\"watched\">" + SOURCES + "</jcl>" );
+
+        XmlContextLoader loader = new XmlContextLoader( config.getPath() );
+        loader.loadContext();
+        loader.watch( false );
+        try {
+            JarClassLoader original = JclContext.get( "watched" );
+
+            writeConfig( config, "<jcl name=\"watched\">" + LOADERS + SOURCES + "</jcl>" );
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while( JclContext.get( "watched" ) == original && System.currentTimeMillis() < deadline ) {
+                Thread.sleep( 50 );
+            }
+
+            assertNotSame( original, JclContext.get( "watched" ) );
+            assertEquals( 1, JclContext.get( "watched" ).getLocalLoader().getOrder() );
+        } finally {
+            loader.unloadContext();
+        }
+    }
+
+    @Test
+    public void checkWatcherDropsDirectoriesOfRemovedSources() throws IOException {
+        File kept = folder.newFolder( "kept", "nested" ).getParentFile();
+        File removed = folder.newFolder( "removed" );
+        File config = folder.newFile( "jcl-sources.xml" );
+        writeConfig( config, "<jcl name=\"sources\"><sources><source>" + kept + "</source><source>" + removed
+                + "</source></sources></jcl>" );
+
+        XmlContextLoader loader = new XmlContextLoader( config.getPath() );
+        loader.loadContext();
+        ContextWatcher watcher = new ContextWatcher( loader, config.toPath(), true );
+        try {
+            assertTrue( watcher.watchedDirectories().contains( removed.toPath() ) );
+            assertTrue( watcher.watchedDirectories().contains( new File( kept, "nested" ).toPath() ) );
+
+            writeConfig( config, "<jcl name=\"sources\"><sources><source>" + kept + "</source></sources></jcl>" );
+            loader.reload();
+            assertTrue( new File( kept, "nested" ).delete() );
+            watcher.registerSources();
+
+            assertFalse( watcher.watchedDirectories().contains( removed.toPath() ) );
+            assertFalse( watcher.watchedDirectories().contains( new File( kept, "nested" ).toPath() ) );
+            assertTrue( watcher.watchedDirectories().contains( kept.toPath() ) );
+            assertTrue( watcher.watchedDirectories().contains( config.toPath().getParent() ) );
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void checkIndependentContextsDoNotShareLoaders() {
+        JclContext tenant1 = JclContext.newContext();
+        JclContext tenant2 = JclContext.newContext();
+        new XmlContextLoader( "classpath:jcl-parallel.xml", tenant1 ).loadContext();
+        new XmlContextLoader( "classpath:jcl-parallel.xml", tenant2 ).loadContext();
+
+        assertNotNull( tenant1.getJcl( "eager1" ) );
+        assertNotSame( tenant1.getJcl( "eager1" ), tenant2.getJcl( "eager1" ) );
+        assertNull( JclContext.get( "eager1" ) );
+        assertFalse( JclContext.isLoaded() );
+
+        // the default context can still be loaded while other contexts are
+        new XmlContextLoader( "classpath:jcl-parallel.xml" ).loadContext();
+        assertNotSame( tenant1.getJcl( "eager1" ), JclContext.get( "eager1" ) );
+
+        tenant1.clear();
+        assertTrue( tenant1.isEmpty() );
+        assertNotNull( tenant2.getJcl( "eager1" ) );
+        assertNotNull( JclContext.get( "eager1" ) );
+    }
+
+    private static void writeConfig(File file, String... jcls) throws IOException {
+        try (PrintWriter out = new PrintWriter( file, "UTF-8" )) {
+            out.println( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" );
+            out.println( "<jcl-context>" );
+            for( String jcl : jcls ) {
+                out.println( jcl );
+            }
+            out.println( "</jcl-context>" );
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package cn.vicky.engine.classloader.core.fixture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the bytecode of a public class with a no-arg constructor, one public
+ * field per referenced class and a static references() method that loads each
+ * referenced class with ldc. The code has no branches, so no StackMapTable is
+ * needed.
+ *
+ */
+class ClassFileWriter {
+
+    private static final int MAJOR_VERSION = 52;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream( pool );
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private int count = 1;
+
+    /**
+     * @param name internal name, e.g. synthetic/p0/C1
+     * @param superName internal name of the super class
+     * @param references internal names of the referenced classes, at most 127
+     * @return the class file
+     */
+    static byte[] write(String name, String superName, List<String> references) {
+        if (references.size() > Byte.MAX_VALUE)
+            throw new IllegalArgumentException( "Too many references: " + references.size() );
+
+        try {
+            return new ClassFileWriter().toBytes( name, superName, references );
+        } catch (IOException e) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private byte[] toBytes(String name, String superName, List<String> references) throws IOException {
+        int thisClass = classConstant( name );
+        int superClass = classConstant( superName );
+        int superInit = methodref( superName, "<init>", "()V" );
+        int classClass = classConstant( "java/lang/Class" );
+        int code = utf8( "Code" );
+
+        List<int[]> fields = new ArrayList<>();
+        List<Integer> referenced = new ArrayList<>();
+        for (int i = 0; i < references.size(); i++) {
+            fields.add( new int[] { utf8( "ref" + i ), utf8( "L" + references.get( i ) + ";" ) } );
+            referenced.add( classConstant( references.get( i ) ) );
+        }
+        int init = utf8( "<init>" );
+        int initType = utf8( "()V" );
+        int refs = utf8( "references" );
+        int refsType = utf8( "()[Ljava/lang/Class;" );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 256 + pool.size() );
+        DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( 0xCAFEBABE );
+        out.writeShort( 0 );
+        out.writeShort( MAJOR_VERSION );
+        out.writeShort( count );
+        pool.writeTo( out );
+        out.writeShort( ACC_PUBLIC | ACC_SUPER );
+        out.writeShort( thisClass );
+        out.writeShort( superClass );
+        out.writeShort( 0 );
+
+        out.writeShort( fields.size() );
+        for (int[] field : fields) {
+            out.writeShort( ACC_PUBLIC );
+            out.writeShort( field[0] );
+            out.writeShort( field[1] );
+            out.writeShort( 0 );
+        }
+
+        out.writeShort( 2 );
+
+        // public <init>() { super(); }
+        out.writeShort( ACC_PUBLIC );
+        out.writeShort( init );
+        out.writeShort( initType );
+        writeCode( out, code, 1, 1, new byte[] { 0x2A, (byte) 0xB7, (byte) ( superInit >> 8 ), (byte) superInit, (byte) 0xB1 } );
+
+        // public static Class[] references() { return new Class[] { Ref0.class, ... }; }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write( 0x10 );
+        body.write( referenced.size() );
+        body.write( 0xBD );
+        body.write( classClass >> 8 );
+        body.write( classClass );
+        for (int i = 0; i < referenced.size(); i++) {
+            body.write( 0x59 );
+            body.write( 0x10 );
+            body.write( i );
+            body.write( 0x13 );
+            body.write( referenced.get( i ) >> 8 );
+            body.write( referenced.get( i ) );
+            body.write( 0x53 );
+        }
+        body.write( 0xB0 );
+        out.writeShort( ACC_PUBLIC | ACC_STATIC );
+        out.writeShort( refs );
+        out.writeShort( refsType );
+        writeCode( out, code, 4, 0, body.toByteArray() );
+
+        out.writeShort( 0 );
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeCode(DataOutputStream out, int code, int maxStack, int maxLocals, byte[] body) throws IOException {
+        out.writeShort( 1 );
+        out.writeShort( code );
+        out.writeInt( 12 + body.length );
+        out.writeShort( maxStack );
+        out.writeShort( maxLocals );
+        out.writeInt( body.length );
+        out.write( body );
+        out.writeShort( 0 );
+        out.writeShort( 0 );
+    }
+
+    private int utf8(String value) throws IOException {
+        Integer index = indexes.get( "U" + value );
+        if (index == null) {
+            constants.writeByte( CONSTANT_UTF8 );
+            constants.writeUTF( value );
+            index = add( "U" + value );
+        }
+        return index;
+    }
+
+    private int classConstant(String name) throws IOException {
+        Integer index = indexes.get( "C" + name );
+        if (index == null) {
+            int utf8 = utf8( name );
+            constants.writeByte( CONSTANT_CLASS );
+            constants.writeShort( utf8 );
+            index = add( "C" + name );
+        }
+        return index;
+    }
+
+    private int methodref(String owner, String name, String descriptor) throws IOException {
+        int ownerIndex = classConstant( owner );
+        int nameIndex = utf8( name );
+        int descriptorIndex = utf8( descriptor );
+        constants.writeByte( CONSTANT_NAME_AND_TYPE );
+        constants.writeShort( nameIndex );
+        constants.writeShort( descriptorIndex );
+        int nameAndType = count++;
+        constants.writeByte( CONSTANT_METHODREF );
+        constants.writeShort( ownerIndex );
+        constants.writeShort( nameAndType );
+        return count++;
+    }
+
+    private int add(String key) {
+        int index = count++;
+        indexes.put( key, index );
+        return index;
+    }
+}
@@ -0,0 +1,275 @@
+package cn.vicky.engine.classloader.core.fixture;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Generates jars and exploded directories of synthetic classes and resources
+ * for scale tests and benchmarks. The output is deterministic for a given
+ * configuration and seed.
+ * <p>
+ * Classes are named synthetic.p&lt;package&gt;.C&lt;index&gt;. In each package
+ * they form inheritance chains of chainDepth classes, and every class has
+ * references fields typed with random classes of any package. The static
+ * references() method of a class loads all its referenced classes. Resources
+ * are named synthetic/resources/r&lt;index&gt;.bin, with sizes spread
+ * log-uniformly between the minimum and maximum size.
+ *
+ * <pre>
+ * ClasspathGenerator generator = new ClasspathGenerator();
+ * generator.setPackages( 100 );
+ * generator.setClassesPerPackage( 200 );
+ * File jar = generator.writeJar( new File( "target/scale.jar" ) );
+ * </pre>
+ *
+ */
+public class ClasspathGenerator {
+
+    public static final String ROOT = "synthetic";
+
+    private int packages = 10;
+    private int classesPerPackage = 100;
+    private int chainDepth = 4;
+    private int references = 2;
+    private int resources = 0;
+    private int minResourceSize = 256;
+    private int maxResourceSize = 64 * 1024;
+    private int method = ZipEntry.DEFLATED;
+    private long seed = 42;
+
+    /**
+     * @return the binary names of the generated classes, supers first in each chain
+     */
+    public List<String> getClassNames() {
+        List<String> names = new ArrayList<>( getClassCount() );
+        for (int p = 0; p < packages; p++) {
+            for (int i = 0; i < classesPerPackage; i++) {
+                names.add( internalName( p, i ).replace( '/', '.' ) );
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the names of the generated resources
+     */
+    public List<String> getResourceNames() {
+        List<String> names = new ArrayList<>( resources );
+        for (int r = 0; r < resources; r++) {
+            names.add( resourceName( r ) );
+        }
+        return names;
+    }
+
+    public int getClassCount() {
+        return packages * classesPerPackage;
+    }
+
+    /**
+     * @return entry name to content, classes first
+     */
+    public Map<String, byte[]> generate() {
+        Random random = new Random( seed );
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        int count = getClassCount();
+
+        for (int p = 0; p < packages; p++) {
+            for (int i = 0; i < classesPerPackage; i++) {
+                String superName = i % chainDepth == 0 ? "java/lang/Object" : internalName( p, i - 1 );
+                List<String> referenced = new ArrayList<>( references );
+                for (int r = 0; r < references; r++) {
+                    int target = random.nextInt( count );
+                    referenced.add( internalName( target / classesPerPackage, target % classesPerPackage ) );
+                }
+
+                String name = internalName( p, i );
+                entries.put( name + ".class", ClassFileWriter.write( name, superName, referenced ) );
+            }
+        }
+
+        double range = Math.log( (double) maxResourceSize / minResourceSize );
+        for (int r = 0; r < resources; r++) {
+            int size = (int) Math.round( minResourceSize * Math.exp( random.nextDouble() * range ) );
+            entries.put( resourceName( r ), content( random, size ) );
+        }
+        return entries;
+    }
+
+    /**
+     * @param jar
+     * @return jar
+     * @throws IOException
+     */
+    public File writeJar(File jar) throws IOException {
+        File parent = jar.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            Files.createDirectories( parent.toPath() );
+
+        try (JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) )) {
+            CRC32 crc = new CRC32();
+            for (Map.Entry<String, byte[]> e : generate().entrySet()) {
+                JarEntry entry = new JarEntry( e.getKey() );
+                entry.setMethod( method );
+                if (method == ZipEntry.STORED) {
+                    crc.reset();
+                    crc.update( e.getValue() );
+                    entry.setSize( e.getValue().length );
+                    entry.setCompressedSize( e.getValue().length );
+                    entry.setCrc( crc.getValue() );
+                }
+                out.putNextEntry( entry );
+                out.write( e.getValue() );
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Writes the entries as an exploded class folder
+     *
+     * @param dir
+     * @return dir
+     * @throws IOException
+     */
+    public File writeDirectory(File dir) throws IOException {
+        for (Map.Entry<String, byte[]> e : generate().entrySet()) {
+            File file = new File( dir, e.getKey() );
+            Files.createDirectories( file.getParentFile().toPath() );
+            try (OutputStream out = new FileOutputStream( file )) {
+                out.write( e.getValue() );
+            }
+        }
+        return dir;
+    }
+
+    /**
+     * Half random, half repeated bytes, so that deflate gains about as much
+     * as it does on real resources
+     */
+    private static byte[] content(Random random, int size) {
+        byte[] content = new byte[size];
+        random.nextBytes( content );
+        for (int i = size / 2; i < size; i++) {
+            content[i] = (byte) ( i % 16 );
+        }
+        return content;
+    }
+
+    private static String internalName(int p, int i) {
+        return ROOT + "/p" + p + "/C" + i;
+    }
+
+    private static String resourceName(int r) {
+        return ROOT + "/resources/r" + r + ".bin";
+    }
+
+    public int getPackages() {
+        return packages;
+    }
+
+    public void setPackages(int packages) {
+        this.packages = packages;
+    }
+
+    public int getClassesPerPackage() {
+        return classesPerPackage;
+    }
+
+    public void setClassesPerPackage(int classesPerPackage) {
+        this.classesPerPackage = classesPerPackage;
+    }
+
+    public int getChainDepth() {
+        return chainDepth;
+    }
+
+    /**
+     * @param chainDepth the number of classes in each inheritance chain, 1 for no inheritance
+     */
+    public void setChainDepth(int chainDepth) {
+        if (chainDepth < 1)
+            throw new IllegalArgumentException( "chainDepth must be at least 1" );
+        this.chainDepth = chainDepth;
+    }
+
+    public int getReferences() {
+        return references;
+    }
+
+    /**
+     * @param references the number of classes each class references, at most 127
+     */
+    public void setReferences(int references) {
+        if (references < 0 || references > Byte.MAX_VALUE)
+            throw new IllegalArgumentException( "references must be between 0 and 127" );
+        this.references = references;
+    }
+
+    public int getResources() {
+        return resources;
+    }
+
+    public void setResources(int resources) {
+        this.resources = resources;
+    }
+
+    public int getMinResourceSize() {
+        return minResourceSize;
+    }
+
+    public int getMaxResourceSize() {
+        return maxResourceSize;
+    }
+
+    /**
+     * @param min
+     * @param max
+     */
+    public void setResourceSize(int min, int max) {
+        if (min < 1 || max < min)
+            throw new IllegalArgumentException( "Invalid resource size range: " + min + "-" + max );
+        this.minResourceSize = min;
+        this.maxResourceSize = max;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * @param method ZipEntry.STORED or ZipEntry.DEFLATED
+     */
+    public void setMethod(int method) {
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+            throw new IllegalArgumentException( "Unsupported method: " + method );
+        this.method = method;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public String toString() {
+        return packages + "x" + classesPerPackage + " classes (depth " + chainDepth + ", " + references + " references), "
+                + resources + " resources of " + minResourceSize + "-" + maxResourceSize + " bytes, "
+                + ( method == ZipEntry.STORED ? "stored" : "deflated" );
+    }
+}
@@ -0,0 +1,51 @@
+package cn.vicky.engine.classloader.core.fixture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles small generated classes with the system Java compiler, for tests
+ * and benchmarks that change classes between reloads. The sources are written
+ * next to the output directory, in a directory with the -src suffix.
+ *
+ */
+public final class SourceCompiler {
+
+    private SourceCompiler() {
+    }
+
+    /**
+     * Compiles public classes, given as pairs of class name and body, into dir.
+     */
+    public static void compile(File dir, String... classes) throws IOException {
+        File src = new File( dir.getParentFile(), dir.getName() + "-src" );
+        List<String> args = new ArrayList<>();
+        args.add( "-d" );
+        args.add( dir.getPath() );
+        args.add( "-cp" );
+        args.add( dir.getPath() );
+
+        for( int i = 0; i < classes.length; i += 2 ) {
+            String name = classes[i];
+            int dot = name.lastIndexOf( '.' );
+            File file = new File( src, name.replace( '.', '/' ) + ".java" );
+            file.getParentFile().mkdirs();
+
+            try (PrintWriter out = new PrintWriter( file, "UTF-8" )) {
+                out.println( "package " + name.substring( 0, dot ) + ";" );
+                out.println( "public class " + name.substring( dot + 1 ) + " { " + classes[i + 1] + " }" );
+            }
+            args.add( file.getPath() );
+        }
+
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if( javac.run( null, null, null, args.toArray( new String[args.size()] ) ) != 0 )
+            throw new IOException( "Compilation failed" );
+    }
+}
@@ -0,0 +1,69 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.context.JclContext;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+
+/**
+ * JarClassLoaderMonitorTest test case on the MBeans registered for the loaders of a JclContext.
+ *
+ */
+public class JarClassLoaderMonitorTest {
+
+    private static final String SAMPLE = "cn.vicky.engine.classloader.core.sample.Test1";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    public void checkStatisticsAreExposed() throws Exception {
+        JclContext context = JclContext.newContext();
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+        context.addJcl( "monitored", jcl );
+
+        ObjectName name = JarClassLoaderMonitor.objectName( context.getId(), "monitored" );
+        assertTrue( server.isRegistered( name ) );
+
+        jcl.loadClass( SAMPLE );
+        try {
+            jcl.loadClass( "cn.vicky.engine.classloader.core.sample.Missing" );
+            fail( "Missing class was loaded" );
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+
+        assertEquals( "monitored", server.getAttribute( name, "Name" ) );
+        assertEquals( 1, server.getAttribute( name, "DefinedClasses" ) );
+        assertEquals( 1L, server.getAttribute( name, "DefineCount" ) );
+        assertEquals( 1L, server.getAttribute( name, "NegativeLookups" ) );
+        assertEquals( 1L, server.getAttribute( name, "IngestCount" ) );
+        assertTrue( (Long) server.getAttribute( name, "ResourceBytes" ) > 0 );
+
+        long misses = 0;
+        for (CompositeData delegate : (CompositeData[]) server.getAttribute( name, "Delegates" )) {
+            if ("LocalLoader".equals( delegate.get( "name" ) ))
+                assertEquals( 1L, delegate.get( "hits" ) );
+            misses += (Long) delegate.get( "misses" );
+        }
+        assertTrue( misses > 0 );
+
+        server.invoke( name, "resetStatistics", null, null );
+        assertEquals( 0L, server.getAttribute( name, "DefineCount" ) );
+        assertEquals( 0L, server.getAttribute( name, "NegativeLookups" ) );
+
+        context.removeJcl( "monitored" );
+        assertFalse( server.isRegistered( name ) );
+    }
+}
@@ -0,0 +1,124 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.JclObjectFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JclEventsTest test case on the JFR events emitted while loading classes and jars.
+ *
+ */
+public class JclEventsTest {
+
+    private static final String SAMPLE = "cn.vicky.engine.classloader.core.sample.Test1";
+    private static final String PREFIX = "cn.vicky.engine.classloader.";
+
+    @Before
+    public void setUp() {
+        assumeTrue( JclEvents.ENABLED );
+    }
+
+    @Test
+    public void checkNoEventWithoutRecording() {
+        assertNull( JclEvents.beginLoadClass() );
+        assertNull( JclEvents.beginLoadJar() );
+    }
+
+    @Test
+    public void checkEventsAreRecorded() throws Exception {
+        File jar = File.createTempFile( "jcl-events", ".jar" );
+        jar.deleteOnExit();
+        writeJar( jar, "cn/vicky/engine/classloader/core/sample/Test1.class" );
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "LoadClass", "DefineClass", "LoadJar", "CreateObject" }) {
+                recording.enable( PREFIX + name ).withThreshold( Duration.ZERO );
+            }
+            recording.start();
+
+            JarClassLoader jcl = new JarClassLoader();
+            jcl.add( jar.getAbsolutePath() );
+            JclObjectFactory.getInstance( false ).create( jcl, SAMPLE );
+            try {
+                jcl.loadClass( "cn.vicky.engine.classloader.core.sample.Missing" );
+            } catch (ClassNotFoundException e) {
+                // expected
+            }
+
+            recording.stop();
+            Path file = Files.createTempFile( "jcl-events", ".jfr" );
+            try {
+                recording.dump( file );
+                events = RecordingFile.readAllEvents( file );
+            } finally {
+                Files.delete( file );
+            }
+        }
+
+        RecordedEvent loadJar = single( events, "LoadJar", null );
+        assertEquals( 1, loadJar.getInt( "entries" ) );
+        assertTrue( loadJar.getLong( "bytes" ) > 0 );
+        assertTrue( loadJar.getString( "source" ).endsWith( jar.getName() + "!/" ) );
+
+        RecordedEvent loadClass = single( events, "LoadClass", SAMPLE );
+        assertTrue( loadClass.getBoolean( "found" ) );
+        assertEquals( "LocalLoader", loadClass.getString( "delegate" ) );
+
+        RecordedEvent missing = single( events, "LoadClass", "cn.vicky.engine.classloader.core.sample.Missing" );
+        assertFalse( missing.getBoolean( "found" ) );
+        assertNull( missing.getString( "delegate" ) );
+
+        assertTrue( single( events, "DefineClass", SAMPLE ).getInt( "bytes" ) > 0 );
+        assertTrue( single( events, "CreateObject", SAMPLE ).getBoolean( "created" ) );
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name, String className) {
+        List<RecordedEvent> found = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals( PREFIX + name )
+                    && ( className == null || className.equals( event.getString( "className" ) ) ))
+                found.add( event );
+        }
+        assertEquals( name + " " + className, 1, found.size() );
+        return found.get( 0 );
+    }
+
+    private static void writeJar(File jar, String entry) throws IOException {
+        try (JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+                InputStream in = new FileInputStream( "./target/test-classes/" + entry )) {
+            out.putNextEntry( new JarEntry( entry ) );
+            byte[] b = new byte[2048];
+            int len;
+            while (( len = in.read( b ) ) > 0) {
+                out.write( b, 0, len );
+            }
+            out.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package cn.vicky.engine.classloader.core.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.context.JclContext;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * LeakDetectorTest test case on detecting JarClassLoaders that are not collected after release.
+ *
+ */
+public class LeakDetectorTest {
+
+    private static final String SAMPLE = "cn.vicky.engine.classloader.core.sample.Test1";
+
+    private final LeakDetector detector = LeakDetector.getInstance();
+
+    @Before
+    public void setUp() {
+        detector.setEnabled( false );
+        detector.setEnabled( true );
+        detector.setGcCount( 2 );
+    }
+
+    @After
+    public void tearDown() {
+        detector.setEnabled( false );
+        detector.setEnabled( true );
+        detector.setGcCount( 3 );
+    }
+
+    @Test
+    public void checkReleasedLoaderIsCollected() throws Exception {
+        JclContext context = JclContext.newContext();
+        context.addJcl( "collected", newLoader() );
+        context.getJcl( "collected" ).loadClass( SAMPLE );
+        context.removeJcl( "collected" );
+
+        assertEquals( 1, detector.getPendingCount() );
+        // cleared references are enqueued asynchronously
+        for( int i = 0; i < 50 && detector.getPendingCount() > 0; i++ ) {
+            System.gc();
+            Thread.sleep( 100 );
+        }
+
+        assertEquals( 0, detector.getPendingCount() );
+        assertTrue( detector.check().isEmpty() );
+    }
+
+    @Test
+    public void checkLazyLoaderReplacedDuringCreationIsReleased() {
+        final JclContext context = JclContext.newContext();
+        final JarClassLoader replacement = newLoader();
+        // keeps the losing build reachable while it is pending
+        final JarClassLoader created = newLoader();
+        context.addLazyJcl( "lazy", () -> {
+            context.replaceJcl( "lazy", replacement );
+            return created;
+        } );
+
+        assertSame( replacement, context.getJcl( "lazy" ) );
+        assertSame( replacement, context.getJcl( "lazy" ) );
+        assertEquals( 1, detector.getPendingCount() );
+    }
+
+    @Test
+    public void checkRetainedLoaderIsReported() throws Exception {
+        JclContext context = JclContext.newContext();
+        context.addJcl( "leaked", newLoader() );
+        final JarClassLoader jcl = context.getJcl( "leaked" );
+        final Object sample = jcl.loadClass( SAMPLE ).newInstance();
+
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch done = new CountDownLatch( 1 );
+        Thread worker = new Thread( () -> {
+            ThreadLocal<Object> local = new ThreadLocal<>();
+            local.set( sample );
+            started.countDown();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "leaking-worker" );
+        worker.setContextClassLoader( jcl );
+        worker.start();
+        started.await();
+
+        try {
+            context.clear();
+            // GC notifications are delivered asynchronously
+            for( int i = 0; i < 50 && detector.getLeakedCount() == 0; i++ ) {
+                System.gc();
+                Thread.sleep( 100 );
+            }
+
+            List<LeakReport> reports = detector.check();
+            assertEquals( 1, reports.size() );
+            assertEquals( 1, detector.getLeakedCount() );
+            assertTrue( detector.getLeakedBytes() > 0 );
+
+            LeakReport report = reports.get( 0 );
+            assertEquals( "leaked", report.getName() );
+            assertEquals( 1, report.getClasses() );
+            assertTrue( report.toString(), report.getRetentionPaths().contains( "Thread[leaking-worker] has it as context class loader" ) );
+            assertTrue( report.toString(), report.getRetentionPaths().contains(
+                    "Thread[leaking-worker] ThreadLocal java.lang.ThreadLocal holds an instance of " + SAMPLE ) );
+        } finally {
+            done.countDown();
+            worker.join();
+        }
+    }
+
+    private static JarClassLoader newLoader() {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+        return jcl;
+    }
+}
@@ -0,0 +1,67 @@
+package cn.vicky.engine.classloader.core.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.test.TestInterface;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+/**
+ * CglibProxyProviderTest test case on CglibProxyProvider class.
+ *
+ */
+public class CglibProxyProviderTest {
+
+    public static class Hello implements TestInterface {
+        private final String name;
+
+        public Hello(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String sayHello() {
+            return "Hello " + name;
+        }
+    }
+
+    @Test
+    public void checkProxyClassIsReused() {
+        ProxyProvider provider = new CglibProxyProvider();
+        Class[] interfaces = new Class[] { TestInterface.class };
+
+        TestInterface first = (TestInterface) provider.createProxy( new Hello( "first" ), null, interfaces, null );
+        TestInterface second = (TestInterface) provider.createProxy( new Hello( "second" ), null, interfaces, null );
+
+        assertNotSame( first, second );
+        assertSame( first.getClass(), second.getClass() );
+        assertEquals( "Hello first", first.sayHello() );
+        assertEquals( "Hello second", second.sayHello() );
+    }
+
+    @Test
+    public void checkProxyClassDoesNotRetainClassLoader() {
+        WeakReference<JarClassLoader> loader = proxyInThrowawayLoader( new CglibProxyProvider() );
+
+        for( int i = 0; i < 10 && loader.get() != null; i++ ) {
+            System.gc();
+        }
+
+        assertNull( loader.get() );
+    }
+
+    private static WeakReference<JarClassLoader> proxyInThrowawayLoader(ProxyProvider provider) {
+        JarClassLoader jcl = new JarClassLoader();
+        TestInterface proxy = (TestInterface) provider.createProxy( new Hello( "jcl" ), null, new Class[] { TestInterface.class }, jcl );
+
+        assertSame( jcl, proxy.getClass().getClassLoader() );
+        assertEquals( "Hello jcl", proxy.sayHello() );
+        return new WeakReference<>( jcl );
+    }
+}
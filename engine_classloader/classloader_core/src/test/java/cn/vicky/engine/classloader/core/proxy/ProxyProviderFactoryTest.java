@@ -0,0 +1,52 @@
+package cn.vicky.engine.classloader.core.proxy;
+
+import static org.junit.Assert.assertSame;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.test.TestInterface;
+
+import net.sf.cglib.proxy.Factory;
+
+import org.junit.Test;
+
+/**
+ * ProxyProviderFactoryTest test case on ProxyProviderFactory class.
+ *
+ */
+public class ProxyProviderFactoryTest {
+
+    @Test
+    public void checkProviderSelection() {
+        JarClassLoader jcl = new JarClassLoader();
+        ProxyProvider loaderProvider = new JdkProxyProvider();
+        ProxyProvider interfaceProvider = new CglibProxyProvider();
+        Class[] runnable = new Class[] { Runnable.class };
+        Class[] hello = new Class[] { TestInterface.class };
+
+        assertSame( ProxyProviderFactory.create(), ProxyProviderFactory.create( jcl, hello ) );
+
+        jcl.setProxyProvider( loaderProvider );
+        jcl.setProxyProvider( TestInterface.class.getName(), interfaceProvider );
+
+        assertSame( loaderProvider, ProxyProviderFactory.create( jcl, runnable ) );
+        assertSame( interfaceProvider, ProxyProviderFactory.create( jcl, hello ) );
+        assertSame( ProxyProviderFactory.create(), ProxyProviderFactory.create( getClass().getClassLoader(), hello ) );
+    }
+
+    @Test
+    public void checkCachedFactoryFollowsConfiguration() {
+        JarClassLoader jcl = new JarClassLoader();
+        Class[] hello = new Class[] { TestInterface.class };
+        CachedProxyFactory factory = new CachedProxyFactory( jcl, null, hello, null );
+        TestInterface delegate = () -> "hello";
+
+        Object jdk = factory.newProxy( delegate );
+        assertSame( jdk.getClass(), factory.newProxy( delegate ).getClass() );
+
+        jcl.setProxyProvider( TestInterface.class.getName(), new CglibProxyProvider() );
+        Object cglib = factory.newProxy( delegate );
+
+        assertSame( TestInterface.class, cglib.getClass().getInterfaces()[0] );
+        assertSame( Factory.class, cglib.getClass().getInterfaces()[1] );
+    }
+}
@@ -0,0 +1,134 @@
+package cn.vicky.engine.classloader.core.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.fixture.ClasspathGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * TraceRecorderTest test case on recording class loading traces and replaying them.
+ *
+ */
+public class TraceRecorderTest {
+
+    private static final String MISSING = "synthetic.Missing";
+
+    @Test
+    public void checkTraceRoundTrip() throws Exception {
+        ClasspathGenerator generator = new ClasspathGenerator();
+        generator.setPackages( 2 );
+        generator.setClassesPerPackage( 50 );
+        generator.setResources( 10 );
+        File jar = File.createTempFile( "jcl-trace", ".jar" );
+        jar.deleteOnExit();
+        generator.writeJar( jar );
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( jar.getAbsolutePath() );
+        final List<String> classes = generator.getClassNames();
+        final List<String> resources = generator.getResourceNames();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TraceRecorder recorder = new TraceRecorder( jcl, out )) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                final int offset = t * 50;
+                threads.add( new Thread( () -> {
+                    // the last class of each chain loads its supers, which are not recorded
+                    for (int i = offset + 49; i >= offset; i--) {
+                        load( jcl, classes.get( i ) );
+                    }
+                    load( jcl, MISSING );
+                    jcl.getResource( resources.get( offset / 10 ) );
+                    close( jcl.getResourceAsStream( resources.get( offset / 10 + 1 ) ) );
+                }, "worker-" + t ) );
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals( 106, recorder.getEventCount() );
+        }
+        assertNull( jcl.getTraceRecorder() );
+
+        Trace trace = Trace.read( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( 2, trace.getThreadCount() );
+        assertEquals( 106, trace.getEventCount() );
+        assertTrue( trace.getThreadNames().contains( "worker-0" ) );
+
+        List<TraceEvent> events = trace.getEvents( trace.getThreadNames().indexOf( "worker-1" ) );
+        assertEquals( 53, events.size() );
+        assertEquals( classes.get( 99 ), events.get( 0 ).getName() );
+        assertTrue( events.get( 0 ).isFound() );
+        assertEquals( MISSING, events.get( 50 ).getName() );
+        assertFalse( events.get( 50 ).isFound() );
+        assertEquals( TraceEvent.Type.GET_RESOURCE, events.get( 51 ).getType() );
+        assertEquals( TraceEvent.Type.GET_RESOURCE_AS_STREAM, events.get( 52 ).getType() );
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue( events.get( i - 1 ).getStartNanos() <= events.get( i ).getStartNanos() );
+        }
+
+        JarClassLoader same = new JarClassLoader();
+        same.add( jar.getAbsolutePath() );
+        ReplayReport report = new TraceReplayer( trace ).replay( same );
+        assertEquals( report.toString(), 106, report.getEvents() );
+        assertEquals( report.toString(), 0, report.getMismatches() );
+        assertEquals( 100, same.getLoadedClasses().size() );
+
+        // against a jar without the recorded entries every recorded hit is a miss
+        ClasspathGenerator empty = new ClasspathGenerator();
+        empty.setPackages( 0 );
+        empty.setResources( 0 );
+        File other = File.createTempFile( "jcl-trace-empty", ".jar" );
+        other.deleteOnExit();
+        empty.writeJar( other );
+
+        JarClassLoader missing = new JarClassLoader();
+        missing.add( other.getAbsolutePath() );
+        report = new TraceReplayer( trace ).replay( missing );
+        assertEquals( report.toString(), 104, report.getMismatches() );
+        assertEquals( report.toString(), 0, report.getErrors() );
+    }
+
+    @Test(expected = IOException.class)
+    public void checkUnclosedTraceIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JarClassLoader jcl = new JarClassLoader();
+        TraceRecorder recorder = new TraceRecorder( jcl, out );
+        load( jcl, MISSING );
+        jcl.setTraceRecorder( null );
+
+        Trace.read( new ByteArrayInputStream( out.toByteArray() ) );
+    }
+
+    private static void load(JarClassLoader jcl, String name) {
+        try {
+            jcl.loadClass( name );
+        } catch (ClassNotFoundException e) {
+            // recorded as not found
+        }
+    }
+
+    private static void close(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,773 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * ObjectClonerTest test case on ObjectCloner class.
+ *
+ */
+public class ObjectClonerTest {
+
+    static class Base {
+        protected long id;
+        protected Object tag;
+    }
+
+    static class Node extends Base {
+        private boolean flag;
+        private byte b;
+        private char c;
+        private short s;
+        private int i;
+        private float f;
+        private double d;
+        private final int[] values;
+        private Node next;
+        private Node other;
+
+        Node(int[] values) {
+            this.values = values;
+        }
+    }
+
+    @Test
+    public void checkDeepCloneCopiesAllFields() {
+        Node node = new Node( new int[] { 1, 2, 3 } );
+        node.id = 42L;
+        node.flag = true;
+        node.b = 1;
+        node.c = 'c';
+        node.s = 2;
+        node.i = 3;
+        node.f = 4.5f;
+        node.d = 6.5d;
+        node.tag = Integer.valueOf( 7 );
+
+        Node clone = new ObjectCloner().deepClone( node );
+
+        assertNotSame( node, clone );
+        assertEquals( 42L, clone.id );
+        assertEquals( true, clone.flag );
+        assertEquals( 1, clone.b );
+        assertEquals( 'c', clone.c );
+        assertEquals( 2, clone.s );
+        assertEquals( 3, clone.i );
+        assertEquals( 4.5f, clone.f, 0f );
+        assertEquals( 6.5d, clone.d, 0d );
+        assertSame( node.tag, clone.tag );
+        assertNotSame( node.values, clone.values );
+        assertArrayEquals( node.values, clone.values );
+        assertNull( clone.next );
+    }
+
+    @Test
+    public void checkDeepClonePreservesSharedReferencesAndCycles() {
+        Node a = new Node( new int[0] );
+        Node b = new Node( new int[0] );
+        a.next = b;
+        a.other = b;
+        b.next = a;
+
+        Node clone = new ObjectCloner().deepClone( a );
+
+        assertNotSame( a, clone );
+        assertNotSame( b, clone.next );
+        assertSame( clone.next, clone.other );
+        assertSame( clone, clone.next.next );
+    }
+
+    enum Op {
+        PLUS {
+            @Override
+            int apply(int a, int b) {
+                return a + b;
+            }
+        };
+
+        abstract int apply(int a, int b);
+    }
+
+    static class Buffers {
+        private byte[] data;
+        private byte[] alias;
+        private Integer[] boxed;
+        private Op[] ops;
+        private Object[] mixed;
+    }
+
+    @Test
+    public void checkDeepCloneCopiesArraysInBulk() {
+        Buffers buffers = new Buffers();
+        buffers.data = new byte[1024 * 1024];
+        buffers.data[12345] = 7;
+        buffers.alias = buffers.data;
+        buffers.boxed = new Integer[] { 1, 2, null };
+        buffers.ops = new Op[] { Op.PLUS };
+        buffers.mixed = new Object[] { buffers.data, Op.PLUS, new Node( new int[0] ) };
+
+        Buffers clone = new ObjectCloner().deepClone( buffers );
+
+        assertNotSame( buffers.data, clone.data );
+        assertArrayEquals( buffers.data, clone.data );
+        assertSame( clone.data, clone.alias );
+        assertNotSame( buffers.boxed, clone.boxed );
+        assertArrayEquals( buffers.boxed, clone.boxed );
+        assertSame( Op.PLUS, clone.ops[0] );
+        assertSame( clone.data, clone.mixed[0] );
+        assertSame( Op.PLUS, clone.mixed[1] );
+        assertNotSame( buffers.mixed[2], clone.mixed[2] );
+    }
+
+    @Test
+    public void checkShallowCloneSharesReferences() {
+        Node node = new Node( new int[] { 1 } );
+        node.next = new Node( null );
+        node.i = 5;
+
+        Node clone = new ObjectCloner().shallowClone( node );
+
+        assertNotSame( node, clone );
+        assertEquals( 5, clone.i );
+        assertSame( node.values, clone.values );
+        assertSame( node.next, clone.next );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void checkCollectionsAreRebuilt() {
+        Node shared = new Node( new int[] { 9 } );
+        List<Object> list = new ArrayList<>();
+        list.add( shared );
+        list.add( shared );
+        list.add( list );
+
+        Map<Integer, Node> map = new HashMap<>();
+        map.put( 1, shared );
+        Map<Integer, String> sorted = new TreeMap<>( Collections.reverseOrder() );
+        sorted.put( 1, "a" );
+        sorted.put( 2, "b" );
+        Map<String, Node> concurrent = new ConcurrentHashMap<>();
+        concurrent.put( "k", shared );
+
+        Object[] graph = new Object[] { list, map, sorted, concurrent };
+        Object[] clone = new ObjectCloner().deepClone( graph );
+
+        List<Object> listClone = (List<Object>) clone[0];
+        assertTrue( listClone instanceof ArrayList );
+        assertNotSame( shared, listClone.get( 0 ) );
+        assertSame( listClone.get( 0 ), listClone.get( 1 ) );
+        assertSame( listClone, listClone.get( 2 ) );
+
+        Map<Integer, Node> mapClone = (Map<Integer, Node>) clone[1];
+        assertSame( listClone.get( 0 ), mapClone.get( 1 ) );
+
+        Map<Integer, String> sortedClone = (Map<Integer, String>) clone[2];
+        assertTrue( sortedClone instanceof TreeMap );
+        assertEquals( sorted, sortedClone );
+        assertEquals( Integer.valueOf( 2 ), sortedClone.keySet().iterator().next() );
+
+        Map<String, Node> concurrentClone = (Map<String, Node>) clone[3];
+        assertTrue( concurrentClone instanceof ConcurrentHashMap );
+        assertSame( listClone.get( 0 ), concurrentClone.get( "k" ) );
+    }
+
+    @Test
+    public void checkLongChainDoesNotOverflowStack() {
+        Node head = new Node( null );
+        Node tail = head;
+        for( int i = 1; i < 200000; i++ ) {
+            tail.next = new Node( null );
+            tail = tail.next;
+            tail.i = i;
+        }
+        tail.next = head;
+
+        Node clone = new ObjectCloner().deepClone( head );
+
+        Node n = clone;
+        for( int i = 0; i < 200000; i++ ) {
+            assertNotSame( head, n );
+            assertEquals( i, n.i );
+            n = n.next;
+        }
+        assertSame( clone, n );
+    }
+
+    static class Link {
+        private int depth;
+        private final List<Link> next = new ArrayList<>();
+        private final Map<String, Link> byName = new HashMap<>();
+    }
+
+    @Test
+    public void checkChainThroughCollectionsDoesNotOverflowStack() {
+        Link head = new Link();
+        Link tail = head;
+        for( int i = 1; i < 50000; i++ ) {
+            Link link = new Link();
+            link.depth = i;
+            if( i % 2 == 0 ) {
+                tail.next.add( link );
+            } else {
+                tail.byName.put( "l" + i, link );
+            }
+            tail = link;
+        }
+
+        checkChain( new ObjectCloner().deepClone( head ), head );
+
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try {
+            checkChain( new ObjectCloner().deepClone( head, pool ), head );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkChain(Link clone, Link original) {
+        Link n = clone;
+        for( int i = 0; i < 50000; i++ ) {
+            assertNotSame( original, n );
+            assertEquals( i, n.depth );
+            if( i == 49999 ) {
+                break;
+            }
+            n = i % 2 == 1 ? n.next.get( 0 ) : n.byName.get( "l" + ( i + 1 ) );
+            original = i % 2 == 1 ? original.next.get( 0 ) : original.byName.get( "l" + ( i + 1 ) );
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void checkParallelCloneKeepsSharedReferences() {
+        Node shared = new Node( new int[] { 1 } );
+        Object[] graph = new Object[10000];
+        for( int i = 0; i < graph.length; i++ ) {
+            Node node = new Node( null );
+            node.i = i;
+            node.other = shared;
+            node.tag = i % 2 == 0 ? new HashSet<>( Arrays.asList( "a" + i, i ) ) : graph;
+            graph[i] = node;
+        }
+
+        ObjectCloner cloner = new ObjectCloner();
+        cloner.setParallelThreshold( 100 );
+
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try {
+            Object[] clone = cloner.deepClone( graph, pool );
+
+            Node first = (Node) clone[0];
+            assertNotSame( shared, first.other );
+            for( int i = 0; i < clone.length; i++ ) {
+                Node node = (Node) clone[i];
+                assertNotSame( graph[i], node );
+                assertEquals( i, node.i );
+                assertSame( first.other, node.other );
+                if( i % 2 == 0 ) {
+                    Set<Object> set = (Set<Object>) node.tag;
+                    assertTrue( set.contains( "a" + i ) );
+                    assertTrue( set.contains( i ) );
+                } else {
+                    assertSame( clone, node.tag );
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static final class Key {
+        // Cloned in parallel before names, so other tasks see the key before its set is filled
+        private final List<Object> payload = new ArrayList<>( Collections.nCopies( 64, new int[1] ) );
+        private final Set<String> names = new HashSet<>();
+
+        @Override
+        public int hashCode() {
+            return names.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ( (Key) obj ).names.equals( names );
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void checkParallelCloneHashesKeysAfterTheirFields() {
+        Key[] keys = new Key[500];
+        for( int i = 0; i < keys.length; i++ ) {
+            keys[i] = new Key();
+            keys[i].names.add( "k" + i );
+            keys[i].names.add( "n" + i );
+        }
+
+        // Every map shares the keys, whose sets are filled by whichever task reaches them first
+        Object[] graph = new Object[64];
+        for( int i = 0; i < graph.length; i++ ) {
+            Map<Key, Integer> map = new HashMap<>();
+            for( int k = 0; k < keys.length; k++ ) {
+                map.put( keys[( k + i * 7 ) % keys.length], k );
+            }
+            graph[i] = map;
+        }
+
+        ObjectCloner cloner = new ObjectCloner();
+        cloner.setParallelThreshold( 4 );
+
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try {
+            Object[] clone = cloner.deepClone( graph, pool );
+
+            for( Object o : clone ) {
+                Map<Key, Integer> map = (Map<Key, Integer>) o;
+                assertEquals( keys.length, map.size() );
+                for( Key key : map.keySet() ) {
+                    assertTrue( map.containsKey( key ) );
+                }
+                for( Key key : keys ) {
+                    assertTrue( map.containsKey( key ) );
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static final class Money {
+        private final String currency;
+        private final long amount;
+        private final Money previous;
+
+        Money(String currency, long amount, Money previous) {
+            this.currency = currency;
+            this.amount = amount;
+            this.previous = previous;
+        }
+    }
+
+    static final class Holder {
+        private final List<String> values;
+
+        Holder(List<String> values) {
+            this.values = values;
+        }
+    }
+
+    @Test
+    public void checkImmutableValuesAreShared() {
+        Money money = new Money( "EUR", 10, new Money( "EUR", 5, null ) );
+        LocalDateTime time = LocalDateTime.now();
+        String text = "text";
+        Money[] monies = new Money[] { money };
+        Holder holder = new Holder( new ArrayList<>( Collections.singletonList( text ) ) );
+
+        Object[] graph = new Object[] { money, time, text, Optional.of( text ), monies, holder };
+        Object[] clone = new ObjectCloner().deepClone( graph );
+
+        assertSame( money, clone[0] );
+        assertSame( time, clone[1] );
+        assertSame( text, clone[2] );
+        assertEquals( graph[3], clone[3] );
+        assertNotSame( monies, clone[4] );
+        assertSame( money, ( (Money[]) clone[4] )[0] );
+        assertNotSame( holder, clone[5] );
+        assertNotSame( holder.values, ( (Holder) clone[5] ).values );
+
+        assertTrue( Immutability.isImmutable( Money.class ) );
+        assertFalse( Immutability.isImmutable( Holder.class ) );
+        assertFalse( Immutability.isImmutable( Node.class ) );
+    }
+
+    @Test
+    public void checkOptionalWithMutablePayloadIsCloned() {
+        List<String> values = new ArrayList<>( Collections.singletonList( "x" ) );
+        Optional<List<String>> original = Optional.of( values );
+
+        Optional<List<String>> clone = new ObjectCloner().deepClone( original );
+        assertNotSame( original, clone );
+        assertNotSame( values, clone.get() );
+
+        clone.get().add( "mutated" );
+        assertEquals( Collections.singletonList( "x" ), values );
+
+        assertFalse( Immutability.isImmutable( Optional.class ) );
+        assertTrue( Immutability.isImmutable( OptionalInt.class ) );
+    }
+
+    @Test
+    public void checkImmutableDetectionCanBeDisabled() {
+        Money money = new Money( "USD", 1, null );
+
+        ObjectCloner cloner = new ObjectCloner();
+        cloner.setDetectImmutables( false );
+        Money clone = cloner.deepClone( money );
+
+        assertNotSame( money, clone );
+        assertEquals( 1, clone.amount );
+    }
+
+    public interface Settings {
+        int getLimit();
+
+        void setLimit(int limit);
+    }
+
+    public interface Config {
+        String getName();
+
+        void setName(String name);
+
+        Settings getSettings();
+
+        List<String> getTags();
+    }
+
+    static class SettingsImpl implements Settings {
+        private int limit;
+
+        @Override
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public void setLimit(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    static class ConfigImpl implements Config {
+        private String name;
+        private final Settings settings = new SettingsImpl();
+        private final List<String> tags = new ArrayList<>();
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Settings getSettings() {
+            return settings;
+        }
+
+        @Override
+        public List<String> getTags() {
+            return tags;
+        }
+    }
+
+    @Test
+    public void checkLazyCloneCopiesOnWrite() {
+        ConfigImpl config = new ConfigImpl();
+        config.name = "a";
+        config.settings.setLimit( 1 );
+        config.tags.add( "t" );
+
+        Config view = new ObjectCloner().lazyClone( (Config) config, Config.class );
+
+        assertEquals( "a", view.getName() );
+        assertSame( view.getSettings(), view.getSettings() );
+        assertEquals( 1, view.getSettings().getLimit() );
+
+        view.getSettings().setLimit( 5 );
+        assertEquals( 5, view.getSettings().getLimit() );
+        assertEquals( 1, config.settings.getLimit() );
+
+        view.getTags().add( "u" );
+        assertEquals( Arrays.asList( "t", "u" ), view.getTags() );
+        assertEquals( Collections.singletonList( "t" ), config.tags );
+
+        view.setName( "b" );
+        assertEquals( "b", view.getName() );
+        assertEquals( "a", config.name );
+        assertEquals( 5, view.getSettings().getLimit() );
+        assertEquals( 2, view.getTags().size() );
+    }
+
+    public interface Account {
+        String address();
+
+        void setAddress(String address);
+
+        Point getOrigin();
+    }
+
+    public static class Point {
+        int x;
+    }
+
+    static class AccountImpl implements Account {
+        private String address = "here";
+        private final Point origin = new Point();
+
+        @Override
+        public String address() {
+            return address;
+        }
+
+        @Override
+        public void setAddress(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public Point getOrigin() {
+            return origin;
+        }
+    }
+
+    @Test
+    public void checkLazyCloneReadsDoNotCopy() {
+        AccountImpl account = new AccountImpl();
+        Account view = new ObjectCloner().lazyClone( (Account) account, Account.class );
+
+        assertEquals( "here", view.address() );
+
+        Point origin = view.getOrigin();
+        assertNotSame( account.origin, origin );
+        origin.x = 9;
+        assertEquals( 0, account.origin.x );
+        assertEquals( 0, view.getOrigin().x );
+
+        // nothing was copied, the view still reads the original
+        account.address = "there";
+        assertEquals( "there", view.address() );
+
+        view.setAddress( "elsewhere" );
+        assertEquals( "elsewhere", view.address() );
+        assertEquals( "there", account.address );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void checkLazyCloneWritesThroughNestedViews() {
+        ObjectCloner cloner = new ObjectCloner();
+
+        List<String> list = new ArrayList<>( Arrays.asList( "x", "y", "z" ) );
+        List<String> listView = cloner.lazyClone( list, List.class );
+        listView.subList( 0, 2 ).set( 0, "q" );
+        assertEquals( Arrays.asList( "q", "y", "z" ), listView );
+
+        Iterator<String> it = listView.iterator();
+        it.next();
+        it.remove();
+        assertEquals( Arrays.asList( "y", "z" ), listView );
+        assertEquals( Arrays.asList( "x", "y", "z" ), list );
+
+        Map<String, Integer> map = new HashMap<>();
+        map.put( "a", 1 );
+        Map<String, Integer> mapView = cloner.lazyClone( map, Map.class );
+        Map.Entry<String, Integer> entry = mapView.entrySet().iterator().next();
+        for( int i = 0; i < 2; i++ ) {
+            try {
+                entry.setValue( 42 );
+                fail( "Expected JclException" );
+            } catch (JclException e) {
+                // the rebuilt map cannot hold the copied entry
+            }
+        }
+        assertEquals( Integer.valueOf( 1 ), mapView.get( "a" ) );
+        assertEquals( Integer.valueOf( 1 ), map.get( "a" ) );
+
+        Iterator<String> keys = mapView.keySet().iterator();
+        keys.next();
+        keys.remove();
+        assertTrue( mapView.isEmpty() );
+        assertEquals( 1, map.size() );
+    }
+
+    enum Mode {
+        ON, OFF
+    }
+
+    static class Item {
+        private String name;
+        private int weight;
+    }
+
+    static class State {
+        private int count;
+        private Mode mode;
+        private Class<?> type;
+        private List<Item> items = new ArrayList<>();
+        private Item[] slots;
+        private State self;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void checkMigrateRemapsClassesToTargetLoader() throws Exception {
+        Item item = new Item();
+        item.name = "sword";
+        item.weight = 3;
+
+        State state = new State();
+        state.count = 5;
+        state.mode = Mode.OFF;
+        state.type = Item.class;
+        state.items.add( item );
+        state.slots = new Item[] { item, null };
+        state.self = state;
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+
+        Object migrated = new ObjectCloner().migrate( state, jcl );
+
+        Class<?> stateClass = migrated.getClass();
+        assertEquals( State.class.getName(), stateClass.getName() );
+        assertSame( jcl, stateClass.getClassLoader() );
+
+        assertEquals( 5, field( migrated, "count" ) );
+        assertSame( migrated, field( migrated, "self" ) );
+
+        Object mode = field( migrated, "mode" );
+        assertSame( jcl, mode.getClass().getClassLoader() );
+        assertEquals( "OFF", ( (Enum<?>) mode ).name() );
+
+        Class<?> type = (Class<?>) field( migrated, "type" );
+        assertEquals( Item.class.getName(), type.getName() );
+        assertSame( jcl, type.getClassLoader() );
+
+        List<Object> items = (List<Object>) field( migrated, "items" );
+        Object[] slots = (Object[]) field( migrated, "slots" );
+        assertSame( type, items.get( 0 ).getClass() );
+        assertSame( type, slots.getClass().getComponentType() );
+        assertSame( items.get( 0 ), slots[0] );
+        assertNull( slots[1] );
+        assertEquals( "sword", field( slots[0], "name" ) );
+        assertEquals( 3, field( slots[0], "weight" ) );
+    }
+
+    @Test
+    public void checkMigrationConverterReplacesFieldCopy() throws Exception {
+        Item item = new Item();
+        item.name = "shield";
+        item.weight = 2;
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+
+        ObjectCloner cloner = new ObjectCloner();
+        cloner.registerMigrationConverter( Item.class.getName(), (original, targetClass, context) -> {
+            try {
+                Constructor<?> constructor = targetClass.getDeclaredConstructor();
+                constructor.setAccessible( true );
+                Object converted = constructor.newInstance();
+                context.register( original, converted );
+
+                Field weight = targetClass.getDeclaredField( "weight" );
+                weight.setAccessible( true );
+                weight.setInt( converted, ( (Item) original ).weight * 10 );
+                return converted;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException( e );
+            }
+        });
+
+        Object[] migrated = (Object[]) cloner.migrate( new Object[] { item, item }, jcl );
+
+        assertNotNull( migrated[0] );
+        assertSame( migrated[0], migrated[1] );
+        assertEquals( 20, field( migrated[0], "weight" ) );
+        assertNull( field( migrated[0], "name" ) );
+    }
+
+    static class Slot {
+        private Item item;
+    }
+
+    @Test
+    public void checkMigrationRejectsValuesFromAnotherLoader() throws Exception {
+        Slot slot = new Slot();
+        slot.item = new Item();
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+
+        // Returns an Item of the source loader for the target loader's Slot.item
+        ObjectCloner cloner = new ObjectCloner();
+        cloner.registerMigrationConverter( Item.class.getName(), (original, targetClass, context) -> original );
+
+        try {
+            cloner.migrate( slot, jcl );
+            fail( "Expected JclException" );
+        } catch (JclException e) {
+            assertTrue( e.getCause().getMessage().contains( "item" ) );
+        }
+    }
+
+    @Test
+    public void checkMigrationDoesNotRetainTargetLoader() throws Exception {
+        WeakReference<JarClassLoader> target = migrateIntoThrowawayLoader();
+
+        for( int i = 0; i < 10 && target.get() != null; i++ ) {
+            System.gc();
+        }
+
+        assertNull( target.get() );
+    }
+
+    private static WeakReference<JarClassLoader> migrateIntoThrowawayLoader() throws Exception {
+        Item item = new Item();
+        item.name = "bow";
+        State state = new State();
+        state.mode = Mode.OFF;
+        state.type = Item.class;
+        state.items.add( item );
+        state.slots = new Item[] { item };
+
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+
+        Object migrated = new ObjectCloner().migrate( state, jcl );
+        assertSame( jcl, migrated.getClass().getClassLoader() );
+        return new WeakReference<>( jcl );
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField( name );
+        field.setAccessible( true );
+        return field.get( target );
+    }
+}
@@ -0,0 +1,323 @@
+package cn.vicky.engine.classloader.core.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import cn.vicky.engine.classloader.core.JarClassLoader;
+import cn.vicky.engine.classloader.core.exception.JclException;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * SerialCodecTest test case on SerialCodec class.
+ *
+ */
+public class SerialCodecTest {
+
+    enum Color {
+        RED, GREEN
+    }
+
+    static class Parent {
+        int parentValue = 5;
+    }
+
+    static class Item extends Parent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int count;
+        private double price;
+        private char code;
+        private transient String cache;
+        private String name;
+        private BigDecimal amount;
+        private Color color;
+        private long[] history;
+        private Item next;
+        private List<Item> related = new ArrayList<>();
+        private Map<String, Item> byName = new HashMap<>();
+        private Date created;
+    }
+
+    static final class Singleton implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static final Singleton INSTANCE = new Singleton();
+
+        private Object readResolve() {
+            return INSTANCE;
+        }
+    }
+
+    static class Replaced implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String value;
+
+        private Object writeReplace() {
+            Proxy p = new Proxy();
+            p.value = value.toUpperCase();
+            return p;
+        }
+    }
+
+    static class Renamed implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Object writeReplace() {
+            return "replaced";
+        }
+    }
+
+    static class Proxy implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String value;
+
+        private Object readResolve() {
+            Replaced r = new Replaced();
+            r.value = value;
+            return r;
+        }
+    }
+
+    static class Custom implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private transient int written;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt( 99 );
+        }
+
+        private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            written = in.readInt();
+        }
+    }
+
+    static class Declared implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final ObjectStreamField[] serialPersistentFields = { new ObjectStreamField( "name", String.class ) };
+
+        private String name;
+        // not listed in serialPersistentFields, so never serialized
+        private Object handle;
+    }
+
+    static class Holder implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Object value;
+    }
+
+    @Test
+    public void checkCloneCopiesSerializableState() {
+        Item item = new Item();
+        item.parentValue = 42;
+        item.count = 3;
+        item.price = 9.5;
+        item.code = 'x';
+        item.cache = "cached";
+        item.name = "item";
+        item.amount = new BigDecimal( "12.50" );
+        item.color = Color.GREEN;
+        item.history = new long[] { 1L, 2L, Long.MAX_VALUE };
+        item.created = new Date( 1000L );
+
+        Item clone = (Item) SerialCodec.clone( item );
+
+        assertNotSame( item, clone );
+        assertEquals( 3, clone.count );
+        assertEquals( 9.5, clone.price, 0 );
+        assertEquals( 'x', clone.code );
+        assertNull( clone.cache );
+        assertSame( item.name, clone.name );
+        assertSame( item.amount, clone.amount );
+        assertSame( Color.GREEN, clone.color );
+        assertNotSame( item.history, clone.history );
+        assertArrayEquals( item.history, clone.history );
+        assertEquals( item.created, clone.created );
+        assertNotSame( item.created, clone.created );
+
+        // Non-serializable superclass fields are initialized by its constructor
+        assertEquals( 5, clone.parentValue );
+    }
+
+    @Test
+    public void checkCloneKeepsSharedReferencesAndCycles() {
+        Item a = new Item();
+        Item b = new Item();
+        a.next = b;
+        b.next = a;
+        a.related.add( b );
+        a.byName.put( "b", b );
+
+        Item clone = (Item) SerialCodec.clone( a );
+
+        assertSame( clone, clone.next.next );
+        assertSame( clone.next, clone.related.get( 0 ) );
+        assertSame( clone.next, clone.byName.get( "b" ) );
+        assertNotSame( b, clone.next );
+    }
+
+    @Test
+    public void checkCloneRebuildsCollections() {
+        TreeSet<String> sorted = new TreeSet<>( Collections.reverseOrder() );
+        sorted.add( "a" );
+        sorted.add( "c" );
+        sorted.add( "b" );
+
+        LinkedHashMap<String, Integer> lru = new LinkedHashMap<>( 16, 0.75f, true );
+        lru.put( "x", 1 );
+        lru.put( "y", 2 );
+
+        Object[] clone = (Object[]) SerialCodec.clone( new Object[] { sorted, lru } );
+
+        @SuppressWarnings("unchecked")
+        TreeSet<String> sortedClone = (TreeSet<String>) clone[0];
+        assertEquals( "[c, b, a]", sortedClone.toString() );
+
+        @SuppressWarnings("unchecked")
+        LinkedHashMap<String, Integer> lruClone = (LinkedHashMap<String, Integer>) clone[1];
+        lruClone.get( "x" );
+        assertEquals( "[y, x]", lruClone.keySet().toString() );
+    }
+
+    @Test
+    public void checkCloneHonoursWriteReplaceAndReadResolve() {
+        Holder holder = new Holder();
+        holder.value = Singleton.INSTANCE;
+        assertSame( Singleton.INSTANCE, ( (Holder) SerialCodec.clone( holder ) ).value );
+
+        Replaced replaced = new Replaced();
+        replaced.value = "value";
+        Object[] clone = (Object[]) SerialCodec.clone( new Object[] { replaced, replaced } );
+
+        assertEquals( "VALUE", ( (Replaced) clone[0] ).value );
+        assertSame( clone[0], clone[1] );
+    }
+
+    @Test
+    public void checkSharedReplacementIsWrittenForEveryReference() {
+        Renamed renamed = new Renamed();
+        Holder other = new Holder();
+        other.value = 7;
+
+        Object[] clone = (Object[]) SerialCodec.clone( new Object[] { renamed, other, renamed } );
+
+        assertEquals( "replaced", clone[0] );
+        assertEquals( 7, ( (Holder) clone[1] ).value );
+        assertEquals( "replaced", clone[2] );
+    }
+
+    @Test
+    public void checkCustomSerializationFallsBackToObjectStreams() {
+        Holder holder = new Holder();
+        holder.value = new Custom();
+
+        Holder clone = (Holder) SerialCodec.clone( holder );
+
+        assertEquals( 99, ( (Custom) clone.value ).written );
+    }
+
+    @Test
+    public void checkSerialPersistentFieldsAreHonoured() {
+        Declared declared = new Declared();
+        declared.name = "declared";
+        declared.handle = new Object();
+
+        Declared clone = (Declared) SerialCodec.clone( declared );
+
+        assertEquals( "declared", clone.name );
+        assertNull( clone.handle );
+    }
+
+    @Test
+    public void checkNonSerializableObjectIsRejected() {
+        Holder holder = new Holder();
+        holder.value = new Object();
+
+        try {
+            SerialCodec.clone( holder );
+            fail( "Expected JclException" );
+        } catch (JclException e) {
+            assertTrue( e.getCause() instanceof NotSerializableException );
+        }
+    }
+
+    @Test
+    public void checkCloneResolvesClassesInTargetLoader() throws Exception {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+
+        Item item = new Item();
+        item.count = 7;
+        item.color = Color.RED;
+        item.next = item;
+
+        Object clone = SerialCodec.clone( item, jcl );
+
+        Class<?> itemClass = clone.getClass();
+        assertSame( jcl, itemClass.getClassLoader() );
+        assertEquals( Item.class.getName(), itemClass.getName() );
+        assertEquals( 7, field( clone, "count" ) );
+        assertSame( clone, field( clone, "next" ) );
+
+        Object color = field( clone, "color" );
+        assertSame( jcl, color.getClass().getClassLoader() );
+        assertEquals( "RED", ( (Enum<?>) color ).name() );
+    }
+
+    @Test
+    public void checkCloneDoesNotRetainTargetLoader() throws Exception {
+        WeakReference<JarClassLoader> target = cloneIntoThrowawayLoader();
+
+        for( int i = 0; i < 10 && target.get() != null; i++ ) {
+            System.gc();
+        }
+
+        assertNull( target.get() );
+    }
+
+    private static WeakReference<JarClassLoader> cloneIntoThrowawayLoader() throws Exception {
+        JarClassLoader jcl = new JarClassLoader();
+        jcl.add( "./target/test-classes" );
+
+        Item item = new Item();
+        item.color = Color.GREEN;
+        item.related.add( new Item() );
+
+        Object clone = SerialCodec.clone( item, jcl );
+        assertSame( jcl, clone.getClass().getClassLoader() );
+        return new WeakReference<>( jcl );
+    }
+
+    private static Object field(Object o, String name) throws Exception {
+        Field f = o.getClass().getDeclaredField( name );
+        f.setAccessible( true );
+        return f.get( o );
+    }
+}